@@ -0,0 +1,115 @@
+package no.skatteetaten.aurora.version;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * Minimal JSON rendering of the facts behind a suggested version, so build scripts get everything from one run.
+ */
+final class JsonOutput {
+
+    private JsonOutput() {
+    }
+
+    static String format(SuggestedVersion suggestedVersion) {
+        return toJson(toMap(suggestedVersion));
+    }
+
+    /**
+     * The facts of each version, keyed like the given map, like by the path of the repository in a manifest.
+     */
+    static String format(Map<String, SuggestedVersion> versions) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        versions.forEach((key, suggestedVersion) -> json.put(key, toMap(suggestedVersion)));
+        return toJson(json);
+    }
+
+    static String format(BackfilledVersion backfilledVersion) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("commit", backfilledVersion.getCommit());
+        json.put("version", backfilledVersion.getVersion());
+        json.put("source", backfilledVersion.getSource());
+        json.put("inferred", backfilledVersion.isInferred());
+        return toJson(json);
+    }
+
+    private static Map<String, Object> toMap(SuggestedVersion suggestedVersion) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("version", suggestedVersion.getVersion());
+        json.put("source", suggestedVersion.getVersionFromGit().getSource());
+        json.put("inferred", suggestedVersion.isInferred());
+        json.put("branch", suggestedVersion.getBranchName().orElse(null));
+        json.put("branchSearch", suggestedVersion.getBranchSearchResult().map(result -> {
+            Map<String, Object> branchSearch = new LinkedHashMap<>();
+            branchSearch.put("outcome", result.getOutcome());
+            branchSearch.put("commitsWalked", result.getCommitsWalked());
+            return branchSearch;
+        }).orElse(null));
+        json.put("tagOnHead", suggestedVersion.getVersionTagOnHead().orElse(null));
+        json.put("originatingBranch", suggestedVersion.getOriginatingBranchName().orElse(null));
+        json.put("versionSegment", suggestedVersion.getVersionSegmentToIncrement().orElse(null));
+        json.put("latestVersionInReleaseTrack", suggestedVersion.getLatestVersionInReleaseTrack().orElse(null));
+        json.put("createdTag", suggestedVersion.getCreatedTag().orElse(null));
+        return json;
+    }
+
+    static String toJson(Object value) {
+        if (value == null) {
+            return "null";
+        }
+        if (value instanceof Boolean || value instanceof Number) {
+            return value.toString();
+        }
+        if (value instanceof Optional) {
+            return toJson(((Optional<?>) value).orElse(null));
+        }
+        if (value instanceof Map) {
+            return ((Map<?, ?>) value).entrySet().stream()
+                .map(e -> quote(e.getKey().toString()) + ":" + toJson(e.getValue()))
+                .collect(Collectors.joining(",", "{", "}"));
+        }
+        if (value instanceof Iterable) {
+            StringBuilder array = new StringBuilder("[");
+            for (Object item : (Iterable<?>) value) {
+                if (array.length() > 1) {
+                    array.append(',');
+                }
+                array.append(toJson(item));
+            }
+            return array.append(']').toString();
+        }
+        return quote(value.toString());
+    }
+
+    private static String quote(String s) {
+        StringBuilder quoted = new StringBuilder("\"");
+        for (char c : s.toCharArray()) {
+            switch (c) {
+            case '"':
+                quoted.append("\\\"");
+                break;
+            case '\\':
+                quoted.append("\\\\");
+                break;
+            case '\n':
+                quoted.append("\\n");
+                break;
+            case '\r':
+                quoted.append("\\r");
+                break;
+            case '\t':
+                quoted.append("\\t");
+                break;
+            default:
+                if (c < ' ') {
+                    quoted.append(String.format("\\u%04x", (int) c));
+                } else {
+                    quoted.append(c);
+                }
+            }
+        }
+        return quoted.append('"').toString();
+    }
+}
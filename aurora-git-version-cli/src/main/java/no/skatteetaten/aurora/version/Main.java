@@ -1,7 +1,16 @@
 package no.skatteetaten.aurora.version;
 
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
@@ -12,12 +21,26 @@ import org.apache.commons.cli.HelpFormatter;
 import org.apache.commons.cli.Option;
 import org.apache.commons.cli.Options;
 
+import no.skatteetaten.aurora.version.git.BranchSearchResult;
+import no.skatteetaten.aurora.version.git.GitBackend;
+import no.skatteetaten.aurora.version.git.GitRepo;
+import no.skatteetaten.aurora.version.git.KnownTags;
+import no.skatteetaten.aurora.version.git.StorageTuning;
+import no.skatteetaten.aurora.version.suggest.VersionScheme;
 import no.skatteetaten.aurora.version.suggest.VersionSegment;
 
 public final class Main {
 
     public static final int HELP_WIDTH = 150;
 
+    private static final List<String> STORAGE_TUNING_OPTIONS = Arrays.asList("storage-preset", "packed-git-limit",
+        "packed-git-window-size", "packed-git-mmap", "delta-base-cache-limit", "packed-git-open-files");
+
+    private enum OutputFormat {
+        TEXT,
+        JSON
+    }
+
     private Main() {
     }
 
@@ -33,18 +56,133 @@ public final class Main {
             return;
         }
 
+        if (cmd.hasOption("reference-transaction")) {
+            updateRefIndex(cmd.getOptionValue("p", "./"), cmd.getOptionValue("reference-transaction"));
+            System.exit(0);
+        }
+
         SuggesterOptions suggesterOptions;
+        OutputFormat format;
         try {
             suggesterOptions = createSuggesterOptionsFromApplicationArgs(cmd);
+            format = readEnumStringIgnoringCase(cmd.getOptionValue("format", "text"), OutputFormat.class)
+                .orElseThrow(() -> new IllegalArgumentException("Unknown format"));
         } catch (IllegalArgumentException e) {
             showHelp(options);
             return;
         }
 
-        System.out.println(VersionNumberSuggester.suggestVersion(suggesterOptions));
+        if (printReport(cmd, suggesterOptions, format)) {
+            return;
+        }
+
+        Optional<Map<String, SuggestedVersion>> versions = suggestVersions(cmd, suggesterOptions);
+        if (versions.isPresent()) {
+            printVersions(versions.get(), format);
+            return;
+        }
+
+        SuggestedVersion suggestedVersion = VersionNumberSuggester.suggest(suggesterOptions);
+        warnIfBranchSearchInconclusive(suggestedVersion, "");
+
+        if (format == OutputFormat.JSON) {
+            System.out.println(JsonOutput.format(suggestedVersion));
+        } else {
+            System.out.println(suggestedVersion.getVersion());
+        }
+    }
+
+    /**
+     * Prints what the options that print something else than versions ask for, if any.
+     *
+     * @return whether anything was printed
+     */
+    private static boolean printReport(CommandLine cmd, SuggesterOptions suggesterOptions, OutputFormat format) {
+        if (cmd.hasOption("fingerprint")) {
+            System.out.println(VersionFingerprint.compute(suggesterOptions,
+                getCommaSeparatedOptionValue(cmd, "namespaces")));
+            return true;
+        }
+        if (cmd.hasOption("backfill")) {
+            backfill(suggesterOptions, cmd.getOptionValue("backfill"), cmd.getOptionValue("backfill-branch"), format);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * The versions of the options that suggest several versions at once, keyed by what each version is for.
+     */
+    private static Optional<Map<String, SuggestedVersion>> suggestVersions(CommandLine cmd,
+        SuggesterOptions suggesterOptions) {
+
+        if (cmd.hasOption("recursive")) {
+            return Optional.of(VersionManifest.suggest(suggesterOptions).getVersions());
+        }
+        if (cmd.hasOption("release-branches")) {
+            return Optional.of(ReleaseBranchVersions.suggest(suggesterOptions,
+                getCommaSeparatedOptionValue(cmd, "release-branches")));
+        }
+        if (cmd.hasOption("namespaces")) {
+            return Optional.of(NamespaceVersions.suggest(suggesterOptions,
+                getCommaSeparatedOptionValue(cmd, "namespaces")));
+        }
+        if (cmd.hasOption("queue")) {
+            return Optional.of(MergeQueueVersions.suggest(suggesterOptions,
+                getCommaSeparatedOptionValue(cmd, "queue")));
+        }
+        return Optional.empty();
+    }
+
+    private static void backfill(SuggesterOptions suggesterOptions, String range, String branchName,
+        OutputFormat format) {
+
+        int rangeSeparator = range.indexOf("..");
+        String fromRevision = rangeSeparator >= 0 ? range.substring(0, rangeSeparator) : null;
+        String toRevision = rangeSeparator >= 0 ? range.substring(rangeSeparator + 2) : range;
+        VersionBackfill.backfill(suggesterOptions, branchName, fromRevision, toRevision, backfilledVersion ->
+            System.out.println(format == OutputFormat.JSON
+                ? JsonOutput.format(backfilledVersion)
+                : backfilledVersion.getCommit() + " " + backfilledVersion.getVersion()));
+    }
+
+    /**
+     * Runs as git's <code>reference-transaction</code> hook, with the ref updates on stdin. A failing hook would make
+     * git abort a prepared transaction, so every failure, also reading the updates or running out of memory, is only
+     * reported, and the hook exits with status 0.
+     */
+    private static void updateRefIndex(String path, String state) {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+            GitRepo repository = GitRepo.fromDir(new File(path, "."))) {
+            repository.updateRefIndex(state, reader.lines().collect(Collectors.toList()));
+        } catch (Throwable e) {
+            System.err.println("WARNING: Could not update the ref index: " + e);
+        }
+    }
+
+    private static void printVersions(Map<String, SuggestedVersion> versions, OutputFormat format) {
+        versions.forEach((key, suggestedVersion) ->
+            warnIfBranchSearchInconclusive(suggestedVersion, " for " + key));
+
+        if (format == OutputFormat.JSON) {
+            System.out.println(JsonOutput.format(versions));
+        } else {
+            versions.forEach((key, suggestedVersion) -> System.out.println(key + " " + suggestedVersion.getVersion()));
+        }
+    }
+
+    private static void warnIfBranchSearchInconclusive(SuggestedVersion suggestedVersion, String location) {
+        suggestedVersion.getBranchSearchResult()
+            .filter(BranchSearchResult::isInconclusive)
+            .ifPresent(result -> System.err.println(String.format(
+                result.isBudgetExhausted()
+                    ? "WARNING: Branch search budget exhausted after %d commits%s, using fallback version"
+                    : "WARNING: Branch search reached the end of the shallow clone after %d commits%s, using "
+                        + "fallback version. Fetch more history or set the branch name",
+                result.getCommitsWalked(), location)));
     }
 
-    private static SuggesterOptions createSuggesterOptionsFromApplicationArgs(CommandLine cmd) {
+    private static SuggesterOptions createSuggesterOptionsFromApplicationArgs(CommandLine cmd) throws IOException {
 
         String path = cmd.getOptionValue("p", "./");
         String versionHint = cmd.getOptionValue("version-hint", "");
@@ -57,7 +195,8 @@ public final class Main {
             incrementForExistingTag = Optional.of(VersionSegment.PATCH);
         }
 
-        if (!branchesToStipulateReleaseVersionsFor.isEmpty()) {
+        boolean conventionalCommits = cmd.hasOption("conventional-commits");
+        if (!branchesToStipulateReleaseVersionsFor.isEmpty() && !conventionalCommits) {
             if (versionHint.isEmpty()) {
                 throw new IllegalArgumentException("version-hint is required when using suggest-releases");
             }
@@ -74,10 +213,56 @@ public final class Main {
             !(incrementForExistingTag.isPresent() || cmd.hasOption("no-tag-for-snapshot"))
         );
         suggesterOptions.setForceSegmentIncrementForExistingTag(incrementForExistingTag);
+        suggesterOptions.setInferSegmentFromConventionalCommits(conventionalCommits);
+        suggesterOptions.setOnlyUseTagsReachableFromHead(cmd.hasOption("reachable-tags-only"));
+        suggesterOptions.setBranchesToUseDistanceVersionsFor(getCommaSeparatedOptionValue(cmd, "distance-versions"));
+        suggesterOptions.setBranchSearchMaxCommits(
+            Integer.parseInt(cmd.getOptionValue("branch-search-max-commits", "0")));
+        suggesterOptions.setBranchSearchTimeoutMillis(
+            Long.parseLong(cmd.getOptionValue("branch-search-timeout", "0")));
+        if (cmd.hasOption("known-tags")) {
+            suggesterOptions.setKnownTags(readKnownTags(cmd.getOptionValue("known-tags")));
+        }
+        suggesterOptions.setRevision(cmd.getOptionValue("rev", "HEAD"));
+        suggesterOptions.setBranchName(cmd.getOptionValue("branch"));
+        suggesterOptions.setCreateTag(cmd.hasOption("create-tag"));
+        suggesterOptions.setStorageTuning(createStorageTuning(cmd));
+        suggesterOptions.setBackend(readEnumStringIgnoringCase(cmd.getOptionValue("backend", "jgit"), GitBackend.class)
+            .orElseThrow(() -> new IllegalArgumentException("Unknown backend")));
+        suggesterOptions.setOrderTagsByTaggerDate(cmd.hasOption("order-tags-by-date"));
+        suggesterOptions.setFederatedRepoPaths(getCommaSeparatedOptionValue(cmd, "federated-repos"));
+        suggesterOptions.setVersionScheme(VersionScheme.forName(cmd.getOptionValue("version-scheme", "semver")));
+        suggesterOptions.setVersionNotesRef(cmd.getOptionValue("notes-ref"));
 
         return suggesterOptions;
     }
 
+    private static StorageTuning createStorageTuning(CommandLine cmd) {
+        boolean tuned = STORAGE_TUNING_OPTIONS.stream().anyMatch(cmd::hasOption);
+        if (!tuned) {
+            return null;
+        }
+        StorageTuning tuning = StorageTuning.preset(cmd.getOptionValue("storage-preset", "small"));
+        if (cmd.hasOption("packed-git-limit")) {
+            tuning.setPackedGitLimit(StorageTuning.parseSize(cmd.getOptionValue("packed-git-limit")));
+        }
+        if (cmd.hasOption("packed-git-window-size")) {
+            tuning.setPackedGitWindowSize(
+                Math.toIntExact(StorageTuning.parseSize(cmd.getOptionValue("packed-git-window-size"))));
+        }
+        if (cmd.hasOption("packed-git-mmap")) {
+            tuning.setPackedGitMMAP(StorageTuning.parseBoolean(cmd.getOptionValue("packed-git-mmap")));
+        }
+        if (cmd.hasOption("delta-base-cache-limit")) {
+            tuning.setDeltaBaseCacheLimit(
+                Math.toIntExact(StorageTuning.parseSize(cmd.getOptionValue("delta-base-cache-limit"))));
+        }
+        if (cmd.hasOption("packed-git-open-files")) {
+            tuning.setPackedGitOpenFiles(Integer.parseInt(cmd.getOptionValue("packed-git-open-files")));
+        }
+        return tuning;
+    }
+
     private static Options createApplicationOptions() {
 
         Options options = new Options();
@@ -105,6 +290,23 @@ public final class Main {
             .desc("If current commit has version bump patch instead of using the version from the tag")
             .build());
 
+        options.addOption(Option.builder().longOpt("conventional-commits")
+            .desc("Infer the segment to increment from the Conventional Commits since the latest version tag. "
+                + "The version-hint is optional with this option")
+            .build());
+
+        options.addOption(Option.builder().longOpt("reachable-tags-only")
+            .desc("Only use the version tags reachable from HEAD when suggesting release versions, ignoring tags made "
+                + "on other maintenance lines")
+            .build());
+
+        options.addOption(Option.builder().longOpt("distance-versions")
+            .desc("Comma separated list of branches for which untagged commits get a pre-release version with the "
+                + "distance to the nearest version tag, like 1.4.2-rc.37+g1a2b3c4")
+            .hasArg()
+            .argName("BRANCH-CSV")
+            .build());
+
         options.addOption(Option.builder().longOpt("metadata")
             .desc("metadata to add to the generated version")
             .hasArg()
@@ -113,9 +315,211 @@ public final class Main {
         options.addOption(Option.builder().longOpt("no-tag-for-snapshot")
             .desc("Skip fetching tag for snapshot")
             .build());
+
+        options.addOption(Option.builder().longOpt("branch-search-max-commits")
+            .desc("Maximum number of commits to walk when searching for the branch of a detached HEAD. "
+                + "A warning is written to stderr if the budget is exhausted. Default 0, no limit")
+            .hasArg()
+            .argName("COUNT")
+            .build());
+
+        options.addOption(Option.builder().longOpt("branch-search-timeout")
+            .desc("Maximum time to spend searching for the branch of a detached HEAD. "
+                + "A warning is written to stderr if the budget is exhausted. Default 0, no limit")
+            .hasArg()
+            .argName("MILLIS")
+            .build());
+
+        options.addOption(Option.builder().longOpt("known-tags")
+            .desc("Read the tags to use from a file in the format of 'git ls-remote --tags', or with one tag name per "
+                + "line, instead of from the local repository. Use - to read from stdin")
+            .hasArg()
+            .argName("FILE")
+            .build());
+
+        options.addOption(Option.builder().longOpt("rev")
+            .desc("The commit to suggest a version for, like a branch, a tag or a commit id, instead of HEAD. Needs "
+                + "no checkout, so the path may be a bare mirror")
+            .hasArg()
+            .argName("REVISION")
+            .build());
+
+        options.addOption(Option.builder().longOpt("branch")
+            .desc("The branch the commit was built on. Default the checked out branch, the branch named by --rev, or "
+                + "a branch containing the commit")
+            .hasArg()
+            .argName("BRANCH")
+            .build());
+
+        options.addOption(Option.builder().longOpt("create-tag")
+            .desc("Tag the commit with the suggested version when a release version is inferred, in one atomic ref "
+                + "update. The tag is not pushed")
+            .build());
+
+        addStorageTuningOptions(options);
+
+        addReportOptions(options);
+        addHookOptions(options);
+
+        options.addOption(Option.builder().longOpt("version-scheme")
+            .desc("How release versions are written and incremented: semver, calver for versions like 2026.10.3 by "
+                + "the current month, or build-number for plain build numbers. Default semver")
+            .hasArg()
+            .argName("SCHEME")
+            .build());
+
+        options.addOption(Option.builder().longOpt("federated-repos")
+            .desc("Comma separated list of paths to other local repositories sharing the version line. Their version "
+                + "tags are merged with the tags of this repository when inferring release versions")
+            .hasArg()
+            .argName("PATH-CSV")
+            .build());
+
+        options.addOption(Option.builder().longOpt("notes-ref")
+            .desc("Record the version as a git note on the commit under this notes ref, like refs/notes/versions, "
+                + "and read it from there on later runs with the same version tags and options. Fetch and push the "
+                + "notes ref to share the versions between clones")
+            .hasArg()
+            .argName("REF")
+            .build());
+
+        options.addOption(Option.builder().longOpt("order-tags-by-date")
+            .desc("When a commit has several version tags, use the annotated tag with the latest tagger date instead "
+                + "of the tag with the highest version")
+            .build());
+
+        options.addOption(Option.builder().longOpt("backend")
+            .desc("How commits are read and branches searched: jgit, or native to use the git command line, which "
+                + "must be on the path. Default jgit")
+            .hasArg()
+            .argName("BACKEND")
+            .build());
+
+        options.addOption(Option.builder().longOpt("format")
+            .desc("Output format, text or json. The json format contains the version along with the facts it was "
+                + "derived from. Default text")
+            .hasArg()
+            .argName("FORMAT")
+            .build());
         return options;
     }
 
+    /**
+     * Options that print something else than the version of the single repository.
+     */
+    private static void addReportOptions(Options options) {
+        options.addOption(Option.builder().longOpt("recursive")
+            .desc("Suggest versions for the repository and all its checked out submodules, recursively, in parallel. "
+                + "Prints one line with the path and the version for each, or a json object keyed by path")
+            .build());
+
+        options.addOption(Option.builder().longOpt("release-branches")
+            .desc("Comma separated list of branches, like release/*, to suggest the next release version for without "
+                + "checking them out. The version hint of each branch is taken from its name, like 1.2 in release/1.2. "
+                + "Prints one line with the branch and the version for each, or a json object keyed by branch")
+            .hasArg()
+            .argName("BRANCHES")
+            .build());
+
+        options.addOption(Option.builder().longOpt("namespaces")
+            .desc("Comma separated list of tag prefixes, like api/v,web/v, for components tagged separately in the "
+                + "same repository. Prints one line with the prefix and the version for each, or a json object keyed "
+                + "by prefix")
+            .hasArg()
+            .argName("PREFIXES")
+            .build());
+
+        options.addOption(Option.builder().longOpt("queue")
+            .desc("Comma separated list of commits, like the batch of a merge queue, to suggest versions for as if "
+                + "they land in that order on the current branch, or on --branch. Each commit gets the release "
+                + "version after the one of the commit before it. Prints one line with the commit and the version for "
+                + "each, or a json object keyed by commit")
+            .hasArg()
+            .argName("COMMITS")
+            .build());
+
+        options.addOption(Option.builder().longOpt("backfill")
+            .desc("Print the version of every commit in the range, like FROM..TO or TO, oldest first, one per line. "
+                + "Each commit gets the version it would have been given, with the tags made up to that point")
+            .hasArg()
+            .argName("RANGE")
+            .build());
+
+        options.addOption(Option.builder().longOpt("backfill-branch")
+            .desc("The branch the commits were built on when backfilling. Default the current branch")
+            .hasArg()
+            .argName("BRANCH")
+            .build());
+
+        options.addOption(Option.builder().longOpt("fingerprint")
+            .desc("Print a fingerprint of the inputs the version depends on instead of the version, computed from the "
+                + "ref files and the options without reading any objects. Covers the tag prefixes of --namespaces, "
+                + "but not the submodules of --recursive")
+            .build());
+    }
+
+    /**
+     * Options for running as a git hook.
+     */
+    private static void addHookOptions(Options options) {
+        options.addOption(Option.builder().longOpt("reference-transaction")
+            .desc("Run as git's reference-transaction hook with the given state, reading the ref updates from stdin. "
+                + "Keeps an index of the branches and peeled tags in the git directory up to date, which is read "
+                + "instead of the refs while it is. Install with a .git/hooks/reference-transaction script running "
+                + "java -jar aurora-git-version-cli.jar --reference-transaction \"$1\"")
+            .hasArg()
+            .argName("STATE")
+            .build());
+    }
+
+    private static void addStorageTuningOptions(Options options) {
+        options.addOption(Option.builder().longOpt("storage-preset")
+            .desc("JGit storage settings for the size of the repository, small or huge. The other storage options "
+                + "override single settings of the preset. Default the JGit defaults, which are the same as small")
+            .hasArg()
+            .argName("PRESET")
+            .build());
+
+        options.addOption(Option.builder().longOpt("packed-git-limit")
+            .desc("Maximum bytes of pack files to keep in memory, like 512m")
+            .hasArg()
+            .argName("SIZE")
+            .build());
+
+        options.addOption(Option.builder().longOpt("packed-git-window-size")
+            .desc("Size of each window of a pack file kept in memory, a power of 2, like 64k")
+            .hasArg()
+            .argName("SIZE")
+            .build());
+
+        options.addOption(Option.builder().longOpt("packed-git-mmap")
+            .desc("Whether to map pack file windows into memory, true or false")
+            .hasArg()
+            .argName("BOOLEAN")
+            .build());
+
+        options.addOption(Option.builder().longOpt("delta-base-cache-limit")
+            .desc("Maximum bytes of uncompressed delta bases to cache, like 64m")
+            .hasArg()
+            .argName("SIZE")
+            .build());
+
+        options.addOption(Option.builder().longOpt("packed-git-open-files")
+            .desc("Maximum number of pack files to keep open")
+            .hasArg()
+            .argName("COUNT")
+            .build());
+    }
+
+    private static KnownTags readKnownTags(String source) throws IOException {
+        if ("-".equals(source)) {
+            return KnownTags.parseLsRemote(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+        }
+        try (Reader reader = Files.newBufferedReader(Paths.get(source), StandardCharsets.UTF_8)) {
+            return KnownTags.parseLsRemote(reader);
+        }
+    }
+
     private static void showHelp(Options options) {
 
         HelpFormatter formatter = new HelpFormatter();
@@ -0,0 +1,65 @@
+package no.skatteetaten.aurora.version;
+
+import no.skatteetaten.aurora.version.git.GitVersion;
+
+/**
+ * The version of one commit, as given by {@link VersionBackfill}.
+ */
+public final class BackfilledVersion {
+
+    private final String commit;
+
+    private final String version;
+
+    private final GitVersion.VersionSource source;
+
+    private final boolean inferred;
+
+    BackfilledVersion(String commit, String version, GitVersion.VersionSource source, boolean inferred) {
+        this.commit = commit;
+        this.version = version;
+        this.source = source;
+        this.inferred = inferred;
+    }
+
+    /**
+     * The full id of the commit.
+     *
+     * @return the id as 40 hex digits
+     */
+    public String getCommit() {
+        return commit;
+    }
+
+    /**
+     * The version of the commit, like a release version, a snapshot version or the version of a tag.
+     *
+     * @return the version
+     */
+    public String getVersion() {
+        return version;
+    }
+
+    /**
+     * Where the version came from before any release version was inferred; the tag or the branch.
+     *
+     * @return the source of the version
+     */
+    public GitVersion.VersionSource getSource() {
+        return source;
+    }
+
+    /**
+     * Whether the version is an inferred release version.
+     *
+     * @return true if the version was inferred from the release tracks
+     */
+    public boolean isInferred() {
+        return inferred;
+    }
+
+    @Override
+    public String toString() {
+        return commit + " " + version;
+    }
+}
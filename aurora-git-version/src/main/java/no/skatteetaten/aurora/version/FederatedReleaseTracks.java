@@ -0,0 +1,92 @@
+package no.skatteetaten.aurora.version;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import no.skatteetaten.aurora.version.git.GitBackend;
+import no.skatteetaten.aurora.version.git.GitRepoPool;
+import no.skatteetaten.aurora.version.suggest.ReleaseTracks;
+import no.skatteetaten.aurora.version.suggest.VersionScheme;
+
+/**
+ * The release tracks of a version line shared by several repositories, for products released from more than one
+ * repository with the same version number. The refs of the repositories are scanned in parallel, the release tracks of
+ * each repository are built on its own thread, and they are then merged into one, so the highest version across all
+ * the repositories decides the next version in every release track.
+ */
+public final class FederatedReleaseTracks {
+
+    private FederatedReleaseTracks() {
+    }
+
+    /**
+     * The release tracks of the version tags with the given prefix in all the given repositories, parsed with the
+     * given version scheme.
+     */
+    public static ReleaseTracks scan(List<File> repositories, String versionPrefix, VersionScheme scheme,
+        GitBackend backend) {
+
+        return scan(repositories, versionPrefix, scheme, backend, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Same as {@link #scan(List, String, VersionScheme, GitBackend)}, scanning at most <code>threads</code>
+     * repositories at a time.
+     */
+    public static ReleaseTracks scan(List<File> repositories, String versionPrefix, VersionScheme scheme,
+        GitBackend backend, int threads) {
+
+        ReleaseTracks releaseTracks = new ReleaseTracks(scheme);
+        if (repositories.isEmpty()) {
+            return releaseTracks;
+        }
+        try (GitRepoPool pool = new GitRepoPool(backend)) {
+            ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads,
+                repositories.size())));
+            try {
+                List<Future<ReleaseTracks>> futures = new ArrayList<>();
+                repositories.forEach(dir -> futures.add(executor.submit(() ->
+                    ReleaseTracks.of(scheme, pool.open(dir).getAllVersionsFromTags(versionPrefix)))));
+
+                for (int i = 0; i < futures.size(); i++) {
+                    releaseTracks.addAll(getResult(repositories.get(i), futures.get(i)));
+                }
+                return releaseTracks;
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * The release tracks of the given versions of the repository itself, merged with those of
+     * <code>federatedRepoPaths</code> in the options.
+     */
+    static ReleaseTracks of(List<String> versions, SuggesterOptions options) {
+        ReleaseTracks releaseTracks = ReleaseTracks.of(options.getVersionScheme(), versions);
+        List<File> repositories = new ArrayList<>();
+        options.getFederatedRepoPaths().forEach(path -> repositories.add(new File(path, ".")));
+        releaseTracks.addAll(scan(repositories, options.getVersionPrefix(), options.getVersionScheme(),
+            options.getBackend()));
+        return releaseTracks;
+    }
+
+    private static ReleaseTracks getResult(File repository, Future<ReleaseTracks> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while reading the version tags of " + repository, e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Unable to read the version tags of " + repository, e.getCause());
+        }
+    }
+}
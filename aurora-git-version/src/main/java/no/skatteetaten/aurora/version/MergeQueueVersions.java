@@ -0,0 +1,164 @@
+package no.skatteetaten.aurora.version;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
+
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.revwalk.RevCommit;
+
+import no.skatteetaten.aurora.version.git.BranchSearchResult;
+import no.skatteetaten.aurora.version.git.GitRepo;
+import no.skatteetaten.aurora.version.git.GitVersion;
+import no.skatteetaten.aurora.version.suggest.ConventionalCommits;
+import no.skatteetaten.aurora.version.suggest.ReleaseTracks;
+import no.skatteetaten.aurora.version.suggest.ReleaseVersionEvaluator;
+import no.skatteetaten.aurora.version.suggest.VersionSegment;
+
+/**
+ * Suggests the versions of an ordered list of commits as if they land on the target branch in that order, for merge
+ * queues testing a batch of commits at once. The release tracks are built from the version tags once, and every
+ * release version suggested is added to them before the next commit, so each commit gets the version after the one
+ * of the commit before it, rather than all of them getting the same version as separate runs of
+ * {@link VersionNumberSuggester} would give.
+ * <p>
+ * The target branch is <code>branchName</code> from the options, or the current branch. Each commit gets the version
+ * a build of it on the target branch would get: the version from a tag on the commit, or the next release version if
+ * the branch is one to infer release versions for, or otherwise the snapshot version of the branch. The segment to
+ * increment is found by {@link ReleaseVersionEvaluator} from the commit messages: the originating branch of the
+ * commit, and with <code>inferSegmentFromConventionalCommits</code> the Conventional Commits since the commit before
+ * it in the list, or since the latest version tag for the first commit. Distance versions are not given.
+ */
+public final class MergeQueueVersions {
+
+    private final GitRepo repository;
+
+    private final SuggesterOptions options;
+
+    private final ReleaseVersionInference inference;
+
+    private final String branchName;
+
+    private MergeQueueVersions(GitRepo repository, SuggesterOptions options, String branchName) {
+        this.repository = repository;
+        this.options = options;
+        this.inference = new ReleaseVersionInference(options);
+        this.branchName = branchName;
+    }
+
+    /**
+     * The suggested version of each of the revisions, in the order given and keyed by revision, with the versions of
+     * the revisions before each one taken as released.
+     */
+    public static Map<String, SuggestedVersion> suggest(SuggesterOptions options, List<String> revisions) {
+        try (GitRepo repository = VersionNumberSuggester.openRepository(options)) {
+            return suggest(repository, options, revisions);
+        }
+    }
+
+    /**
+     * Same as {@link #suggest(SuggesterOptions, List)}, but on an already opened repository.
+     */
+    public static Map<String, SuggestedVersion> suggest(GitRepo repository, SuggesterOptions options,
+        List<String> revisions) {
+
+        GitRepo gitRepo = VersionNumberSuggester.withKnownTags(repository, options);
+        String branch = options.getBranchName() != null
+            ? options.getBranchName()
+            : gitRepo.getBranchName(options.isFallbackToBranchNameEnv(), options.getFallbackBranchNameEnvName())
+                .orElseThrow(() -> new IllegalStateException("Unable to determine name of current branch"));
+        return new MergeQueueVersions(gitRepo, options, branch).suggest(revisions);
+    }
+
+    private Map<String, SuggestedVersion> suggest(List<String> revisions) {
+        List<ObjectId> commits = new ArrayList<>();
+        Set<ObjectId> listed = new HashSet<>();
+        for (String revision : revisions) {
+            ObjectId commit = repository.resolve(revision);
+            if (commit == null) {
+                throw new IllegalArgumentException("Unknown revision " + revision);
+            }
+            // Checked before any version is suggested and added to the release tracks, also for HEAD and its id
+            if (!listed.add(commit)) {
+                throw new IllegalArgumentException("Revision " + revision + " is listed more than once");
+            }
+            commits.add(commit);
+        }
+        if (commits.isEmpty()) {
+            return new LinkedHashMap<>();
+        }
+
+        ObjectId last = commits.get(commits.size() - 1);
+        List<String> existingVersions = options.isOnlyUseTagsReachableFromHead()
+            ? repository.getAllVersionsFromTagsReachableFrom(last, options.getVersionPrefix())
+            : repository.getAllVersionsFromTags(options.getVersionPrefix());
+        ReleaseTracks releaseTracks = FederatedReleaseTracks.of(existingVersions, options);
+        GitVersion gitVersion = new GitVersion(repository, VersionNumberSuggester.createGitVersionOptions(options));
+        Map<ObjectId, List<String>> versionTagsByCommit = repository.getVersionTagsByCommit(options.getVersionPrefix());
+
+        Map<String, SuggestedVersion> versions = new LinkedHashMap<>();
+        for (int i = 0; i < commits.size(); i++) {
+            ObjectId previous = i > 0 ? commits.get(i - 1) : null;
+            ObjectId commit = commits.get(i);
+            versions.put(revisions.get(i), suggest(gitVersion, releaseTracks, previous, commit,
+                versionTagsByCommit.getOrDefault(commit, Collections.emptyList())));
+        }
+        return versions;
+    }
+
+    private SuggestedVersion suggest(GitVersion gitVersion, ReleaseTracks releaseTracks, ObjectId previous,
+        ObjectId commit, List<String> versionTags) {
+
+        GitVersion.Version versionFromGit = gitVersion.determineVersion(BranchSearchResult.supplied(branchName),
+            versionTags);
+        if (!inference.infersReleaseVersion(versionFromGit, inference.getRules().infersReleaseVersions(branchName))) {
+            return new SuggestedVersion(versionFromGit.getVersion(), versionFromGit);
+        }
+        return inference.suggest(versionFromGit, releaseTracks, options.getVersionHint(),
+            repository.findOriginatingBranchName(commit), () -> findConventionalCommitSegment(previous, commit),
+            version -> {
+                // The commits after this one are suggested as if this version was released
+                releaseTracks.add(version);
+                return version;
+            });
+    }
+
+    /**
+     * The most significant segment of the Conventional Commits the commit adds to the one before it, or to the latest
+     * version tag if it is the first.
+     */
+    private Optional<VersionSegment> findConventionalCommitSegment(ObjectId previous, ObjectId commit) {
+        if (!options.isInferSegmentFromConventionalCommits()) {
+            return Optional.empty();
+        }
+        AtomicReference<VersionSegment> mostSignificant = new AtomicReference<>();
+        Predicate<RevCommit> classify = c -> {
+            ConventionalCommits.classify(c.getFullMessage()).ifPresent(segment ->
+                mostSignificant.accumulateAndGet(segment, (current, next) ->
+                    current == null ? next : VersionSegment.mostSignificant(current, next)));
+            // Nothing can outrank a breaking change, so there is no need to look any further
+            return mostSignificant.get() != VersionSegment.MAJOR;
+        };
+        if (previous == null) {
+            repository.forEachCommitSinceVersionTag(commit, options.getVersionPrefix(), classify);
+        } else {
+            List<ObjectId> added = new ArrayList<>();
+            repository.forEachCommitOldestFirst(previous, commit, options.getVersionPrefix(), (c, tags) ->
+                added.add(c.copy()));
+            // The walk only parses the headers, so the messages are read in one batch
+            for (RevCommit c : repository.getLogEntriesForCommits(added)) {
+                if (!classify.test(c)) {
+                    break;
+                }
+            }
+        }
+        return Optional.ofNullable(mostSignificant.get());
+    }
+}
@@ -0,0 +1,136 @@
+package no.skatteetaten.aurora.version;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+
+import org.eclipse.jgit.lib.ObjectId;
+
+import no.skatteetaten.aurora.version.git.BranchSearchResult;
+import no.skatteetaten.aurora.version.git.GitRepo;
+import no.skatteetaten.aurora.version.git.GitVersion;
+import no.skatteetaten.aurora.version.git.NamespaceTags;
+import no.skatteetaten.aurora.version.suggest.ReleaseTracks;
+
+/**
+ * Suggests versions for several components of one repository, each tagged with its own prefix, like
+ * <code>api/v1.2.3</code> and <code>web/v4.0.1</code>. Only the tags with one of the prefixes are read, and the branch
+ * is searched for once, instead of once per component.
+ * <p>
+ * Each component gets the version from a tag with its prefix on the commit, or an inferred release version, like
+ * {@link VersionNumberSuggester}. <code>versionPrefix</code> in the options is not used. With
+ * <code>onlyUseTagsReachableFromHead</code> the tags reachable from the commit are found in one walk for all the
+ * prefixes, and with <code>createTag</code> the inferred versions are tagged in one atomic ref update. Distance
+ * versions and segments from conventional commits are not given, since they need a walk of the history for every
+ * prefix.
+ */
+public final class NamespaceVersions {
+
+    private final GitRepo repository;
+
+    private final SuggesterOptions options;
+
+    private final ReleaseVersionInference inference;
+
+    private Optional<String> originatingBranchName = Optional.empty();
+
+    private NamespaceVersions(GitRepo repository, SuggesterOptions options) {
+        this.repository = repository;
+        this.options = options;
+        this.inference = new ReleaseVersionInference(options);
+    }
+
+    /**
+     * The suggested version of each prefix, keyed by prefix, in the order the prefixes are given.
+     */
+    public static Map<String, SuggestedVersion> suggest(SuggesterOptions options, List<String> prefixes) {
+        try (GitRepo repository = VersionNumberSuggester.openRepository(options)) {
+            return suggest(repository, options, prefixes);
+        }
+    }
+
+    /**
+     * Same as {@link #suggest(SuggesterOptions, List)}, but on an already opened repository.
+     */
+    public static Map<String, SuggestedVersion> suggest(GitRepo repository, SuggesterOptions options,
+        List<String> prefixes) {
+
+        GitRepo gitRepo = VersionNumberSuggester.withKnownTags(repository, options);
+        Map<String, SuggestedVersion> versions = new NamespaceVersions(gitRepo, options).suggest(prefixes);
+        return options.isCreateTag() ? createTags(repository, options, versions) : versions;
+    }
+
+    private Map<String, SuggestedVersion> suggest(List<String> prefixes) {
+        ObjectId commit = repository.resolve(options.getRevision());
+        Map<String, NamespaceTags> namespaces = repository.getVersionTagsByNamespace(commit, prefixes);
+        BranchSearchResult branchSearch = new GitVersion(repository,
+            VersionNumberSuggester.createGitVersionOptions(options)).findBranch();
+        // The same for all prefixes, so the commit message is only read once
+        originatingBranchName = infersReleaseVersions(branchSearch)
+            ? repository.findOriginatingBranchName(commit)
+            : Optional.empty();
+        // All the version tags reachable from the commit, found in one walk, by the empty prefix
+        Optional<List<String>> reachableTags = options.isOnlyUseTagsReachableFromHead()
+            ? Optional.of(repository.getAllVersionsFromTagsReachableFrom(commit, ""))
+            : Optional.empty();
+
+        Map<String, SuggestedVersion> versions = new LinkedHashMap<>();
+        namespaces.forEach((prefix, tags) ->
+            versions.put(prefix, suggest(branchSearch, tags, getVersions(tags, reachableTags))));
+        return versions;
+    }
+
+    private SuggestedVersion suggest(BranchSearchResult branchSearch, NamespaceTags tags, List<String> versions) {
+        GitVersion.Options gitVersionOptions = VersionNumberSuggester.createGitVersionOptions(options);
+        gitVersionOptions.setVersionPrefix(tags.getPrefix());
+        GitVersion.Version versionFromGit = new GitVersion(repository, gitVersionOptions)
+            .determineVersion(branchSearch, tags.getTagsOnCommit());
+
+        if (!inference.infersReleaseVersion(versionFromGit, infersReleaseVersions(branchSearch))) {
+            return new SuggestedVersion(versionFromGit.getVersion(), versionFromGit);
+        }
+        return inference.suggest(versionFromGit, ReleaseTracks.of(options.getVersionScheme(), versions),
+            options.getVersionHint(), originatingBranchName, Optional::empty, UnaryOperator.identity());
+    }
+
+    private static List<String> getVersions(NamespaceTags tags, Optional<List<String>> reachableTags) {
+        if (!reachableTags.isPresent()) {
+            return tags.getVersions();
+        }
+        String prefix = tags.getPrefix();
+        return reachableTags.get().stream()
+            .filter(tagName -> tagName.startsWith(prefix))
+            .map(tagName -> tagName.substring(prefix.length()))
+            .collect(Collectors.toList());
+    }
+
+    private boolean infersReleaseVersions(BranchSearchResult branchSearch) {
+        return !branchSearch.isInconclusive()
+            && branchSearch.getBranchName().filter(inference.getRules()::infersReleaseVersions).isPresent();
+    }
+
+    /**
+     * Tags the inferred versions, each with its prefix, in one atomic ref update.
+     */
+    private static Map<String, SuggestedVersion> createTags(GitRepo repository, SuggesterOptions options,
+        Map<String, SuggestedVersion> versions) {
+
+        ObjectId commit = repository.resolve(options.getRevision());
+        Map<String, ObjectId> tags = new LinkedHashMap<>();
+        versions.forEach((prefix, version) -> {
+            if (version.isInferred()) {
+                tags.put(prefix + version.getVersion(), commit);
+            }
+        });
+        Map<String, ObjectId> created = repository.createTags(tags);
+        Map<String, SuggestedVersion> tagged = new LinkedHashMap<>();
+        versions.forEach((prefix, version) -> {
+            String tagName = prefix + version.getVersion();
+            tagged.put(prefix, created.containsKey(tagName) ? version.withCreatedTag(tagName) : version);
+        });
+        return tagged;
+    }
+}
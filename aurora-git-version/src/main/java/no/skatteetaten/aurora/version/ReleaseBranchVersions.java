@@ -0,0 +1,130 @@
+package no.skatteetaten.aurora.version;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.UnaryOperator;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.revwalk.RevCommit;
+
+import no.skatteetaten.aurora.version.git.BranchSearchResult;
+import no.skatteetaten.aurora.version.git.GitLogParser;
+import no.skatteetaten.aurora.version.git.GitRepo;
+import no.skatteetaten.aurora.version.git.GitVersion;
+import no.skatteetaten.aurora.version.suggest.ReleaseTracks;
+import no.skatteetaten.aurora.version.utils.BranchMatcher;
+
+/**
+ * Suggests the next release version of every release branch, like <code>release/1.2</code> and
+ * <code>release/1.3</code>, without checking out each of them. The version hint of a branch is taken from its name,
+ * and the release tracks are built from the version tags once and shared by all the branches.
+ * <p>
+ * The version of each branch is suggested for the commit at its tip, like {@link VersionNumberSuggester} would on a
+ * checkout of the branch: the version from a tag on the tip, or the next version in the release track of the hint.
+ * The versions suggested for the branches are not added to the release tracks, so two branches with the same hint
+ * get the same version. Distance versions and segments from conventional commits are not given, since they need a
+ * walk of the history of every branch, and all version tags are used, also with
+ * <code>onlyUseTagsReachableFromHead</code>. The version tags of <code>federatedRepoPaths</code> are part of the
+ * release tracks.
+ */
+public final class ReleaseBranchVersions {
+
+    /**
+     * The version hint at the end of a branch name, like <code>1.2</code> in <code>release/1.2</code>,
+     * <code>release/v1.2</code> or <code>release/1.2.x</code>.
+     */
+    private static final Pattern VERSION_HINT_IN_BRANCH_NAME = Pattern.compile("v?(\\d+(?:\\.\\d+)*)(?:\\.x)?");
+
+    private final GitRepo repository;
+
+    private final SuggesterOptions options;
+
+    private final ReleaseVersionInference inference;
+
+    private ReleaseBranchVersions(GitRepo repository, SuggesterOptions options) {
+        this.repository = repository;
+        this.options = options;
+        this.inference = new ReleaseVersionInference(options);
+    }
+
+    /**
+     * The suggested version of each branch matching one of the patterns, keyed by branch name, in the order of the
+     * branch names. The patterns may be globs like <code>release/*</code>, see {@link BranchMatcher}.
+     */
+    public static Map<String, SuggestedVersion> suggest(SuggesterOptions options, List<String> branchPatterns) {
+        try (GitRepo repository = VersionNumberSuggester.openRepository(options)) {
+            return suggest(repository, options, branchPatterns);
+        }
+    }
+
+    /**
+     * Same as {@link #suggest(SuggesterOptions, List)}, but on an already opened repository.
+     */
+    public static Map<String, SuggestedVersion> suggest(GitRepo repository, SuggesterOptions options,
+        List<String> branchPatterns) {
+
+        GitRepo gitRepo = VersionNumberSuggester.withKnownTags(repository, options);
+        return new ReleaseBranchVersions(gitRepo, options).suggest(branchPatterns);
+    }
+
+    /**
+     * The version hint given by the last part of the branch name, or <code>versionHint</code> from the options if the
+     * branch name does not end with a version.
+     */
+    static String findVersionHint(String branchName, String defaultVersionHint) {
+        String lastPart = branchName.substring(branchName.lastIndexOf('/') + 1);
+        Matcher matcher = VERSION_HINT_IN_BRANCH_NAME.matcher(lastPart);
+        return matcher.matches() ? matcher.group(1) : defaultVersionHint;
+    }
+
+    private Map<String, SuggestedVersion> suggest(List<String> branchPatterns) {
+        BranchMatcher matcher = BranchMatcher.compile(branchPatterns);
+        Map<String, ObjectId> branches = new LinkedHashMap<>();
+        repository.getBranchHeads().forEach((branchName, commit) -> {
+            if (matcher.matches(branchName)) {
+                branches.put(branchName, commit);
+            }
+        });
+
+        // The tips are read in one batch, which the native backend pipelines
+        List<RevCommit> tips = repository.getLogEntriesForCommits(new ArrayList<>(branches.values()));
+        ReleaseTracks releaseTracks = FederatedReleaseTracks.of(
+            repository.getAllVersionsFromTags(options.getVersionPrefix()), options);
+
+        // Tags are versions on all the matched branches, since they are release branches
+        GitVersion.Options gitVersionOptions = VersionNumberSuggester.createGitVersionOptions(options);
+        gitVersionOptions.setTryDeterminingCurrentVersionFromTagName(true);
+        gitVersionOptions.setBranchesToUseTagsAsVersionsFor(branchPatterns);
+        GitVersion gitVersion = new GitVersion(repository, gitVersionOptions);
+        // The tags are grouped by commit once, rather than going through all of them for every branch
+        Map<ObjectId, List<String>> versionTagsByCommit = repository.getVersionTagsByCommit(options.getVersionPrefix());
+
+        Map<String, SuggestedVersion> versions = new LinkedHashMap<>();
+        int index = 0;
+        for (String branchName : branches.keySet()) {
+            RevCommit tip = tips.get(index++);
+            List<String> versionTags = versionTagsByCommit.getOrDefault(tip, Collections.emptyList());
+            versions.put(branchName, suggest(gitVersion, releaseTracks, branchName, tip, versionTags));
+        }
+        return versions;
+    }
+
+    private SuggestedVersion suggest(GitVersion gitVersion, ReleaseTracks releaseTracks, String branchName,
+        RevCommit tip, List<String> versionTags) {
+
+        GitVersion.Version versionFromGit = gitVersion.determineVersion(BranchSearchResult.supplied(branchName),
+            versionTags);
+        // All the matched branches are release branches
+        if (!inference.infersReleaseVersion(versionFromGit, true)) {
+            return new SuggestedVersion(versionFromGit.getVersion(), versionFromGit);
+        }
+        return inference.suggest(versionFromGit, releaseTracks, findVersionHint(branchName, options.getVersionHint()),
+            GitLogParser.findOriginatingBranchName(Optional.of(tip)), Optional::empty, UnaryOperator.identity());
+    }
+}
@@ -0,0 +1,87 @@
+package no.skatteetaten.aurora.version;
+
+import java.util.Optional;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+import no.skatteetaten.aurora.version.git.GitVersion;
+import no.skatteetaten.aurora.version.suggest.ReleaseTracks;
+import no.skatteetaten.aurora.version.suggest.ReleaseVersionEvaluator;
+import no.skatteetaten.aurora.version.suggest.VersionNumber;
+import no.skatteetaten.aurora.version.suggest.VersionSegment;
+
+/**
+ * Turns the version determined from git for a commit into the suggested version, the way
+ * {@link VersionNumberSuggester} does, for it and for the suggesters of many branches, prefixes or commits at once. A
+ * version from a tag is kept, unless <code>forceSegmentIncrementForExistingTag</code> is set. On a branch to infer
+ * release versions for, the next version in the release track of the version hint is suggested, incrementing the
+ * segment found from the version hint, the originating branch and the Conventional Commits.
+ */
+final class ReleaseVersionInference {
+
+    private final SuggesterOptions options;
+
+    private final SuggesterRules rules;
+
+    ReleaseVersionInference(SuggesterOptions options) {
+        this.options = options;
+        this.rules = new SuggesterRules(options);
+    }
+
+    SuggesterRules getRules() {
+        return rules;
+    }
+
+    /**
+     * Whether a release version is inferred instead of keeping the version from git.
+     *
+     * @param versionFromGit        the version determined from git
+     * @param infersReleaseVersions whether the commit is on a branch to infer release versions for
+     * @return whether to call {@link #suggest}
+     */
+    boolean infersReleaseVersion(GitVersion.Version versionFromGit, boolean infersReleaseVersions) {
+        return versionFromGit.isFromTag()
+            ? options.getForceSegmentIncrementForExistingTag().isPresent()
+            : infersReleaseVersions;
+    }
+
+    /**
+     * The inferred release version, for a version from git that {@link #infersReleaseVersion} is true for.
+     *
+     * @param versionFromGit            the version determined from git
+     * @param releaseTracks             the release tracks to suggest the next version in
+     * @param versionHint               the version hint of the release track
+     * @param originatingBranchName     the branch the commit was merged from, if known
+     * @param conventionalCommitSegment the segment of the Conventional Commits, only asked for when the segment is not
+     *                                  forced
+     * @param releaseVersion            applied to the next version in the release track before the metadata is
+     *                                  appended, like adding the distance to the nearest version tag
+     * @return the suggested version
+     */
+    SuggestedVersion suggest(GitVersion.Version versionFromGit, ReleaseTracks releaseTracks, String versionHint,
+        Optional<String> originatingBranchName, Supplier<Optional<VersionSegment>> conventionalCommitSegment,
+        UnaryOperator<String> releaseVersion) {
+
+        VersionSegment segment = versionFromGit.isFromTag()
+            ? options.getForceSegmentIncrementForExistingTag().get()
+            : ReleaseVersionEvaluator.findVersionSegmentToIncrement(
+                versionHint,
+                originatingBranchName,
+                rules.getForceMinorIncrementPrefixes(),
+                conventionalCommitSegment.get());
+
+        Optional<VersionNumber> latestVersionInReleaseTrack = releaseTracks.findLatest(segment, versionHint);
+        String inferredVersion = releaseTracks.suggestNextVersion(segment, versionHint);
+        String version = appendMetadata(releaseVersion.apply(inferredVersion), options.getMetadata());
+        return new SuggestedVersion(version, versionFromGit, originatingBranchName.orElse(null), segment,
+            latestVersionInReleaseTrack.orElse(null));
+    }
+
+    private static String appendMetadata(String version, String metadata) {
+        if (metadata == null) {
+            return version;
+        }
+        // A distance version already has build metadata, and there can only be one '+' in a version
+        return version + (version.contains("+") ? "." : "+") + metadata;
+    }
+}
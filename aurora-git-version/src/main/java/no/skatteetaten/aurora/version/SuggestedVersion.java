@@ -0,0 +1,112 @@
+package no.skatteetaten.aurora.version;
+
+import java.util.Optional;
+
+import no.skatteetaten.aurora.version.git.BranchSearchResult;
+import no.skatteetaten.aurora.version.git.GitVersion;
+import no.skatteetaten.aurora.version.suggest.VersionNumber;
+import no.skatteetaten.aurora.version.suggest.VersionSegment;
+
+/**
+ * The result of {@link VersionNumberSuggester#suggest(SuggesterOptions)}; the suggested version together with the
+ * facts it was derived from.
+ */
+public final class SuggestedVersion {
+
+    private final String version;
+
+    private final GitVersion.Version versionFromGit;
+
+    private final String originatingBranchName;
+
+    private final VersionSegment versionSegmentToIncrement;
+
+    private final VersionNumber latestVersionInReleaseTrack;
+
+    private final String createdTag;
+
+    SuggestedVersion(String version, GitVersion.Version versionFromGit) {
+        this(version, versionFromGit, null, null, null);
+    }
+
+    SuggestedVersion(String version, GitVersion.Version versionFromGit, String originatingBranchName,
+        VersionSegment versionSegmentToIncrement, VersionNumber latestVersionInReleaseTrack) {
+        this(version, versionFromGit, originatingBranchName, versionSegmentToIncrement, latestVersionInReleaseTrack,
+            null);
+    }
+
+    private SuggestedVersion(String version, GitVersion.Version versionFromGit, String originatingBranchName,
+        VersionSegment versionSegmentToIncrement, VersionNumber latestVersionInReleaseTrack, String createdTag) {
+        this.version = version;
+        this.versionFromGit = versionFromGit;
+        this.originatingBranchName = originatingBranchName;
+        this.versionSegmentToIncrement = versionSegmentToIncrement;
+        this.latestVersionInReleaseTrack = latestVersionInReleaseTrack;
+        this.createdTag = createdTag;
+    }
+
+    SuggestedVersion withCreatedTag(String tagName) {
+        return new SuggestedVersion(version, versionFromGit, originatingBranchName, versionSegmentToIncrement,
+            latestVersionInReleaseTrack, tagName);
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    /**
+     * The version determined from the tag on HEAD or the current branch, before any release version was inferred.
+     */
+    public GitVersion.Version getVersionFromGit() {
+        return versionFromGit;
+    }
+
+    public Optional<String> getBranchName() {
+        return getBranchSearchResult().flatMap(BranchSearchResult::getBranchName);
+    }
+
+    public Optional<BranchSearchResult> getBranchSearchResult() {
+        return versionFromGit.getBranchSearchResult();
+    }
+
+    public Optional<String> getVersionTagOnHead() {
+        return versionFromGit.getVersionTagOnHead();
+    }
+
+    /**
+     * Whether the version is an inferred release version rather than the version determined from git.
+     */
+    public boolean isInferred() {
+        return versionSegmentToIncrement != null;
+    }
+
+    /**
+     * The name of the branch merged into HEAD, as found in the commit message, if a release version was inferred.
+     */
+    public Optional<String> getOriginatingBranchName() {
+        return Optional.ofNullable(originatingBranchName);
+    }
+
+    public Optional<VersionSegment> getVersionSegmentToIncrement() {
+        return Optional.ofNullable(versionSegmentToIncrement);
+    }
+
+    /**
+     * The highest existing version in the release track the inferred version was incremented from, if any.
+     */
+    public Optional<VersionNumber> getLatestVersionInReleaseTrack() {
+        return Optional.ofNullable(latestVersionInReleaseTrack);
+    }
+
+    /**
+     * The tag created for the version when <code>createTag</code> was requested, unless it already existed.
+     */
+    public Optional<String> getCreatedTag() {
+        return Optional.ofNullable(createdTag);
+    }
+
+    @Override
+    public String toString() {
+        return version;
+    }
+}
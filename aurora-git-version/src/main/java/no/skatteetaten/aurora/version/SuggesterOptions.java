@@ -6,6 +6,10 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 
+import no.skatteetaten.aurora.version.git.GitBackend;
+import no.skatteetaten.aurora.version.git.KnownTags;
+import no.skatteetaten.aurora.version.git.StorageTuning;
+import no.skatteetaten.aurora.version.suggest.VersionScheme;
 import no.skatteetaten.aurora.version.suggest.VersionSegment;
 
 /**
@@ -35,7 +39,8 @@ public class SuggesterOptions {
 
     /**
      * A list of branch names that should have versions inferred based on earlier versions and the
-     * <code>versionHint</code> when the version cannot be determined from an existing tag.
+     * <code>versionHint</code> when the version cannot be determined from an existing tag. Entries may be glob
+     * patterns like <code>release/*</code>.
      */
     private List<String> branchesToInferReleaseVersionsFor = emptyList();
 
@@ -47,11 +52,20 @@ public class SuggesterOptions {
 
     /**
      * A list of branch names that should use the tags of the current commit to determine version. Branches not in this
-     * list will always yield snapshot versions. An empty list will use all branches. Use
+     * list will always yield snapshot versions. Entries may be glob patterns like <code>release/*</code>. An empty list
+     * will use all branches. Use
      * <code>tryDeterminingCurrentVersionFromTagName</code> to disable this feature.
      */
     private List<String> branchesToUseTagsAsVersionsFor = emptyList();
 
+    /**
+     * A list of branch names that should get a pre-release version with the distance to the nearest version tag,
+     * like <code>1.4.2-rc.37+g1a2b3c4</code>, when the current commit is not tagged. On branches that also infer
+     * release versions, the inferred version is used as the version before the distance. Entries may be glob patterns
+     * like <code>release/*</code>.
+     */
+    private List<String> branchesToUseDistanceVersionsFor = emptyList();
+
     /**
      * Version hint indicating current release track.
      * Can contain non numeric information, as in 1.0-SNAPSHOT normally used by Maven.
@@ -68,7 +82,7 @@ public class SuggesterOptions {
     private String gitRepoPath;
 
     /**
-     * List of branch prefixes which shall force increment of MINOR segment in version number
+     * List of branch prefixes which shall force increment of MINOR segment in version number. Matching ignores case.
      */
     private List<String> forceMinorIncrementForBranchPrefixes = Collections.emptyList();
     /**
@@ -84,6 +98,97 @@ public class SuggesterOptions {
      */
     private String metadata;
 
+    /**
+     * The maximum number of commits to walk when searching for the branch of a detached HEAD. When the budget is
+     * spent the search gives up and the fallback version is used. <code>0</code> means no limit.
+     */
+    private int branchSearchMaxCommits = 0;
+
+    /**
+     * The maximum time in milliseconds to spend searching for the branch of a detached HEAD. When the budget is
+     * spent the search gives up and the fallback version is used. <code>0</code> means no limit.
+     */
+    private long branchSearchTimeoutMillis = 0;
+
+    /**
+     * If non-null, these tags are used instead of the tags in the local repository, both for the tag on HEAD and for
+     * inferring release versions. Lets a shallow clone suggest versions without fetching the tag history.
+     */
+    private KnownTags knownTags;
+
+    /**
+     * Whether the segment to increment should also be inferred from the Conventional Commits
+     * (https://www.conventionalcommits.org/) since the latest version tag; <code>feat</code> increments MINOR and a
+     * breaking change increments MAJOR, as far as the <code>versionHint</code> allows. With this option the
+     * <code>versionHint</code> may be left empty, in which case no segment is locked.
+     */
+    private boolean inferSegmentFromConventionalCommits = false;
+
+    /**
+     * Whether only the version tags reachable from HEAD should be considered when inferring release versions. With
+     * parallel maintenance lines, tags made on other lines are then not taken into account.
+     */
+    private boolean onlyUseTagsReachableFromHead = false;
+
+    /**
+     * The commit to suggest a version for, as a revision like a branch, a tag or a commit id. Anything but
+     * <code>HEAD</code> needs no checkout, so versions can be suggested directly in a bare mirror. The options that
+     * mention HEAD then apply to this commit.
+     */
+    private String revision = "HEAD";
+
+    /**
+     * The branch the commit was built on. When not set, the branch is the checked out branch for <code>HEAD</code>,
+     * the branch itself for a revision naming a branch, and otherwise searched for.
+     */
+    private String branchName;
+
+    /**
+     * Whether to tag the commit with an inferred release version, prefixed with <code>versionPrefix</code>, in the
+     * same repository session that suggested it. See {@link no.skatteetaten.aurora.version.git.GitRepo#createTags}.
+     */
+    private boolean createTag = false;
+
+    /**
+     * The JGit storage settings to install before opening the repository, or <code>null</code> to leave them as they
+     * are. They replace the window cache configuration of the whole JVM, see {@link StorageTuning}.
+     */
+    private StorageTuning storageTuning;
+
+    /**
+     * How the repository reads commits and searches branches. See {@link GitBackend}.
+     */
+    private GitBackend backend = GitBackend.JGIT;
+
+    /**
+     * Whether the version tag on a commit with several is the annotated tag with the latest tagger date, rather than
+     * the tag with the highest version.
+     */
+    private boolean orderTagsByTaggerDate = false;
+
+    /**
+     * The paths of other local repositories that share one version line with this repository. Their version tags,
+     * with the same prefix, are merged with the version tags of this repository when inferring release versions, so
+     * the highest version across all of them decides the next version. The repositories are scanned in parallel.
+     * <code>onlyUseTagsReachableFromHead</code> only applies to the tags of this repository.
+     */
+    private List<String> federatedRepoPaths = emptyList();
+
+    /**
+     * How release versions are written, ordered and incremented, when scanning the version tags and inferring release
+     * versions. See {@link VersionScheme}.
+     */
+    private VersionScheme versionScheme = VersionScheme.SEMANTIC;
+
+    /**
+     * A notes ref, like <code>refs/notes/versions</code>, to record each suggested version in as a git note on its
+     * commit, together with a fingerprint of the inputs it was suggested from. Later runs, also in other clones that
+     * fetched the notes ref, read the version from the note instead of scanning the tags and searching for the branch,
+     * as long as the inputs are the same. <code>null</code>, the default, records nothing. Not used together with
+     * <code>federatedRepoPaths</code>. See {@link VersionNotes}.
+     */
+    private String versionNotesRef;
+
     public List<String> getBranchesToInferReleaseVersionsFor() {
         return branchesToInferReleaseVersionsFor;
     }
@@ -148,6 +253,14 @@ public class SuggesterOptions {
         this.branchesToUseTagsAsVersionsFor = branchesToUseTagsAsVersionsFor;
     }
 
+    public List<String> getBranchesToUseDistanceVersionsFor() {
+        return branchesToUseDistanceVersionsFor;
+    }
+
+    public void setBranchesToUseDistanceVersionsFor(List<String> branchesToUseDistanceVersionsFor) {
+        this.branchesToUseDistanceVersionsFor = branchesToUseDistanceVersionsFor;
+    }
+
     public List<String> getForceMinorIncrementForBranchPrefixes() {
         return forceMinorIncrementForBranchPrefixes;
     }
@@ -171,4 +284,116 @@ public class SuggesterOptions {
     public void setMetadata(String metadata) {
         this.metadata = metadata;
     }
+
+    public int getBranchSearchMaxCommits() {
+        return branchSearchMaxCommits;
+    }
+
+    public void setBranchSearchMaxCommits(int branchSearchMaxCommits) {
+        this.branchSearchMaxCommits = branchSearchMaxCommits;
+    }
+
+    public long getBranchSearchTimeoutMillis() {
+        return branchSearchTimeoutMillis;
+    }
+
+    public void setBranchSearchTimeoutMillis(long branchSearchTimeoutMillis) {
+        this.branchSearchTimeoutMillis = branchSearchTimeoutMillis;
+    }
+
+    public KnownTags getKnownTags() {
+        return knownTags;
+    }
+
+    public void setKnownTags(KnownTags knownTags) {
+        this.knownTags = knownTags;
+    }
+
+    public boolean isInferSegmentFromConventionalCommits() {
+        return inferSegmentFromConventionalCommits;
+    }
+
+    public void setInferSegmentFromConventionalCommits(boolean inferSegmentFromConventionalCommits) {
+        this.inferSegmentFromConventionalCommits = inferSegmentFromConventionalCommits;
+    }
+
+    public boolean isOnlyUseTagsReachableFromHead() {
+        return onlyUseTagsReachableFromHead;
+    }
+
+    public void setOnlyUseTagsReachableFromHead(boolean onlyUseTagsReachableFromHead) {
+        this.onlyUseTagsReachableFromHead = onlyUseTagsReachableFromHead;
+    }
+
+    public String getRevision() {
+        return revision;
+    }
+
+    public void setRevision(String revision) {
+        this.revision = revision;
+    }
+
+    public String getBranchName() {
+        return branchName;
+    }
+
+    public void setBranchName(String branchName) {
+        this.branchName = branchName;
+    }
+
+    public boolean isCreateTag() {
+        return createTag;
+    }
+
+    public void setCreateTag(boolean createTag) {
+        this.createTag = createTag;
+    }
+
+    public StorageTuning getStorageTuning() {
+        return storageTuning;
+    }
+
+    public void setStorageTuning(StorageTuning storageTuning) {
+        this.storageTuning = storageTuning;
+    }
+
+    public GitBackend getBackend() {
+        return backend;
+    }
+
+    public void setBackend(GitBackend backend) {
+        this.backend = backend;
+    }
+
+    public boolean isOrderTagsByTaggerDate() {
+        return orderTagsByTaggerDate;
+    }
+
+    public void setOrderTagsByTaggerDate(boolean orderTagsByTaggerDate) {
+        this.orderTagsByTaggerDate = orderTagsByTaggerDate;
+    }
+
+    public List<String> getFederatedRepoPaths() {
+        return federatedRepoPaths;
+    }
+
+    public void setFederatedRepoPaths(List<String> federatedRepoPaths) {
+        this.federatedRepoPaths = federatedRepoPaths;
+    }
+
+    public VersionScheme getVersionScheme() {
+        return versionScheme;
+    }
+
+    public void setVersionScheme(VersionScheme versionScheme) {
+        this.versionScheme = versionScheme;
+    }
+
+    public String getVersionNotesRef() {
+        return versionNotesRef;
+    }
+
+    public void setVersionNotesRef(String versionNotesRef) {
+        this.versionNotesRef = versionNotesRef;
+    }
 }
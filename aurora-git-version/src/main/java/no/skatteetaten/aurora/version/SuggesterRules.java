@@ -0,0 +1,35 @@
+package no.skatteetaten.aurora.version;
+
+import no.skatteetaten.aurora.version.utils.BranchMatcher;
+import no.skatteetaten.aurora.version.utils.PrefixTrie;
+
+/**
+ * The branch lists of {@link SuggesterOptions} that are evaluated outside of
+ * {@link no.skatteetaten.aurora.version.git.GitVersion}, compiled once per suggestion or backfill.
+ */
+final class SuggesterRules {
+
+    private final BranchMatcher inferReleaseVersions;
+
+    private final BranchMatcher distanceVersions;
+
+    private final PrefixTrie forceMinorIncrementPrefixes;
+
+    SuggesterRules(SuggesterOptions options) {
+        this.inferReleaseVersions = BranchMatcher.compile(options.getBranchesToInferReleaseVersionsFor());
+        this.distanceVersions = BranchMatcher.compile(options.getBranchesToUseDistanceVersionsFor());
+        this.forceMinorIncrementPrefixes = PrefixTrie.compile(options.getForceMinorIncrementForBranchPrefixes());
+    }
+
+    boolean infersReleaseVersions(String branchName) {
+        return inferReleaseVersions.matches(branchName);
+    }
+
+    boolean usesDistanceVersions(String branchName) {
+        return distanceVersions.matches(branchName);
+    }
+
+    PrefixTrie getForceMinorIncrementPrefixes() {
+        return forceMinorIncrementPrefixes;
+    }
+}
@@ -0,0 +1,121 @@
+package no.skatteetaten.aurora.version;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.revwalk.RevCommit;
+
+import no.skatteetaten.aurora.version.git.GitRepo;
+import no.skatteetaten.aurora.version.git.GitVersion;
+import no.skatteetaten.aurora.version.suggest.ReleaseTracks;
+
+/**
+ * Computes the version of every commit in a range in one pass, for instance to backfill the versions of historical
+ * builds without checking out each commit. The commits are walked oldest first in topological order, and the version
+ * tags are added to a set of {@link ReleaseTracks} as the walk passes them. Every commit then gets the version a
+ * build on the given branch would have been given, with the tags made up to that point:
+ * <ul>
+ * <li>a commit with a version tag gets the version from the tag, as with {@link GitVersion}</li>
+ * <li>other commits get the next release version if the branch is one to infer release versions for, and otherwise
+ * the snapshot version of the branch</li>
+ * </ul>
+ * Version tags on commits reachable from the start of the range count as released before the range. Inferring the
+ * segment from Conventional Commits, and distance versions, are not supported when backfilling.
+ */
+public final class VersionBackfill {
+
+    private final GitRepo repository;
+
+    private final SuggesterOptions options;
+
+    private final ReleaseVersionInference inference;
+
+    private final String branchName;
+
+    private final GitVersion gitVersion;
+
+    private final ReleaseTracks releaseTracks;
+
+    private VersionBackfill(GitRepo repository, SuggesterOptions options, String branchName) {
+        this.repository = repository;
+        this.options = options;
+        this.releaseTracks = new ReleaseTracks(options.getVersionScheme());
+        this.inference = new ReleaseVersionInference(options);
+        this.branchName = branchName;
+        this.gitVersion = new GitVersion(repository, VersionNumberSuggester.createGitVersionOptions(options));
+    }
+
+    /**
+     * Gives the versions of the commits reachable from <code>toRevision</code> but not from <code>fromRevision</code>
+     * to the consumer, oldest first, as the range is walked. <code>fromRevision</code> may be <code>null</code> to
+     * include the whole history, and <code>branchName</code> may be <code>null</code> to use the current branch.
+     */
+    public static void backfill(SuggesterOptions options, String branchName, String fromRevision, String toRevision,
+        Consumer<BackfilledVersion> consumer) {
+
+        try (GitRepo repository = VersionNumberSuggester.openRepository(options)) {
+            backfill(repository, options, branchName, fromRevision, toRevision, consumer);
+        }
+    }
+
+    /**
+     * Same as {@link #backfill(SuggesterOptions, String, String, String, Consumer)}, but on an already opened
+     * repository.
+     */
+    public static void backfill(GitRepo repository, SuggesterOptions options, String branchName, String fromRevision,
+        String toRevision, Consumer<BackfilledVersion> consumer) {
+
+        GitRepo gitRepo = VersionNumberSuggester.withKnownTags(repository, options);
+        String branch = branchName != null
+            ? branchName
+            : gitRepo.getBranchName(options.isFallbackToBranchNameEnv(), options.getFallbackBranchNameEnvName())
+                .orElseThrow(() -> new IllegalStateException("Unable to determine name of current branch"));
+        new VersionBackfill(gitRepo, options, branch).run(fromRevision, toRevision, consumer);
+    }
+
+    private void run(String fromRevision, String toRevision, Consumer<BackfilledVersion> consumer) {
+        ObjectId from = fromRevision != null ? resolve(fromRevision) : null;
+        ObjectId to = resolve(toRevision);
+        if (from != null) {
+            repository.getAllVersionsFromTagsReachableFrom(from, options.getVersionPrefix())
+                .forEach(releaseTracks::add);
+        }
+        repository.forEachCommitOldestFirst(from, to, options.getVersionPrefix(), (commit, versionTags) -> {
+            consumer.accept(getVersion(commit, versionTags));
+            return true;
+        });
+    }
+
+    private BackfilledVersion getVersion(RevCommit commit, List<String> versionTags) {
+        // The tags on the commit are already released when a build of it suggests a version, as with the suggester
+        versionTags.forEach(tag -> releaseTracks.add(tag.substring(options.getVersionPrefix().length())));
+
+        GitVersion.Version versionFromGit = gitVersion.determineVersion(branchName, versionTags);
+        if (!inference.infersReleaseVersion(versionFromGit, inference.getRules().infersReleaseVersions(branchName))) {
+            return new BackfilledVersion(commit.name(), versionFromGit.getVersion(), versionFromGit.getSource(), false);
+        }
+        SuggestedVersion version = inference.suggest(versionFromGit, releaseTracks, options.getVersionHint(),
+            findOriginatingBranchName(commit), Optional::empty, UnaryOperator.identity());
+        return new BackfilledVersion(commit.name(), version.getVersion(), versionFromGit.getSource(), true);
+    }
+
+    /**
+     * The originating branch only matters with prefixes to match, so only then is the message read.
+     */
+    private Optional<String> findOriginatingBranchName(RevCommit commit) {
+        return inference.getRules().getForceMinorIncrementPrefixes().isEmpty()
+            ? Optional.empty()
+            : repository.findOriginatingBranchName(commit);
+    }
+
+    private ObjectId resolve(String revision) {
+        ObjectId commit = repository.resolve(revision);
+        if (commit == null) {
+            throw new IllegalArgumentException("Unknown revision " + revision);
+        }
+        return commit;
+    }
+}
@@ -0,0 +1,56 @@
+package no.skatteetaten.aurora.version;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.jgit.lib.Constants;
+
+import no.skatteetaten.aurora.version.git.GitVersion;
+import no.skatteetaten.aurora.version.git.InputFingerprint;
+
+/**
+ * A fingerprint of everything {@link VersionNumberSuggester#suggest(SuggesterOptions)} depends on, for build caches
+ * that need to know whether the version can have changed. It is computed from the ref files and the options only, see
+ * {@link InputFingerprint}, so it takes a fraction of the time of suggesting the version. The same fingerprint means
+ * the same suggested version. Submodules are not part of the fingerprint, so it does not cover
+ * {@link VersionManifest}.
+ */
+public final class VersionFingerprint {
+
+    private VersionFingerprint() {
+    }
+
+    public static String compute(SuggesterOptions options) {
+        return compute(options, Collections.emptyList());
+    }
+
+    /**
+     * Same as {@link #compute(SuggesterOptions)}, also covering the tags with the given prefixes, for the versions of
+     * {@link NamespaceVersions}.
+     */
+    public static String compute(SuggesterOptions options, List<String> tagPrefixes) {
+        InputFingerprint fingerprint = InputFingerprint.of(new File(options.getGitRepoPath(), "."))
+            .addOptions(VersionNumberSuggester.createGitVersionOptions(options))
+            .addKnownTags(options.getKnownTags());
+        tagPrefixes.forEach(prefix -> fingerprint.addRefs(Constants.R_TAGS + prefix));
+        options.getFederatedRepoPaths().forEach(path -> fingerprint.add("federatedRepo." + path,
+            InputFingerprint.of(new File(path, ".")).addRefs(Constants.R_TAGS + options.getVersionPrefix()).toHex()));
+        return addOptionValues(fingerprint.add("tagPrefixes", tagPrefixes), options)
+            .toHex();
+    }
+
+    /**
+     * Adds the values of the options of the suggester that are not options of {@link GitVersion.Options}.
+     */
+    static InputFingerprint addOptionValues(InputFingerprint fingerprint, SuggesterOptions options) {
+        return fingerprint
+            .add("branchesToInferReleaseVersionsFor", options.getBranchesToInferReleaseVersionsFor())
+            .add("versionHint", options.getVersionHint())
+            .add("forceMinorIncrementForBranchPrefixes", options.getForceMinorIncrementForBranchPrefixes())
+            .add("forceSegmentIncrementForExistingTag", options.getForceSegmentIncrementForExistingTag())
+            .add("metadata", options.getMetadata())
+            .add("inferSegmentFromConventionalCommits", options.isInferSegmentFromConventionalCommits())
+            .add("onlyUseTagsReachableFromHead", options.isOnlyUseTagsReachableFromHead());
+    }
+}
@@ -0,0 +1,107 @@
+package no.skatteetaten.aurora.version;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.eclipse.jgit.lib.Constants;
+
+import no.skatteetaten.aurora.version.git.GitRepo;
+import no.skatteetaten.aurora.version.git.GitRepoPool;
+
+/**
+ * The suggested versions of a superproject and all its submodules, recursively, keyed by the path of each submodule
+ * relative to the superproject. The superproject itself has the path <code>.</code>. Submodules that are not
+ * checked out are left out.
+ * <p>
+ * The submodules are found from the commit at HEAD of each repository, and their versions are then suggested in
+ * parallel, with the same options as the superproject. Each repository is opened once, even if several working trees
+ * share it.
+ */
+public final class VersionManifest {
+
+    public static final String SUPERPROJECT_PATH = ".";
+
+    private final Map<String, SuggestedVersion> versions;
+
+    private VersionManifest(Map<String, SuggestedVersion> versions) {
+        this.versions = Collections.unmodifiableMap(versions);
+    }
+
+    public static VersionManifest suggest(SuggesterOptions options) {
+        return suggest(options, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Same as {@link #suggest(SuggesterOptions)}, suggesting versions for at most <code>threads</code> repositories
+     * at a time.
+     */
+    public static VersionManifest suggest(SuggesterOptions options, int threads) {
+        VersionNumberSuggester.installStorageTuning(options);
+        try (GitRepoPool pool = new GitRepoPool(options.getBackend())) {
+            Map<String, GitRepo> repositories = new LinkedHashMap<>();
+            findRepositories(pool, SUPERPROJECT_PATH, pool.open(new File(options.getGitRepoPath())), repositories);
+
+            ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads,
+                repositories.size())));
+            try {
+                Map<String, Future<SuggestedVersion>> futures = new LinkedHashMap<>();
+                repositories.forEach((path, repository) ->
+                    futures.put(path, executor.submit(() -> VersionNumberSuggester.suggest(repository, options))));
+
+                Map<String, SuggestedVersion> versions = new LinkedHashMap<>();
+                for (Map.Entry<String, Future<SuggestedVersion>> future : futures.entrySet()) {
+                    versions.put(future.getKey(), getResult(future.getKey(), future.getValue()));
+                }
+                return new VersionManifest(versions);
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * The suggested versions in the order the repositories were found; the superproject first, then each submodule
+     * followed by its own submodules.
+     */
+    public Map<String, SuggestedVersion> getVersions() {
+        return versions;
+    }
+
+    private static void findRepositories(GitRepoPool pool, String path, GitRepo repository,
+        Map<String, GitRepo> repositories) {
+
+        repositories.put(path, repository);
+        if (repository.getWorkTree() == null) {
+            // A bare repository has no checked out submodules
+            return;
+        }
+        for (String submodulePath : repository.getSubmodulePaths()) {
+            File submoduleDir = new File(repository.getWorkTree(), submodulePath);
+            if (!new File(submoduleDir, Constants.DOT_GIT).exists()) {
+                continue;
+            }
+            String fullPath = SUPERPROJECT_PATH.equals(path) ? submodulePath : path + "/" + submodulePath;
+            findRepositories(pool, fullPath, pool.open(submoduleDir), repositories);
+        }
+    }
+
+    private static SuggestedVersion getResult(String path, Future<SuggestedVersion> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while suggesting the version of " + path, e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Unable to suggest the version of " + path, e.getCause());
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package no.skatteetaten.aurora.version;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+
+import org.eclipse.jgit.lib.ObjectId;
+
+import no.skatteetaten.aurora.version.git.BranchSearchResult;
+import no.skatteetaten.aurora.version.git.GitRepo;
+import no.skatteetaten.aurora.version.git.GitVersion;
+import no.skatteetaten.aurora.version.git.InputFingerprint;
+import no.skatteetaten.aurora.version.suggest.VersionNumber;
+import no.skatteetaten.aurora.version.suggest.VersionSegment;
+
+/**
+ * Suggested versions recorded as git notes on the commits they were suggested for, under
+ * <code>versionNotesRef</code> of the options, so a later run on the same commit reads the version with one note
+ * lookup instead of scanning the tags and searching for the branch. Notes are pushed and fetched like any other ref,
+ * so a CI clone that fetched the notes ref gets the versions suggested in other clones.
+ * <p>
+ * A note has one <code>key: value</code> line for each fact of the {@link SuggestedVersion}, and an
+ * <code>inputs</code> line with a fingerprint of what the version was suggested from: the commit, its branch, the
+ * version tags and the commits they are on, and the options that change the version. Nothing specific to one clone
+ * is part of it. A note is only used when the fingerprint of the current inputs is the same, so a new version tag,
+ * a moved tag or changed options make the version be suggested and recorded again.
+ * <p>
+ * The branch is taken from the options, from HEAD, from the revision or from the environment when it is known without
+ * searching. Otherwise the branch recorded in the note is used, so a detached HEAD is assumed to still be on the
+ * branch it was found on when the note was written. Versions whose branch is unknown, for instance because the search
+ * ran out of its budget, are not recorded.
+ */
+final class VersionNotes {
+
+    private static final String VERSION = "version";
+    private static final String GIT_VERSION = "gitVersion";
+    private static final String SOURCE = "source";
+    private static final String BRANCH = "branch";
+    private static final String TAG_ON_HEAD = "tagOnHead";
+    private static final String ORIGINATING_BRANCH = "originatingBranch";
+    private static final String SEGMENT = "segment";
+    private static final String LATEST = "latest";
+    private static final String INPUTS = "inputs";
+
+    private static final String SEPARATOR = ": ";
+
+    private VersionNotes() {
+    }
+
+    /**
+     * Whether versions are recorded in notes with the given options.
+     */
+    static boolean isEnabled(SuggesterOptions options) {
+        return options.getVersionNotesRef() != null && options.getFederatedRepoPaths().isEmpty();
+    }
+
+    /**
+     * The version recorded for the revision of the options if its inputs are unchanged, and otherwise the version
+     * from the given suggester, which is then recorded.
+     */
+    static SuggestedVersion suggest(GitRepo repository, SuggesterOptions options,
+        Supplier<SuggestedVersion> suggester) {
+
+        ObjectId commit = repository.resolve(options.getRevision());
+        if (commit == null) {
+            return suggester.get();
+        }
+        Optional<BranchSearchResult> branch = findBranchWithoutSearch(repository, options);
+        Optional<SuggestedVersion> recorded = repository.readNote(options.getVersionNotesRef(), commit)
+            .map(VersionNotes::parse)
+            .flatMap(note -> restore(note, branch.orElseGet(() -> BranchSearchResult.recorded(note.get(BRANCH))),
+                fingerprint(repository, options, commit, branch.flatMap(BranchSearchResult::getBranchName)
+                    .orElse(note.get(BRANCH)))));
+        if (recorded.isPresent()) {
+            return recorded.get();
+        }
+
+        SuggestedVersion suggestedVersion = suggester.get();
+        suggestedVersion.getBranchSearchResult()
+            .filter(result -> !result.isInconclusive())
+            .flatMap(BranchSearchResult::getBranchName)
+            .ifPresent(branchName -> repository.writeNote(options.getVersionNotesRef(), commit,
+                format(suggestedVersion, branchName, fingerprint(repository, options, commit, branchName))));
+        return suggestedVersion;
+    }
+
+    /**
+     * The fingerprint of the inputs a version for the given commit on the given branch is suggested from. The same in
+     * every clone with the same version tags.
+     */
+    static String fingerprint(GitRepo repository, SuggesterOptions options, ObjectId commit, String branchName) {
+        InputFingerprint fingerprint = InputFingerprint.ofValues()
+            .add("commit", commit.name())
+            .add(BRANCH, branchName)
+            .addOptionValues(VersionNumberSuggester.createGitVersionOptions(options));
+        Map<String, String> tags = new TreeMap<>();
+        repository.getVersionTagsByCommit(options.getVersionPrefix()).forEach((taggedCommit, tagNames) ->
+            tagNames.forEach(tagName -> tags.put(tagName, taggedCommit.name())));
+        tags.forEach((tagName, taggedCommit) -> fingerprint.add("tag." + tagName, taggedCommit));
+        return VersionFingerprint.addOptionValues(fingerprint, options).toHex();
+    }
+
+    private static Optional<BranchSearchResult> findBranchWithoutSearch(GitRepo repository, SuggesterOptions options) {
+        if (options.getBranchName() != null) {
+            return Optional.of(BranchSearchResult.supplied(options.getBranchName()));
+        }
+        return repository.findBranchNameWithoutSearch(options.getRevision(), options.isFallbackToBranchNameEnv(),
+            options.getFallbackBranchNameEnvName());
+    }
+
+    /**
+     * The version recorded in the note, or none if the inputs have changed or the note cannot be read, for instance
+     * because it was written by hand or by another version with other keys or values. Such a note is then replaced.
+     */
+    private static Optional<SuggestedVersion> restore(Map<String, String> note, BranchSearchResult branch,
+        String inputs) {
+
+        if (!inputs.equals(note.get(INPUTS))
+            || note.get(VERSION) == null || note.get(GIT_VERSION) == null || note.get(SOURCE) == null) {
+            return Optional.empty();
+        }
+        try {
+            GitVersion.Version versionFromGit = new GitVersion.Version(note.get(GIT_VERSION),
+                GitVersion.VersionSource.valueOf(note.get(SOURCE)))
+                .withGitState(branch, note.get(TAG_ON_HEAD));
+            return Optional.of(new SuggestedVersion(note.get(VERSION), versionFromGit, note.get(ORIGINATING_BRANCH),
+                Optional.ofNullable(note.get(SEGMENT)).map(VersionSegment::valueOf).orElse(null),
+                Optional.ofNullable(note.get(LATEST)).map(VersionNumber::parse).orElse(null)));
+        } catch (IllegalArgumentException e) {
+            // An unknown source or segment, or a latest version that is not a version number
+            return Optional.empty();
+        }
+    }
+
+    static String format(SuggestedVersion suggestedVersion, String branchName, String inputs) {
+        GitVersion.Version versionFromGit = suggestedVersion.getVersionFromGit();
+        StringBuilder note = new StringBuilder();
+        appendLine(note, VERSION, suggestedVersion.getVersion());
+        appendLine(note, GIT_VERSION, versionFromGit.getVersion());
+        appendLine(note, SOURCE, versionFromGit.getSource().name());
+        appendLine(note, BRANCH, branchName);
+        appendLine(note, TAG_ON_HEAD, suggestedVersion.getVersionTagOnHead().orElse(null));
+        appendLine(note, ORIGINATING_BRANCH, suggestedVersion.getOriginatingBranchName().orElse(null));
+        appendLine(note, SEGMENT, suggestedVersion.getVersionSegmentToIncrement().map(Enum::name).orElse(null));
+        appendLine(note, LATEST, suggestedVersion.getLatestVersionInReleaseTrack().map(Object::toString).orElse(null));
+        appendLine(note, INPUTS, inputs);
+        return note.toString();
+    }
+
+    static Map<String, String> parse(String note) {
+        Map<String, String> values = new LinkedHashMap<>();
+        for (String line : note.split("\n")) {
+            int separator = line.indexOf(SEPARATOR);
+            if (separator > 0) {
+                values.put(line.substring(0, separator), line.substring(separator + SEPARATOR.length()).trim());
+            }
+        }
+        return values;
+    }
+
+    private static void appendLine(StringBuilder note, String key, String value) {
+        if (value != null) {
+            note.append(key).append(SEPARATOR).append(value).append('\n');
+        }
+    }
+}
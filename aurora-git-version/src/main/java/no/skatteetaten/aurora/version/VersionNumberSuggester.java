@@ -1,16 +1,19 @@
 package no.skatteetaten.aurora.version;
 
+import java.io.File;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
 
-import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.lib.ObjectId;
 
-import no.skatteetaten.aurora.version.git.GitLogParser;
+import no.skatteetaten.aurora.version.git.BranchSearchResult;
 import no.skatteetaten.aurora.version.git.GitRepo;
 import no.skatteetaten.aurora.version.git.GitVersion;
-import no.skatteetaten.aurora.version.suggest.ReleaseVersionEvaluator;
-import no.skatteetaten.aurora.version.suggest.ReleaseVersionIncrementer;
-import no.skatteetaten.aurora.version.suggest.VersionNumber;
+import no.skatteetaten.aurora.version.suggest.ConventionalCommits;
 import no.skatteetaten.aurora.version.suggest.VersionSegment;
 
 /**
@@ -23,9 +26,12 @@ public final class VersionNumberSuggester {
 
     private final SuggesterOptions options;
 
+    private final ReleaseVersionInference inference;
+
     private VersionNumberSuggester(GitRepo repository, SuggesterOptions options) {
         this.repository = repository;
         this.options = options;
+        this.inference = new ReleaseVersionInference(options);
     }
 
     public static String suggestVersion() {
@@ -33,75 +39,158 @@ public final class VersionNumberSuggester {
     }
 
     public static String suggestVersion(SuggesterOptions options) {
-        return new VersionNumberSuggester(GitRepo.fromDir(options.getGitRepoPath()), options).suggestVersionHelper();
+        return suggest(options).getVersion();
+    }
 
+    /**
+     * Same as {@link #suggestVersion(SuggesterOptions)}, but also returns the facts the version was derived from,
+     * like the current branch and whether the search for it ran out of its budget.
+     */
+    public static SuggestedVersion suggest(SuggesterOptions options) {
+        try (GitRepo repository = openRepository(options)) {
+            return suggest(repository, options);
+        }
     }
 
-    private static GitVersion.Options createGitVersionOptions(SuggesterOptions options) {
+    /**
+     * Same as {@link #suggest(SuggesterOptions)}, but on an already opened repository. A {@link GitRepo} is safe for
+     * concurrent use, so builds suggesting versions for several projects in the same checkout in parallel can share
+     * one. <code>gitRepoPath</code> in the options is not used. With a <code>revision</code> in the options, versions
+     * for many commits can be suggested on the same repository, checked out or bare. With a
+     * <code>versionNotesRef</code> in the options the version is read from and recorded in git notes, see
+     * {@link VersionNotes}.
+     */
+    public static SuggestedVersion suggest(GitRepo repository, SuggesterOptions options) {
+        GitRepo gitRepo = withKnownTags(repository, options);
+        Supplier<SuggestedVersion> suggester = () ->
+            new VersionNumberSuggester(gitRepo, options).suggestVersionHelper();
+        SuggestedVersion suggestedVersion = VersionNotes.isEnabled(options)
+            ? VersionNotes.suggest(gitRepo, options, suggester)
+            : suggester.get();
+        if (!options.isCreateTag() || !suggestedVersion.isInferred()) {
+            return suggestedVersion;
+        }
+        String tagName = options.getVersionPrefix() + suggestedVersion.getVersion();
+        Map<String, ObjectId> created = repository.createTags(
+            Collections.singletonMap(tagName, repository.resolve(options.getRevision())));
+        return created.isEmpty() ? suggestedVersion : suggestedVersion.withCreatedTag(tagName);
+    }
+
+    /**
+     * Opens the repository at <code>gitRepoPath</code> with the backend from the options, after installing the storage
+     * settings from the options.
+     */
+    static GitRepo openRepository(SuggesterOptions options) {
+        installStorageTuning(options);
+        return GitRepo.fromDir(new File(options.getGitRepoPath(), "."), options.getBackend());
+    }
+
+    static void installStorageTuning(SuggesterOptions options) {
+        if (options.getStorageTuning() != null) {
+            options.getStorageTuning().install();
+        }
+    }
+
+    static GitRepo withKnownTags(GitRepo repository, SuggesterOptions options) {
+        if (options.getKnownTags() != null) {
+            return repository.withKnownTags(options.getKnownTags());
+        }
+        return repository;
+    }
+
+    static GitVersion.Options createGitVersionOptions(SuggesterOptions options) {
         GitVersion.Options o = new GitVersion.Options();
         o.setFallbackBranchNameEnvName(options.getFallbackBranchNameEnvName());
         o.setFallbackToBranchNameEnv(options.isFallbackToBranchNameEnv());
         o.setVersionPrefix(options.getVersionPrefix());
         o.setBranchesToUseTagsAsVersionsFor(options.getBranchesToUseTagsAsVersionsFor());
+        o.setBranchesToUseDistanceVersionsFor(options.getBranchesToUseDistanceVersionsFor());
         o.setTryDeterminingCurrentVersionFromTagName(options.isTryDeterminingCurrentVersionFromTagName()
             || options.getForceSegmentIncrementForExistingTag().isPresent());
+        o.setBranchSearchMaxCommits(options.getBranchSearchMaxCommits());
+        o.setBranchSearchTimeoutMillis(options.getBranchSearchTimeoutMillis());
+        o.setRevision(options.getRevision());
+        o.setBranchName(options.getBranchName());
+        o.setStorageTuning(options.getStorageTuning());
+        o.setBackend(options.getBackend());
+        o.setOrderTagsByTaggerDate(options.isOrderTagsByTaggerDate());
+        o.setVersionScheme(options.getVersionScheme());
         return o;
     }
 
-    private String suggestVersionHelper() {
+    private SuggestedVersion suggestVersionHelper() {
 
         GitVersion.Version versionFromGit = new GitVersion(repository, createGitVersionOptions(options))
             .determineVersion();
 
-        if (shouldInferReleaseVersion(versionFromGit)) {
-            return getInferredVersion(Optional.empty());
-        }
-
-        if (versionFromGit.isFromTag() && options.getForceSegmentIncrementForExistingTag().isPresent()) {
-            return getInferredVersion(options.getForceSegmentIncrementForExistingTag());
+        if (!inference.infersReleaseVersion(versionFromGit, isOnBranchToInferReleaseVersionsFor(versionFromGit))) {
+            return new SuggestedVersion(versionFromGit.getVersion(), versionFromGit);
         }
 
-        return versionFromGit.getVersion();
-
+        List<String> existingVersions = options.isOnlyUseTagsReachableFromHead()
+            ? repository.getAllVersionsFromTagsReachableFrom(resolveRevision(), options.getVersionPrefix())
+            : repository.getAllVersionsFromTags(options.getVersionPrefix());
+        return inference.suggest(
+            versionFromGit,
+            FederatedReleaseTracks.of(existingVersions, options),
+            options.getVersionHint(),
+            repository.findOriginatingBranchName(resolveRevision()),
+            this::findConventionalCommitSegment,
+            version -> appendDistanceIfRequested(versionFromGit, version));
     }
 
-    private boolean shouldInferReleaseVersion(GitVersion.Version versionFromGit) {
+    private boolean isOnBranchToInferReleaseVersionsFor(GitVersion.Version versionFromGit) {
 
         if (versionFromGit.isFromTag()) {
             return false;
         }
 
-        Optional<String> currentBranchOption = repository.getBranchName(
-            options.isFallbackToBranchNameEnv(),
-            options.getFallbackBranchNameEnvName());
+        // The branch search has already given up, so fall back to the version determined from git
+        boolean branchSearchExhausted = versionFromGit.getBranchSearchResult()
+            .map(BranchSearchResult::isInconclusive)
+            .orElse(false);
+        if (branchSearchExhausted) {
+            return false;
+        }
 
-        String currentBranch = currentBranchOption
+        String currentBranch = versionFromGit.getBranchSearchResult()
+            .flatMap(BranchSearchResult::getBranchName)
             .orElseThrow(() -> new IllegalStateException("Unable to determine name of current branch"));
 
-        return options.getBranchesToInferReleaseVersionsFor().contains(currentBranch);
+        return inference.getRules().infersReleaseVersions(currentBranch);
     }
 
-    private String getInferredVersion(Optional<VersionSegment> forceUpdateForVersionSegment) {
-        List<String> existingVersions = repository.getAllVersionsFromTags(options.getVersionPrefix());
-        Optional<RevCommit> commitLogEntry = repository.getLogEntryForCurrentHead();
-        Optional<String> originatingBranchName = GitLogParser.findOriginatingBranchName(commitLogEntry);
-
-        VersionSegment versionSegmentToIncrement = forceUpdateForVersionSegment.orElseGet(() ->
-            ReleaseVersionEvaluator.findVersionSegmentToIncrement(
-                options.getVersionHint(),
-                originatingBranchName,
-                options.getForceMinorIncrementForBranchPrefixes()));
+    private String appendDistanceIfRequested(GitVersion.Version versionFromGit, String version) {
+        boolean useDistance = versionFromGit.getBranchSearchResult()
+            .flatMap(BranchSearchResult::getBranchName)
+            .filter(inference.getRules()::usesDistanceVersions)
+            .isPresent();
+        if (!useDistance || versionFromGit.isFromTag()) {
+            return version;
+        }
+        return repository
+            .findNearestVersionTag(resolveRevision(), options.getVersionPrefix(), options.getVersionScheme())
+            .map(tagDistance -> tagDistance.toPreReleaseVersion(version))
+            .orElse(version);
+    }
 
-        VersionNumber inferredVersion = ReleaseVersionIncrementer.suggestNextReleaseVersion(
-            versionSegmentToIncrement,
-            options.getVersionHint(),
-            existingVersions);
+    private ObjectId resolveRevision() {
+        return repository.resolve(options.getRevision());
+    }
 
-        String version = inferredVersion.toString();
-        if (options.getMetadata() != null) {
-            version += "+" + options.getMetadata();
+    private Optional<VersionSegment> findConventionalCommitSegment() {
+        if (!options.isInferSegmentFromConventionalCommits()) {
+            return Optional.empty();
         }
-        return version;
+        AtomicReference<VersionSegment> mostSignificant = new AtomicReference<>();
+        repository.forEachCommitSinceVersionTag(resolveRevision(), options.getVersionPrefix(), commit -> {
+            ConventionalCommits.classify(commit.getFullMessage()).ifPresent(segment ->
+                mostSignificant.accumulateAndGet(segment, (current, next) ->
+                    current == null ? next : VersionSegment.mostSignificant(current, next)));
+            // Nothing can outrank a breaking change, so there is no need to walk any further
+            return mostSignificant.get() != VersionSegment.MAJOR;
+        });
+        return Optional.ofNullable(mostSignificant.get());
     }
 
 }
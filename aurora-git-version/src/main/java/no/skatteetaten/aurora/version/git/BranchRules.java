@@ -0,0 +1,70 @@
+package no.skatteetaten.aurora.version.git;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import no.skatteetaten.aurora.version.utils.BranchMatcher;
+
+/**
+ * The branch lists of {@link GitVersion.Options}, compiled once so that evaluating them for a branch does not allocate
+ * and does not depend on the number of branches listed. The lists may contain glob patterns like
+ * <code>release/*</code>, see {@link BranchMatcher}. Later changes to the options are not reflected.
+ */
+public final class BranchRules {
+
+    private final boolean tryDeterminingCurrentVersionFromTagName;
+
+    private final List<String> tagsAsVersionsRules;
+
+    private final List<String> distanceVersionsRules;
+
+    private final BranchMatcher tagsAsVersions;
+
+    private final BranchMatcher distanceVersions;
+
+    private BranchRules(GitVersion.Options options) {
+        this.tryDeterminingCurrentVersionFromTagName = options.isTryDeterminingCurrentVersionFromTagName();
+        this.tagsAsVersionsRules = copy(options.getBranchesToUseTagsAsVersionsFor());
+        this.distanceVersionsRules = copy(options.getBranchesToUseDistanceVersionsFor());
+        this.tagsAsVersions = BranchMatcher.compile(tagsAsVersionsRules);
+        this.distanceVersions = BranchMatcher.compile(distanceVersionsRules);
+    }
+
+    public static BranchRules of(GitVersion.Options options) {
+        return new BranchRules(options);
+    }
+
+    /**
+     * Whether these rules were compiled from options equal to the given ones, so they can be used for them.
+     */
+    public boolean isCompiledFrom(GitVersion.Options options) {
+        return tryDeterminingCurrentVersionFromTagName == options.isTryDeterminingCurrentVersionFromTagName()
+            && sameRules(tagsAsVersionsRules, options.getBranchesToUseTagsAsVersionsFor())
+            && sameRules(distanceVersionsRules, options.getBranchesToUseDistanceVersionsFor());
+    }
+
+    public boolean shouldDetermineVersionFromTag(String branchName) {
+        if (!tryDeterminingCurrentVersionFromTagName) {
+            return false;
+        }
+        // Empty list means all branches
+        return tagsAsVersions.isEmpty() || tagsAsVersions.matches(branchName);
+    }
+
+    public boolean usesTagsAsVersions(String branchName) {
+        return tagsAsVersions.matches(branchName);
+    }
+
+    public boolean usesDistanceVersions(String branchName) {
+        return distanceVersions.matches(branchName);
+    }
+
+    private static boolean sameRules(List<String> compiled, List<String> rules) {
+        return rules == null ? compiled.isEmpty() : compiled.equals(rules);
+    }
+
+    private static List<String> copy(List<String> rules) {
+        return rules == null ? Collections.emptyList() : new ArrayList<>(rules);
+    }
+}
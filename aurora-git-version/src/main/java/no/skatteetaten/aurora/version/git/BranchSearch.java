@@ -0,0 +1,134 @@
+package no.skatteetaten.aurora.version.git;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.jgit.errors.IncorrectObjectTypeException;
+import org.eclipse.jgit.errors.MissingObjectException;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevFlag;
+import org.eclipse.jgit.revwalk.RevWalk;
+
+/**
+ * Searches the given branches, in order, for the first one that contains a commit. Commits already walked while
+ * searching one branch are not walked again for the next, so the total cost is bounded by the size of the history
+ * rather than the number of branches times the size of the history.
+ * <p>
+ * In a shallow clone the walk stops at the shallow commits listed in <code>.git/shallow</code>, whose parents were not
+ * fetched, so the cost is bounded by the depth of the clone. If no branch is found and the walk stopped at such a
+ * commit, or at a missing parent, the outcome is {@link BranchSearchResult.Outcome#UNKNOWN_SHALLOW} rather than
+ * {@link BranchSearchResult.Outcome#NOT_FOUND}.
+ */
+final class BranchSearch {
+
+    private final RevWalk walk;
+
+    private final RevFlag seen;
+
+    private final Deque<RevCommit> pending = new ArrayDeque<>();
+
+    private final BranchSearchBudget.Tracker tracker;
+
+    private final Set<ObjectId> shallowCommits;
+
+    private boolean reachedShallowBoundary;
+
+    BranchSearch(RevWalk walk, BranchSearchBudget budget) throws IOException {
+        this.walk = walk;
+        this.seen = walk.newFlag("SEEN");
+        this.tracker = budget.start();
+        this.shallowCommits = walk.getObjectReader().getShallowCommits();
+    }
+
+    static BranchSearchResult find(
+        Repository repository,
+        ObjectId commitId,
+        List<Ref> branches,
+        BranchSearchBudget budget) throws IOException {
+
+        try (RevWalk walk = new RevWalk(repository)) {
+            return new BranchSearch(walk, budget).find(commitId, branches);
+        }
+    }
+
+    BranchSearchResult find(ObjectId commitId, List<Ref> branches) throws IOException {
+        RevCommit commit = walk.parseCommit(commitId);
+
+        // Cheap pass first; a branch pointing straight at the commit needs no walk at all
+        for (Ref branch : branches) {
+            if (commit.equals(branch.getObjectId())) {
+                return result(branch, BranchSearchResult.Outcome.FOUND);
+            }
+        }
+
+        for (Ref branch : branches) {
+            BranchSearchResult.Outcome outcome = walkBranch(branch, commit);
+            if (outcome != BranchSearchResult.Outcome.NOT_FOUND) {
+                return result(branch, outcome);
+            }
+        }
+        return result(null, reachedShallowBoundary
+            ? BranchSearchResult.Outcome.UNKNOWN_SHALLOW
+            : BranchSearchResult.Outcome.NOT_FOUND);
+    }
+
+    private BranchSearchResult.Outcome walkBranch(Ref branch, RevCommit commit) throws IOException {
+        pushBranchTip(branch);
+        while (!pending.isEmpty()) {
+            RevCommit candidate = pending.pop();
+            if (candidate.has(seen)) {
+                continue;
+            }
+            if (!tracker.tryWalkCommit()) {
+                return BranchSearchResult.Outcome.BUDGET_EXHAUSTED;
+            }
+            candidate.add(seen);
+            if (candidate.equals(commit)) {
+                return BranchSearchResult.Outcome.FOUND;
+            }
+            pushParents(candidate);
+        }
+        return BranchSearchResult.Outcome.NOT_FOUND;
+    }
+
+    private void pushBranchTip(Ref branch) throws IOException {
+        try {
+            pending.push(walk.parseCommit(branch.getObjectId()));
+        } catch (MissingObjectException | IncorrectObjectTypeException e) {
+            // A broken or non-commit branch cannot contain the commit
+        }
+    }
+
+    private void pushParents(RevCommit commit) throws IOException {
+        if (shallowCommits.contains(commit)) {
+            reachedShallowBoundary = true;
+            return;
+        }
+        try {
+            walk.parseHeaders(commit);
+        } catch (MissingObjectException e) {
+            // A parent is only missing where the history was not fetched
+            reachedShallowBoundary = true;
+            return;
+        }
+        for (RevCommit parent : commit.getParents()) {
+            if (!parent.has(seen)) {
+                pending.push(parent);
+            }
+        }
+    }
+
+    private BranchSearchResult result(Ref branch, BranchSearchResult.Outcome outcome) {
+        String branchName = branch == null || outcome != BranchSearchResult.Outcome.FOUND
+            ? null
+            : branch.getName().replaceFirst(Constants.R_HEADS, "");
+        return new BranchSearchResult(branchName, outcome, tracker.getCommitsWalked());
+    }
+}
@@ -0,0 +1,63 @@
+package no.skatteetaten.aurora.version.git;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Upper bound on the work spent searching for the branch of a commit when in detached HEAD state. A value of
+ * <code>0</code> for either limit means that limit is not applied.
+ */
+public final class BranchSearchBudget {
+
+    public static final BranchSearchBudget UNLIMITED = new BranchSearchBudget(0, 0);
+
+    private final int maxCommits;
+
+    private final long timeoutMillis;
+
+    public BranchSearchBudget(int maxCommits, long timeoutMillis) {
+        if (maxCommits < 0 || timeoutMillis < 0) {
+            throw new IllegalArgumentException("Branch search budget cannot be negative");
+        }
+        this.maxCommits = maxCommits;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    public int getMaxCommits() {
+        return maxCommits;
+    }
+
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    Tracker start() {
+        return new Tracker();
+    }
+
+    /**
+     * Keeps count of the commits walked during a single search.
+     */
+    final class Tracker {
+
+        private final long deadline = timeoutMillis == 0
+            ? Long.MAX_VALUE
+            : System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+
+        private int commitsWalked;
+
+        boolean tryWalkCommit() {
+            if (maxCommits != 0 && commitsWalked >= maxCommits) {
+                return false;
+            }
+            if (deadline != Long.MAX_VALUE && System.nanoTime() - deadline > 0) {
+                return false;
+            }
+            commitsWalked++;
+            return true;
+        }
+
+        int getCommitsWalked() {
+            return commitsWalked;
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package no.skatteetaten.aurora.version.git;
+
+import java.util.Optional;
+
+/**
+ * The name of the current branch together with how it was determined. When the search for the branch of a detached
+ * HEAD runs out of its {@link BranchSearchBudget} the outcome is {@link Outcome#BUDGET_EXHAUSTED}, and when it reaches
+ * the boundary of a shallow clone without finding the commit it is {@link Outcome#UNKNOWN_SHALLOW}, so that callers
+ * can report it.
+ */
+public final class BranchSearchResult {
+
+    /**
+     * How the name of the branch was determined, or why it was not.
+     */
+    public enum Outcome {
+        /**
+         * The branch is checked out.
+         */
+        CHECKED_OUT,
+        /**
+         * The branch was read from an environment variable.
+         */
+        ENVIRONMENT,
+        /**
+         * The branch was given by the caller.
+         */
+        SUPPLIED,
+        /**
+         * The branch recorded together with a version that was read back instead of being determined again.
+         */
+        RECORDED,
+        /**
+         * A branch containing the commit was found by searching the history of the branches.
+         */
+        FOUND,
+        /**
+         * No branch contains the commit.
+         */
+        NOT_FOUND,
+        /**
+         * No branch was found before the search ran out of its budget.
+         */
+        BUDGET_EXHAUSTED,
+        /**
+         * No branch was found, but the history of a shallow clone ended before the search did, so a branch may
+         * contain the commit in commits that were not fetched.
+         */
+        UNKNOWN_SHALLOW
+    }
+
+    private final String branchName;
+
+    private final Outcome outcome;
+
+    private final int commitsWalked;
+
+    BranchSearchResult(String branchName, Outcome outcome, int commitsWalked) {
+        this.branchName = branchName;
+        this.outcome = outcome;
+        this.commitsWalked = commitsWalked;
+    }
+
+    static BranchSearchResult checkedOut(String branchName) {
+        return new BranchSearchResult(branchName, Outcome.CHECKED_OUT, 0);
+    }
+
+    static BranchSearchResult fromEnvironment(String branchName) {
+        return new BranchSearchResult(branchName, Outcome.ENVIRONMENT, 0);
+    }
+
+    /**
+     * A branch name given by the caller, who knows which branch the commit was built on.
+     *
+     * @param branchName the name of the branch
+     * @return the result with the outcome {@link Outcome#SUPPLIED}
+     */
+    public static BranchSearchResult supplied(String branchName) {
+        return new BranchSearchResult(branchName, Outcome.SUPPLIED, 0);
+    }
+
+    /**
+     * A branch name recorded together with a version, for instance in a git note, when the branch is not known
+     * without searching for it.
+     *
+     * @param branchName the recorded name of the branch
+     * @return the result with the outcome {@link Outcome#RECORDED}
+     */
+    public static BranchSearchResult recorded(String branchName) {
+        return new BranchSearchResult(branchName, Outcome.RECORDED, 0);
+    }
+
+    /**
+     * @return the name of the branch, or empty if it could not be determined
+     */
+    public Optional<String> getBranchName() {
+        return Optional.ofNullable(branchName);
+    }
+
+    /**
+     * @return how the name of the branch was determined
+     */
+    public Outcome getOutcome() {
+        return outcome;
+    }
+
+    /**
+     * @return the number of commits the search for the branch walked, or 0 if there was no search
+     */
+    public int getCommitsWalked() {
+        return commitsWalked;
+    }
+
+    /**
+     * @return whether the search ran out of its budget
+     */
+    public boolean isBudgetExhausted() {
+        return outcome == Outcome.BUDGET_EXHAUSTED;
+    }
+
+    /**
+     * @return whether the search reached the boundary of a shallow clone without finding the commit
+     */
+    public boolean isUnknownDueToShallowClone() {
+        return outcome == Outcome.UNKNOWN_SHALLOW;
+    }
+
+    /**
+     * Whether the search gave up before it could tell if a branch contains the commit, because the budget was spent
+     * or the history of a shallow clone ended.
+     *
+     * @return whether the outcome is {@link Outcome#BUDGET_EXHAUSTED} or {@link Outcome#UNKNOWN_SHALLOW}
+     */
+    public boolean isInconclusive() {
+        return isBudgetExhausted() || isUnknownDueToShallowClone();
+    }
+}
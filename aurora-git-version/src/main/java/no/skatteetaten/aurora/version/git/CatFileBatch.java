@@ -0,0 +1,108 @@
+package no.skatteetaten.aurora.version.git;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.jgit.errors.IncorrectObjectTypeException;
+import org.eclipse.jgit.errors.MissingObjectException;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+
+/**
+ * A running <code>git cat-file --batch</code> process. Requests are pipelined: a batch of object ids is written
+ * before the responses are read. The batches are small enough for the requests to fit in the pipe buffer, so writing
+ * never blocks on <code>cat-file</code> waiting for its output to be read. Not safe for concurrent use.
+ */
+final class CatFileBatch {
+
+    /**
+     * Requests written before reading the responses. Each request is 41 bytes, well within a 64 KiB pipe buffer.
+     */
+    private static final int PIPELINE_DEPTH = 256;
+
+    private static final String MISSING = "missing";
+
+    private final Process process;
+
+    private final OutputStream requests;
+
+    private final DataInputStream responses;
+
+    CatFileBatch(File gitDir) throws IOException {
+        process = GitCommand.start(gitDir, "cat-file", "--batch");
+        requests = new BufferedOutputStream(process.getOutputStream());
+        responses = new DataInputStream(new BufferedInputStream(process.getInputStream()));
+    }
+
+    boolean isAlive() {
+        return process.isAlive();
+    }
+
+    /**
+     * The raw commit objects, in the order of the ids. After an exception the responses may be out of step with the
+     * requests, so the process should be stopped.
+     */
+    List<byte[]> readCommits(List<ObjectId> commits) throws IOException {
+        List<byte[]> rawCommits = new ArrayList<>(commits.size());
+        for (int from = 0; from < commits.size(); from += PIPELINE_DEPTH) {
+            List<ObjectId> batch = commits.subList(from, Math.min(from + PIPELINE_DEPTH, commits.size()));
+            for (ObjectId commit : batch) {
+                requests.write((commit.name() + "\n").getBytes(StandardCharsets.US_ASCII));
+            }
+            requests.flush();
+            for (ObjectId commit : batch) {
+                rawCommits.add(readResponse(commit));
+            }
+        }
+        return rawCommits;
+    }
+
+    void stop() {
+        try {
+            // cat-file exits when its input is closed
+            requests.close();
+        } catch (IOException e) {
+            process.destroy();
+        }
+    }
+
+    /**
+     * Reads one response: a header line <code>&lt;id&gt; &lt;type&gt; &lt;size&gt;</code>, the object and a
+     * newline, or the header line <code>&lt;id&gt; missing</code>.
+     */
+    private byte[] readResponse(ObjectId commit) throws IOException {
+        String[] header = readLine().split(" ");
+        if (header.length == 2 && MISSING.equals(header[1])) {
+            throw new MissingObjectException(commit, Constants.TYPE_COMMIT);
+        }
+        if (header.length != 3) {
+            throw new IOException("Unexpected response from git cat-file: " + String.join(" ", header));
+        }
+        byte[] raw = new byte[Integer.parseInt(header[2])];
+        responses.readFully(raw);
+        responses.readByte();
+        if (!Constants.TYPE_COMMIT.equals(header[1])) {
+            throw new IncorrectObjectTypeException(commit, Constants.TYPE_COMMIT);
+        }
+        return raw;
+    }
+
+    private String readLine() throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        for (int b = responses.read(); b != '\n'; b = responses.read()) {
+            if (b < 0) {
+                throw new IOException("git cat-file exited");
+            }
+            line.write(b);
+        }
+        return new String(line.toByteArray(), StandardCharsets.US_ASCII);
+    }
+}
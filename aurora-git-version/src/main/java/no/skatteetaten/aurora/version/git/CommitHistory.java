@@ -0,0 +1,248 @@
+package no.skatteetaten.aurora.version.git;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.BiPredicate;
+import java.util.function.Predicate;
+
+import org.eclipse.jgit.errors.IncorrectObjectTypeException;
+import org.eclipse.jgit.errors.MissingObjectException;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevFlag;
+import org.eclipse.jgit.revwalk.RevSort;
+import org.eclipse.jgit.revwalk.RevWalk;
+
+import no.skatteetaten.aurora.version.suggest.VersionScheme;
+
+/**
+ * Walks of the commit history relative to the version tags.
+ */
+final class CommitHistory {
+
+    private static final int ABBREVIATED_LENGTH = 7;
+
+    private static final int CLOCK_SKEW_SECONDS = 24 * 60 * 60;
+
+    private final Repository repository;
+
+    private final VersionTags versionTags;
+
+    private final DistanceCache distanceCache;
+
+    CommitHistory(Repository repository, VersionTags versionTags) {
+        this(repository, versionTags, new DistanceCache());
+    }
+
+    private CommitHistory(Repository repository, VersionTags versionTags, DistanceCache distanceCache) {
+        this.repository = repository;
+        this.versionTags = versionTags;
+        this.distanceCache = distanceCache;
+    }
+
+    /**
+     * The history of the same repository relative to other version tags, sharing the distances between commits.
+     */
+    CommitHistory withOtherTags(VersionTags otherVersionTags) {
+        return new CommitHistory(repository, otherVersionTags, distanceCache.forOtherTags());
+    }
+
+    /**
+     * Forgets the nearest version tags found, for when the tags have changed.
+     */
+    void forgetNearestVersionTags() {
+        distanceCache.clearNearestTags();
+    }
+
+    void forEachCommitSinceVersionTag(ObjectId commit, String versionPrefix, Predicate<RevCommit> visitor)
+        throws IOException {
+
+        try (RevWalk walk = new RevWalk(repository)) {
+            walk.markStart(walk.parseCommit(commit));
+            for (ObjectId taggedCommit : versionTags.getTagsByCommit(versionPrefix).keySet()) {
+                markUninterestingIfPresent(walk, taggedCommit);
+            }
+            for (RevCommit c : walk) {
+                if (!visitor.test(c)) {
+                    break;
+                }
+                c.disposeBody();
+            }
+        }
+    }
+
+    void forEachCommitOldestFirst(ObjectId from, ObjectId to, String versionPrefix,
+        BiPredicate<RevCommit, List<String>> visitor) throws IOException {
+
+        Map<ObjectId, List<String>> tagsByCommit = versionTags.getTagsByCommit(versionPrefix);
+        try (RevWalk walk = new RevWalk(repository)) {
+            walk.setRetainBody(false);
+            walk.sort(RevSort.TOPO);
+            walk.sort(RevSort.REVERSE, true);
+            walk.markStart(walk.parseCommit(to));
+            if (from != null) {
+                walk.markUninteresting(walk.parseCommit(from));
+            }
+            for (RevCommit c : walk) {
+                if (!visitor.test(c, tagsByCommit.getOrDefault(c, Collections.emptyList()))) {
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Finds the nearest commit with a release version tag of the given scheme and the distance to it. The result is
+     * cached, so asking for the same commit again, for instance for the version from the branch and then for the
+     * suggested version, walks the history once.
+     */
+    Optional<VersionTagDistance> findNearestVersionTag(ObjectId commit, String versionPrefix, VersionScheme scheme)
+        throws IOException {
+
+        return distanceCache.getNearestTag(commit, versionPrefix, scheme, this::walkToNearestVersionTag);
+    }
+
+    private Optional<VersionTagDistance> walkToNearestVersionTag(ObjectId commit, String versionPrefix,
+        VersionScheme scheme) throws IOException {
+
+        Map<ObjectId, List<String>> tagsByCommit = versionTags.getTagsByCommit(versionPrefix);
+        try (RevWalk walk = new RevWalk(repository)) {
+            walk.setRetainBody(false);
+            walk.markStart(walk.parseCommit(commit));
+            for (RevCommit c : walk) {
+                Optional<String> tag = findHighestVersionTag(tagsByCommit.get(c), versionPrefix, scheme);
+                if (tag.isPresent()) {
+                    int distance = countCommitsBetween(c, commit);
+                    String abbreviated = walk.getObjectReader().abbreviate(commit, ABBREVIATED_LENGTH).name();
+                    return Optional.of(new VersionTagDistance(tag.get(), c.copy(), distance, abbreviated));
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Finds the version tags on commits reachable from the given commit, in a single walk. The tagged commits from
+     * the peeled tag index are flagged up front and picked up as the walk passes them. The walk stops when every
+     * tagged commit has been found, or when the tagged commits left are all newer than the newest commit still to be
+     * walked, allowing for a day of clock skew between commits, since older commits cannot have them as ancestors.
+     * The walk returns the newest pending commit first and queues its parents as it returns it, so the commits still
+     * to be walked are at most as new as that commit and its parents, which may be dated after it.
+     */
+    List<String> findVersionTagsReachableFrom(ObjectId commit, String versionPrefix) throws IOException {
+        Map<ObjectId, List<String>> tagsByCommit = versionTags.getTagsByCommit(versionPrefix);
+        List<String> reachableTags = new ArrayList<>();
+        try (RevWalk walk = new RevWalk(repository)) {
+            walk.setRetainBody(false);
+            RevFlag tagged = walk.newFlag("TAGGED");
+            List<RevCommit> candidates = parseTaggedCommits(walk, tagsByCommit.keySet(), tagged);
+            int remaining = candidates.size();
+            int oldest = 0;
+
+            walk.markStart(walk.parseCommit(commit));
+            for (RevCommit c = walk.next(); c != null && remaining > 0; c = walk.next()) {
+                if (c.has(tagged)) {
+                    c.remove(tagged);
+                    reachableTags.addAll(tagsByCommit.get(c));
+                    remaining--;
+                }
+                while (oldest < candidates.size() && !candidates.get(oldest).has(tagged)) {
+                    oldest++;
+                }
+                if (oldest < candidates.size()
+                    && newestPending(c) + CLOCK_SKEW_SECONDS < candidates.get(oldest).getCommitTime()) {
+                    break;
+                }
+            }
+        }
+        Collections.sort(reachableTags);
+        return reachableTags;
+    }
+
+    /**
+     * The newest commit time of the commits still to be walked after the given one: the ones queued before it are
+     * older than it, and its parents have just been queued.
+     */
+    private static int newestPending(RevCommit commit) {
+        int newest = commit.getCommitTime();
+        for (RevCommit parent : commit.getParents()) {
+            newest = Math.max(newest, parent.getCommitTime());
+        }
+        return newest;
+    }
+
+    /**
+     * Counts the commits reachable from <code>to</code> but not from <code>from</code>. Counts are cached, so
+     * describing many commits against the same tag, or the same commit again, only walks each range once.
+     */
+    int countCommitsBetween(ObjectId from, ObjectId to) throws IOException {
+        return distanceCache.getCount(from, to, this::walkCommitsBetween);
+    }
+
+    private int walkCommitsBetween(ObjectId from, ObjectId to) throws IOException {
+        int count = 0;
+        try (RevWalk walk = new RevWalk(repository)) {
+            // Only the commit headers are needed for counting, so skip retaining messages
+            walk.setRetainBody(false);
+            walk.markStart(walk.parseCommit(to));
+            walk.markUninteresting(walk.parseCommit(from));
+            for (RevCommit ignored : walk) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static Optional<String> findHighestVersionTag(List<String> tagNames, String versionPrefix,
+        VersionScheme scheme) {
+
+        if (tagNames == null) {
+            return Optional.empty();
+        }
+        String highest = null;
+        long[] highestKey = null;
+        for (String tagName : tagNames) {
+            long[] key = scheme.parse(tagName.substring(versionPrefix.length()));
+            if (key != null && (highestKey == null || scheme.compare(key, highestKey) > 0)) {
+                highest = tagName;
+                highestKey = key;
+            }
+        }
+        return Optional.ofNullable(highest);
+    }
+
+    /**
+     * The commits that exist in this repository, flagged and ordered by commit time, oldest first.
+     */
+    private static List<RevCommit> parseTaggedCommits(RevWalk walk, Collection<ObjectId> commits, RevFlag flag)
+        throws IOException {
+
+        List<RevCommit> taggedCommits = new ArrayList<>();
+        for (ObjectId commit : commits) {
+            try {
+                RevCommit taggedCommit = walk.parseCommit(commit);
+                taggedCommit.add(flag);
+                taggedCommits.add(taggedCommit);
+            } catch (MissingObjectException | IncorrectObjectTypeException e) {
+                // Tags from outside of this clone, or tags of other objects than commits, are never reachable
+            }
+        }
+        taggedCommits.sort(Comparator.comparingInt(RevCommit::getCommitTime));
+        return taggedCommits;
+    }
+
+    private static void markUninterestingIfPresent(RevWalk walk, ObjectId commit) throws IOException {
+        try {
+            walk.markUninteresting(walk.parseCommit(commit));
+        } catch (MissingObjectException | IncorrectObjectTypeException e) {
+            // Tags outside of a shallow clone, or tags of other objects than commits, cannot bound the walk
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package no.skatteetaten.aurora.version.git;
+
+import java.io.IOException;
+
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+
+/**
+ * Reads commits straight from the object database through one {@link ObjectReader}, without a RevWalk or the log
+ * command. Commits read through the same instance share the reader and its caches.
+ */
+final class CommitReader implements AutoCloseable {
+
+    private final ObjectReader reader;
+
+    CommitReader(Repository repository) {
+        this.reader = repository.newObjectReader();
+    }
+
+    /**
+     * The raw commit object: the headers, an empty line and the message, in the encoding given by the headers.
+     */
+    byte[] readRaw(AnyObjectId commit) throws IOException {
+        return reader.open(commit, Constants.OBJ_COMMIT).getCachedBytes(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Parses the commit headers. The message is kept as raw bytes, and is only decoded if it is asked for.
+     */
+    RevCommit parse(AnyObjectId commit) throws IOException {
+        return RevCommit.parse(readRaw(commit));
+    }
+
+    @Override
+    public void close() {
+        reader.close();
+    }
+}
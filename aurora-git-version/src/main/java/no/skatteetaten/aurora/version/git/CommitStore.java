@@ -0,0 +1,58 @@
+package no.skatteetaten.aurora.version.git;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+
+/**
+ * The operations of a {@link GitRepo} that walk or read the object database, implemented by each {@link GitBackend}.
+ * Implementations are safe for concurrent use.
+ */
+interface CommitStore extends AutoCloseable {
+
+    static CommitStore create(GitBackend backend, Repository repository) {
+        return backend == GitBackend.NATIVE
+            ? new NativeCommitStore(repository)
+            : new JGitCommitStore(repository);
+    }
+
+    /**
+     * The raw commit objects, in the order of the ids: the headers, an empty line and the message.
+     */
+    List<byte[]> readRaw(List<ObjectId> commits) throws IOException;
+
+    default byte[] readRaw(ObjectId commit) throws IOException {
+        return readRaw(Collections.singletonList(commit)).get(0);
+    }
+
+    default Optional<String> findOriginatingBranchName(ObjectId commit) throws IOException {
+        return GitLogParser.findOriginatingBranchName(readRaw(commit));
+    }
+
+    /**
+     * The parsed commits, in the order of the ids, without their parents and trees loaded.
+     */
+    default List<RevCommit> readCommits(List<ObjectId> commits) throws IOException {
+        List<byte[]> rawCommits = readRaw(commits);
+        List<RevCommit> parsed = new ArrayList<>(rawCommits.size());
+        for (byte[] raw : rawCommits) {
+            parsed.add(RevCommit.parse(raw));
+        }
+        return parsed;
+    }
+
+    /**
+     * The first of the branches, in order, that contains the commit.
+     */
+    BranchSearchResult findBranch(ObjectId commit, List<Ref> branches, BranchSearchBudget budget) throws IOException;
+
+    @Override
+    void close();
+}
@@ -0,0 +1,84 @@
+package no.skatteetaten.aurora.version.git;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.jgit.lib.ObjectId;
+
+import no.skatteetaten.aurora.version.suggest.VersionScheme;
+
+/**
+ * The distances between commits and the nearest version tags of commits found by the {@link CommitHistory} of a
+ * {@link GitRepo}, so that a suggestion asking for the distance version of a commit more than once, or many
+ * suggestions on the same repository, walk the history only once.
+ * <p>
+ * The number of commits between two commits never changes, so the counts are shared with the repositories created by
+ * {@link GitRepo#withKnownTags(KnownTags)}. The nearest version tag depends on the tags, so each set of tags has its
+ * own, and they are forgotten when the refs are read again. Which tags count as version tags depends on the
+ * {@link VersionScheme}, so the nearest tags are kept by scheme.
+ */
+final class DistanceCache {
+
+    private final Map<String, Integer> counts;
+
+    private final Map<String, Optional<VersionTagDistance>> nearestTags = new ConcurrentHashMap<>();
+
+    DistanceCache() {
+        this(new ConcurrentHashMap<>());
+    }
+
+    private DistanceCache(Map<String, Integer> counts) {
+        this.counts = counts;
+    }
+
+    /**
+     * A cache for another set of tags, sharing the counts of commits with this one.
+     */
+    DistanceCache forOtherTags() {
+        return new DistanceCache(counts);
+    }
+
+    int getCount(ObjectId from, ObjectId to, Counter counter) throws IOException {
+        String key = from.name() + ".." + to.name();
+        Integer cached = counts.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        int count = counter.count(from, to);
+        counts.put(key, count);
+        return count;
+    }
+
+    Optional<VersionTagDistance> getNearestTag(ObjectId commit, String versionPrefix, VersionScheme scheme,
+        NearestTagFinder finder) throws IOException {
+
+        String key = scheme.getName() + ":" + versionPrefix + ":" + commit.name();
+        Optional<VersionTagDistance> cached = nearestTags.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        Optional<VersionTagDistance> nearestTag = finder.find(commit, versionPrefix, scheme);
+        nearestTags.put(key, nearestTag);
+        return nearestTag;
+    }
+
+    /**
+     * Forgets the nearest version tags, for when the tags have changed.
+     */
+    void clearNearestTags() {
+        nearestTags.clear();
+    }
+
+    @FunctionalInterface
+    interface Counter {
+        int count(ObjectId from, ObjectId to) throws IOException;
+    }
+
+    @FunctionalInterface
+    interface NearestTagFinder {
+        Optional<VersionTagDistance> find(ObjectId commit, String versionPrefix, VersionScheme scheme)
+            throws IOException;
+    }
+}
@@ -0,0 +1,19 @@
+package no.skatteetaten.aurora.version.git;
+
+/**
+ * How a {@link GitRepo} reads commits and searches branches. Refs and tags are always read through JGit.
+ */
+public enum GitBackend {
+
+    /**
+     * JGit reads the pack files in process.
+     */
+    JGIT,
+
+    /**
+     * A long-lived <code>git cat-file --batch</code> process reads commits, with requests pipelined, and
+     * <code>git for-each-ref --contains</code> searches branches. Needs <code>git</code> on the path. Faster than JGit
+     * on some very large repositories. The branch search budget is only applied as a timeout.
+     */
+    NATIVE
+}
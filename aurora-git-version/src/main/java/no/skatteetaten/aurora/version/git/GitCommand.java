@@ -0,0 +1,55 @@
+package no.skatteetaten.aurora.version.git;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Starts the command line git for the {@link GitBackend#NATIVE} backend. Errors from git go to the error output of
+ * this process.
+ */
+final class GitCommand {
+
+    private GitCommand() {
+    }
+
+    static Process start(File gitDir, String... args) throws IOException {
+        return builder(gitDir, args).start();
+    }
+
+    /**
+     * Starts git with its output written to the given file, so it never blocks on a full pipe while it is waited for.
+     */
+    static Process start(File gitDir, File output, String... args) throws IOException {
+        return builder(gitDir, args).redirectOutput(output).start();
+    }
+
+    private static ProcessBuilder builder(File gitDir, String... args) {
+        List<String> command = new ArrayList<>(Arrays.asList("git", "--git-dir=" + gitDir.getAbsolutePath()));
+        command.addAll(Arrays.asList(args));
+        return new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT);
+    }
+
+    /**
+     * Waits for the process to exit, at most <code>timeoutMillis</code> unless it is 0.
+     *
+     * @return <code>false</code> if the process is still running when the time is up
+     */
+    static boolean waitFor(Process process, long timeoutMillis) throws IOException {
+        try {
+            if (timeoutMillis == 0) {
+                process.waitFor();
+                return true;
+            }
+            return process.waitFor(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            process.destroy();
+            throw new InterruptedIOException("Interrupted while waiting for git");
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package no.skatteetaten.aurora.version.git;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.eclipse.jgit.errors.RepositoryNotFoundException;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.lib.RepositoryCache;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+import org.eclipse.jgit.util.FS;
+
+/**
+ * The git directory of a working tree. The <code>.git</code> entry of a working tree is either the git directory
+ * itself, or, for submodules and linked worktrees, a file with a <code>gitdir:</code> line pointing to it. The git
+ * directory of a linked worktree only holds its own HEAD, with a <code>commondir</code> file pointing to the
+ * repository that holds the objects and the refs. A bare repository, like a mirror, is its own git directory and has
+ * no working tree.
+ */
+final class GitDir {
+
+    private static final String GITDIR_PREFIX = "gitdir:";
+
+    private static final String COMMONDIR = "commondir";
+
+    /**
+     * For a repository opened by the caller: the shared HEAD, and the working tree taken from the repository.
+     */
+    static final GitDir OPENED_REPOSITORY = new GitDir(null, null, null);
+
+    private final File workTree;
+
+    private final File gitDir;
+
+    private final File commonDir;
+
+    private GitDir(File workTree, File gitDir, File commonDir) {
+        this.workTree = workTree;
+        this.gitDir = gitDir;
+        this.commonDir = commonDir;
+    }
+
+    static GitDir resolve(File workTree) throws IOException {
+        File dotGit = new File(workTree, Constants.DOT_GIT);
+        if (!dotGit.exists() && RepositoryCache.FileKey.isGitRepository(workTree, FS.DETECTED)) {
+            File bareDir = workTree.getCanonicalFile();
+            return new GitDir(null, bareDir, bareDir);
+        }
+        File gitDir = dotGit.isFile() ? readGitFile(dotGit) : dotGit;
+        File commonDirFile = new File(gitDir, COMMONDIR);
+        File commonDir = commonDirFile.isFile() ? resolvePath(gitDir, readFirstLine(commonDirFile)) : gitDir;
+        return new GitDir(workTree.getCanonicalFile(), gitDir.getCanonicalFile(), commonDir.getCanonicalFile());
+    }
+
+    /**
+     * The working tree, or <code>null</code> for a bare repository.
+     */
+    File getWorkTree() {
+        return workTree;
+    }
+
+    /**
+     * The directory with the objects and the refs. The same for all worktrees of a repository.
+     */
+    File getCommonDir() {
+        return commonDir;
+    }
+
+    boolean isLinkedWorktree() {
+        return commonDir != null && !commonDir.equals(gitDir);
+    }
+
+    /**
+     * The file with the HEAD of this working tree, or of the repository if it is bare.
+     */
+    File getHeadFile() {
+        return new File(gitDir, Constants.HEAD);
+    }
+
+    /**
+     * The HEAD of this working tree. Linked worktrees have their own HEAD outside of the shared repository.
+     */
+    Head getHead() {
+        return isLinkedWorktree() ? Head.fromFile(getHeadFile()) : Head.SHARED;
+    }
+
+    Repository open() throws IOException {
+        FileRepositoryBuilder builder = new FileRepositoryBuilder().setGitDir(commonDir);
+        if (workTree == null) {
+            builder.setBare();
+        } else {
+            builder.setWorkTree(workTree);
+        }
+        return builder
+            .readEnvironment() // scan environment GIT_* variables
+            .setMustExist(true)
+            .build();
+    }
+
+    private static File readGitFile(File dotGit) throws IOException {
+        String line = readFirstLine(dotGit);
+        if (!line.startsWith(GITDIR_PREFIX)) {
+            throw new RepositoryNotFoundException(dotGit);
+        }
+        return resolvePath(dotGit.getParentFile(), line.substring(GITDIR_PREFIX.length()).trim());
+    }
+
+    private static String readFirstLine(File file) throws IOException {
+        return Files.readAllLines(file.toPath(), StandardCharsets.UTF_8).stream()
+            .findFirst()
+            .orElse("")
+            .trim();
+    }
+
+    private static File resolvePath(File base, String path) {
+        File file = new File(path);
+        return file.isAbsolute() ? file : new File(base, path);
+    }
+}
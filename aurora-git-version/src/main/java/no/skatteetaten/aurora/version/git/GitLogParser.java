@@ -1,13 +1,18 @@
 package no.skatteetaten.aurora.version.git;
 
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.UnsupportedCharsetException;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
-import java.util.stream.Stream;
 
 import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.util.RawParseUtils;
+
+import no.skatteetaten.aurora.version.utils.Latin1CharSequence;
 
 public final class GitLogParser {
 
@@ -38,25 +43,52 @@ public final class GitLogParser {
      * regular expressions in a fixed order and use the first branch name found, if there are any.
      */
     public static Optional<String> findOriginatingBranchName(Optional<RevCommit> commitLogEntry) {
-        if (!commitLogEntry.isPresent()) {
+        return commitLogEntry
+            .map(RevCommit::getRawBuffer)
+            .flatMap(GitLogParser::findOriginatingBranchName);
+    }
+
+    /**
+     * Same as {@link #findOriginatingBranchName(Optional)}, but on a raw commit object. The expressions are matched on
+     * a Latin-1 view of the message bytes, and only the branch name found is decoded, so a merge commit with a huge
+     * body is never decoded into a String. The branch name is decoded in the encoding given by the
+     * <code>encoding</code> header of the commit, if any.
+     */
+    public static Optional<String> findOriginatingBranchName(byte[] rawCommit) {
+        int messageStart = RawParseUtils.commitMessage(rawCommit, 0);
+        if (messageStart < 0) {
             return Optional.empty();
         }
+        CharSequence message = new Latin1CharSequence(rawCommit, messageStart, rawCommit.length);
         return PATTERNS.stream()
-            .map(pattern -> pattern.matcher(commitLogEntry.get().getFullMessage()))
-            .map(GitLogParser::fetchBranchGroupFromFirstMatch)
-            .flatMap(GitLogParser::optionalToStream)
+            .map(pattern -> pattern.matcher(message))
+            .filter(Matcher::find)
+            .map(matcher -> decode(rawCommit, messageStart + matcher.start("branch"),
+                messageStart + matcher.end("branch")))
             .findFirst();
     }
 
-    private static Pattern buildMultilinePattern(String pattern) {
-        return Pattern.compile(pattern, Pattern.MULTILINE);
-    }
-
-    private static <T> Stream<T> optionalToStream(Optional<T> optional) {
-        return optional.isPresent() ? Stream.of(optional.get()) : Stream.empty();
+    /**
+     * Decodes in the encoding named by the commit. Without one, or with one this JVM does not know, the bytes are
+     * decoded as UTF-8 if they are valid UTF-8, and as Latin-1 otherwise, like JGit does.
+     */
+    private static String decode(byte[] rawCommit, int start, int end) {
+        if (RawParseUtils.encoding(rawCommit, 0) >= 0) {
+            try {
+                Charset charset = RawParseUtils.parseEncoding(rawCommit);
+                return new String(rawCommit, start, end - start, charset);
+            } catch (IllegalCharsetNameException | UnsupportedCharsetException e) {
+                // Fall back as for a commit without an encoding
+            }
+        }
+        return RawParseUtils.decode(rawCommit, start, end);
     }
 
-    private static Optional<String> fetchBranchGroupFromFirstMatch(Matcher matcher) {
-        return matcher.find() ? Optional.of(matcher.group("branch")) : Optional.empty();
+    /**
+     * The expressions are matched on bytes, where a multi byte UTF-8 character may contain a byte that Java otherwise
+     * takes for a line terminator, so only <code>\n</code> ends a line.
+     */
+    private static Pattern buildMultilinePattern(String pattern) {
+        return Pattern.compile(pattern, Pattern.MULTILINE | Pattern.UNIX_LINES);
     }
 }
@@ -2,100 +2,183 @@ package no.skatteetaten.aurora.version.git;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.BiPredicate;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
-import java.util.stream.StreamSupport;
 
-import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.lib.Constants;
 import org.eclipse.jgit.lib.ObjectId;
-import org.eclipse.jgit.lib.Ref;
 import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.revwalk.RevCommit;
-import org.eclipse.jgit.revwalk.RevWalk;
-import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+
+import no.skatteetaten.aurora.version.suggest.VersionScheme;
 
 /**
  * Wrapper which hides the annoying IOExceptions
+ * <p>
+ * A GitRepo is safe for concurrent use, so one instance can be shared by several threads calculating versions from
+ * the same checkout. Every call opens its own {@link org.eclipse.jgit.revwalk.RevWalk} or object reader, and the
+ * branches and tags are read once into an immutable snapshot that all calls share. The snapshot is read again when
+ * <code>packed-refs</code> or the directories of the loose refs have been modified since it was taken, or when
+ * {@link #refreshRefs()} is called.
  */
-public class GitRepo {
+public class GitRepo implements AutoCloseable {
 
     private final Repository gitRepo;
 
+    private final GitDir gitDir;
+
+    private final VersionTags versionTags;
+
+    private final CommitHistory commitHistory;
+
+    private final CommitStore commitStore;
+
+    private final boolean ownsRepository;
+
+    private final Object refSnapshotLock = new Object();
+
+    private volatile RefSnapshot refSnapshot;
+
     public GitRepo(Repository gitRepo) {
+        this(gitRepo, null, GitDir.OPENED_REPOSITORY, CommitStore.create(GitBackend.JGIT, gitRepo), null, false);
+    }
+
+    GitRepo(Repository gitRepo, GitDir gitDir, GitBackend backend) {
+        this(gitRepo, null, gitDir, CommitStore.create(backend, gitRepo), null, false);
+    }
+
+    /**
+     * @param parentHistory  the history of the repository this one reads other tags than, to share the distances
+     *                       between commits with, or <code>null</code>
+     * @param ownsRepository whether the repository was opened for this one, and is closed with it
+     */
+    private GitRepo(Repository gitRepo, KnownTags knownTags, GitDir gitDir, CommitStore commitStore,
+        CommitHistory parentHistory, boolean ownsRepository) {
+
         this.gitRepo = gitRepo;
+        this.gitDir = gitDir;
+        this.commitStore = commitStore;
+        this.ownsRepository = ownsRepository;
+        this.versionTags = new VersionTags(this::getRefSnapshot, knownTags);
+        this.commitHistory = parentHistory == null
+            ? new CommitHistory(gitRepo, versionTags)
+            : parentHistory.withOtherTags(versionTags);
+    }
+
+    /**
+     * Returns a repository that reads tags from the given set instead of from the refs of the local repository. Tags
+     * in the set known only by name are looked up among the local tags, so they can be matched against commits too.
+     * The returned repository shares the repository of this one, and closing it leaves the repository open.
+     */
+    public GitRepo withKnownTags(KnownTags tags) {
+        KnownTags resolvedTags = tags.hasTagsWithoutObjectId()
+            ? tags.resolve(getRefSnapshot()::getTaggedCommit)
+            : tags;
+        return new GitRepo(gitRepo, resolvedTags, gitDir, commitStore, commitHistory, false);
     }
 
     public static GitRepo fromDir(String gitDir) {
         return fromDir(new File(gitDir, "."));
     }
 
+    /**
+     * Opens the repository of the given working tree. The <code>.git</code> entry may be a directory, or a file
+     * pointing to the git directory of a submodule or a linked worktree. A directory without a <code>.git</code>
+     * entry is opened as a bare repository, like a mirror, if it is one.
+     */
     public static GitRepo fromDir(File gitDir) {
+        return fromDir(gitDir, GitBackend.JGIT);
+    }
+
+    /**
+     * Same as {@link #fromDir(File)}, reading commits and searching branches with the given backend. Close the
+     * returned repository to close the opened repository and stop the processes of the native backend.
+     */
+    public static GitRepo fromDir(File gitDir, GitBackend backend) {
         try {
-            FileRepositoryBuilder builder = new FileRepositoryBuilder();
-            Repository repository = builder
-                .setGitDir(new File(gitDir, ".git"))
-                .readEnvironment() // scan environment GIT_* variables
-                .setMustExist(true)
-                .build();
-            return new GitRepo(repository);
+            GitDir resolvedGitDir = GitDir.resolve(gitDir);
+            Repository repository = resolvedGitDir.open();
+            return new GitRepo(repository, null, resolvedGitDir, CommitStore.create(backend, repository), null, true);
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
     }
 
+    /**
+     * The root of the working tree of this repository, or <code>null</code> for a bare repository.
+     */
+    public File getWorkTree() {
+        File workTree = gitDir.getWorkTree();
+        if (workTree != null || gitRepo.isBare()) {
+            return workTree;
+        }
+        return gitRepo.getWorkTree();
+    }
+
+    /**
+     * The paths of the submodules in the commit at HEAD, relative to the root of the working tree.
+     */
+    public List<String> getSubmodulePaths() {
+        return withRepo(repository -> {
+            ObjectId headCommit = gitDir.getHead().resolve(repository);
+            return headCommit != null ? Submodules.findPaths(repository, headCommit) : Collections.emptyList();
+        });
+    }
+
     public List<String> getVersionTagsFromCommit(ObjectId commit, String versionPrefix) {
         if (commit == null) {
             return Collections.emptyList();
         }
-        return withRepo(repository -> {
-            List<String> tags = new ArrayList<>();
-            try (Git git = new Git(repository)) {
-                List<Ref> call = git.tagList().call();
-                for (Ref ref : call) {
-                    ObjectId objectId = ref.getObjectId();
-                    Ref peeledRef = repository.peel(ref);
-                    if (peeledRef.getPeeledObjectId() != null) {
-                        objectId = peeledRef.getPeeledObjectId();
-                    }
-                    if (!objectId.equals(commit)) {
-                        continue;
-                    }
-                    String tagName = tagNameFromRef(ref);
-                    if (tagName.startsWith(versionPrefix)) {
-                        tags.add(tagName);
-                    }
-                }
-            }
-            return tags;
-        });
+        return withRepo(repository -> versionTags.getTagsOnCommit(commit, versionPrefix));
+    }
+
+    /**
+     * The tagger times in milliseconds of the annotated tags among the given tags, by tag name. The tag objects are
+     * read once and cached. Lightweight tags and tags from {@link #withKnownTags(KnownTags)} have none.
+     */
+    public Map<String, Long> getTaggerTimes(List<String> tagNames) {
+        return withRepo(repository -> versionTags.getTaggerTimes(repository, tagNames));
     }
 
     /**
-     * Get the first log entry with an id matching the given commit id
+     * Get the log entry for the given commit id. The commit is read directly from the object database, and the
+     * message is not decoded until it is asked for.
      */
     public Optional<RevCommit> getLogEntryForCommit(ObjectId commit) {
         if (commit == null) {
             return Optional.empty();
         }
-        return withRepo(repository -> {
-            try (Git git = new Git(repository)) {
-                Iterable<RevCommit> revCommitIterable = git.log().add(commit).call();
-                return StreamSupport.stream(revCommitIterable.spliterator(), false).findFirst();
-            }
-        });
+        return withRepo(repository -> Optional.of(commitStore.readCommits(Collections.singletonList(commit)).get(0)));
     }
 
-    private String tagNameFromRef(Ref ref) {
-        String tagNamePrefix = "refs/tags/";
-        return ref.getName().replaceFirst(tagNamePrefix, "");
+    /**
+     * Same as {@link #getLogEntryForCommit(ObjectId)} for many commits at once, in the same order. The native backend
+     * pipelines the reads.
+     */
+    public List<RevCommit> getLogEntriesForCommits(List<ObjectId> commits) {
+        return withRepo(repository -> commitStore.readCommits(commits));
+    }
+
+    /**
+     * Finds the name of the originating branch from the message of the given merge commit. See
+     * {@link GitLogParser#findOriginatingBranchName(byte[])}.
+     */
+    public Optional<String> findOriginatingBranchName(ObjectId commit) {
+        if (commit == null) {
+            return Optional.empty();
+        }
+        return withRepo(repository -> commitStore.findOriginatingBranchName(commit));
     }
 
-    public ObjectId resolve(String head) {
-        return withRepo(repository -> repository.resolve(head));
+    public ObjectId resolve(String revision) {
+        return withRepo(repository -> Constants.HEAD.equals(revision)
+            ? gitDir.getHead().resolve(repository)
+            : repository.resolve(revision));
     }
 
     /**
@@ -106,19 +189,84 @@ public class GitRepo {
         boolean fallbackToBranchNameEnv,
         String fallbackBranchNameEnvName) {
 
+        return findBranchName(fallbackToBranchNameEnv, fallbackBranchNameEnvName, BranchSearchBudget.UNLIMITED)
+            .getBranchName();
+    }
+
+    /**
+     * Same as {@link #getBranchName(boolean, String)}, but the search for a branch containing a detached HEAD is
+     * limited by the given budget. The returned result tells how the branch name was determined.
+     */
+    public BranchSearchResult findBranchName(
+        boolean fallbackToBranchNameEnv,
+        String fallbackBranchNameEnvName,
+        BranchSearchBudget budget) {
+
         return withRepo(repository -> {
-            ObjectId head = repository.resolve("HEAD");
-            String currentBranchName = repository.getBranch();
+            ObjectId headCommit = gitDir.getHead().resolve(repository);
+            String currentBranchName = gitDir.getHead().getBranch(repository);
 
-            boolean isDetachedHead = head.getName().equals(currentBranchName);
+            boolean isDetachedHead = headCommit.getName().equals(currentBranchName);
             if (!isDetachedHead) {
-                return Optional.of(currentBranchName);
+                return BranchSearchResult.checkedOut(currentBranchName);
             }
 
-            return getBranchNameFromDetachedHead(head, fallbackToBranchNameEnv, fallbackBranchNameEnvName);
+            return findBranchNameFromDetachedHead(
+                headCommit, fallbackToBranchNameEnv, fallbackBranchNameEnvName, budget);
         });
     }
 
+    /**
+     * Determine the branch of the given revision instead of the branch of HEAD, for instance in a bare mirror where
+     * nothing is checked out. A revision naming a local branch, like <code>master</code> or
+     * <code>refs/heads/master</code>, gives that branch. For any other revision the branches are searched for the
+     * commit within the given budget, as for a detached HEAD. The environment fallback is not used, since it describes
+     * the checkout rather than the revision.
+     */
+    public BranchSearchResult findBranchNameOfRevision(String revision, BranchSearchBudget budget) {
+        ObjectId commit = resolve(revision);
+        if (commit == null) {
+            throw new IllegalArgumentException("Unknown revision " + revision);
+        }
+        return withRepo(repository -> {
+            Optional<String> branchName = findLocalBranchName(repository, revision);
+            if (branchName.isPresent()) {
+                return BranchSearchResult.checkedOut(branchName.get());
+            }
+            return commitStore.findBranch(commit, getRefSnapshot().getBranches(), budget);
+        });
+    }
+
+    /**
+     * The branch of the given revision when it is known without searching the branches for the commit: the branch
+     * checked out for HEAD, the environment fallback for a detached HEAD, or the branch a revision other than HEAD
+     * names. Empty if the branches would have to be searched.
+     */
+    public Optional<BranchSearchResult> findBranchNameWithoutSearch(
+        String revision,
+        boolean fallbackToBranchNameEnv,
+        String fallbackBranchNameEnvName) {
+
+        return withRepo(repository -> {
+            if (!Constants.HEAD.equals(revision)) {
+                return findLocalBranchName(repository, revision).map(BranchSearchResult::checkedOut);
+            }
+            ObjectId headCommit = gitDir.getHead().resolve(repository);
+            String currentBranchName = gitDir.getHead().getBranch(repository);
+            if (headCommit != null && !headCommit.getName().equals(currentBranchName)) {
+                return Optional.of(BranchSearchResult.checkedOut(currentBranchName));
+            }
+            String branchNameFromEnv = fallbackToBranchNameEnv ? System.getenv(fallbackBranchNameEnvName) : null;
+            return Optional.ofNullable(branchNameFromEnv).map(BranchSearchResult::fromEnvironment);
+        });
+    }
+
+    private static Optional<String> findLocalBranchName(Repository repository, String revision) throws IOException {
+        return Optional.ofNullable(
+            repository.exactRef(revision.startsWith(Constants.R_HEADS) ? revision : Constants.R_HEADS + revision))
+            .map(branch -> Repository.shortenRefName(branch.getName()));
+    }
+
     /**
      * If we are trying to determine the branch name of the current commit when we are in detached head
      * state, we need to resort to either hints or heuristics. This method will first check for the presence of
@@ -134,42 +282,239 @@ public class GitRepo {
         boolean fallbackToBranchNameEnv,
         String fallbackBranchNameEnvName) {
 
+        return findBranchNameFromDetachedHead(commitId, fallbackToBranchNameEnv, fallbackBranchNameEnvName,
+            BranchSearchBudget.UNLIMITED).getBranchName();
+    }
+
+    /**
+     * Same as {@link #getBranchNameFromDetachedHead(ObjectId, boolean, String)}, but stops searching when the given
+     * budget is spent.
+     */
+    public BranchSearchResult findBranchNameFromDetachedHead(
+        ObjectId commitId,
+        boolean fallbackToBranchNameEnv,
+        String fallbackBranchNameEnvName,
+        BranchSearchBudget budget) {
+
         return withRepo(repository -> {
             if (fallbackToBranchNameEnv) {
                 String branchNameFromEnv = System.getenv(fallbackBranchNameEnvName);
                 if (branchNameFromEnv != null) {
-                    return Optional.of(branchNameFromEnv);
+                    return BranchSearchResult.fromEnvironment(branchNameFromEnv);
                 }
             }
 
-            RevWalk walk = new RevWalk(repository);
-            RevCommit commit = walk.parseCommit(repository.resolve(commitId.getName() + "^0"));
-            return repository.getAllRefs().entrySet().stream()
-                .filter(e -> e.getKey().startsWith(Constants.R_HEADS))
-                .filter(e -> {
-                    try {
-                        return walk.isMergedInto(commit, walk.parseCommit(e.getValue().getObjectId()));
-                    } catch (IOException e1) {
-                        return false;
-                    }
-                })
-                .map(e -> e.getValue().getName().replaceFirst("refs/heads/", ""))
-                .findFirst();
+            return commitStore.findBranch(commitId, getRefSnapshot().getBranches(), budget);
         });
 
     }
 
+    /**
+     * The version tags of each of the prefixes, keyed by prefix, for repositories tagging several components with
+     * their own prefixes, like <code>api/v</code> and <code>web/v</code>. Only the tags with one of the prefixes are
+     * read, since the tags are ordered by name.
+     *
+     * @param commit the commit to find the tags on for {@link NamespaceTags#getTagsOnCommit()}, may be
+     *               <code>null</code>
+     */
+    public Map<String, NamespaceTags> getVersionTagsByNamespace(ObjectId commit, List<String> prefixes) {
+        return versionTags.getNamespaces(commit, prefixes);
+    }
+
+    /**
+     * The names of the version tags with the given prefix, by the commit they are on.
+     */
+    public Map<ObjectId, List<String>> getVersionTagsByCommit(String versionPrefix) {
+        return versionTags.getTagsByCommit(versionPrefix);
+    }
+
+    /**
+     * The git note on the given commit under the given notes ref, like <code>refs/notes/versions</code>, if any.
+     */
+    public Optional<String> readNote(String notesRef, ObjectId commit) {
+        return withRepo(repository -> NoteStore.read(repository, notesRef, commit));
+    }
+
+    /**
+     * Adds a git note to the given commit under the given notes ref, replacing any note it has. Another process
+     * updating the notes ref at the same time can make it fail.
+     *
+     * @return whether the note was written
+     */
+    public boolean writeNote(String notesRef, ObjectId commit, String note) {
+        return withRepo(repository -> NoteStore.write(repository, notesRef, commit, note));
+    }
+
+    /**
+     * The commit at the tip of each local branch, keyed by the short name of the branch, from the snapshot of the refs.
+     */
+    public Map<String, ObjectId> getBranchHeads() {
+        return getRefSnapshot().getBranchHeads();
+    }
+
     public List<String> getAllVersionsFromTags(String prefix) {
-        return withRepo(repository -> repository.getTags().entrySet().stream()
-            .filter(e -> e.getKey().startsWith(prefix))
-            .map(e -> e.getKey().replaceFirst(prefix, ""))
+        return withRepo(repository -> versionTags.getVersions(prefix));
+    }
+
+    /**
+     * Same as {@link #getAllVersionsFromTags(String)}, but only the tags on commits reachable from the given commit.
+     * See {@link CommitHistory#findVersionTagsReachableFrom(ObjectId, String)} for how they are found.
+     */
+    public List<String> getAllVersionsFromTagsReachableFrom(ObjectId commit, String prefix) {
+        if (commit == null) {
+            return Collections.emptyList();
+        }
+        return withRepo(repository -> commitHistory.findVersionTagsReachableFrom(commit, prefix).stream()
+            .map(tagName -> tagName.substring(prefix.length()))
             .collect(Collectors.toList()));
     }
 
+    /**
+     * Visits the commits reachable from the given commit, but not from any version tag, until the visitor returns
+     * <code>false</code>. The walk stops at the tag boundary, and the body of each commit is released once it has
+     * been visited, so long ranges are not buffered in memory.
+     */
+    public void forEachCommitSinceVersionTag(ObjectId commit, String versionPrefix, Predicate<RevCommit> visitor) {
+        if (commit == null) {
+            return;
+        }
+        withRepo(repository -> {
+            commitHistory.forEachCommitSinceVersionTag(commit, versionPrefix, visitor);
+            return null;
+        });
+    }
+
+    /**
+     * Visits the commits reachable from <code>to</code>, but not from <code>from</code>, in topological order with
+     * parents before children, together with the version tags on each, until the visitor returns <code>false</code>.
+     * <code>from</code> may be <code>null</code> to visit the whole history. Only the commit headers are parsed.
+     */
+    public void forEachCommitOldestFirst(ObjectId from, ObjectId to, String versionPrefix,
+        BiPredicate<RevCommit, List<String>> visitor) {
+
+        withRepo(repository -> {
+            commitHistory.forEachCommitOldestFirst(from, to, versionPrefix, visitor);
+            return null;
+        });
+    }
+
+    /**
+     * Finds the nearest commit with a semantic version tag, walking from the given commit in commit time order like
+     * <code>git describe</code>, and counts the commits in between. Only commit headers are parsed for the walk. The
+     * nearest tag of each commit and the distances between commits are cached by this repository, so they are found
+     * once however many times they are asked for.
+     */
+    public Optional<VersionTagDistance> findNearestVersionTag(ObjectId commit, String versionPrefix) {
+        return findNearestVersionTag(commit, versionPrefix, VersionScheme.SEMANTIC);
+    }
+
+    /**
+     * Same as {@link #findNearestVersionTag(ObjectId, String)}, but with the tags that are release versions in the
+     * given scheme, the highest of them by the scheme when a commit has more than one.
+     */
+    public Optional<VersionTagDistance> findNearestVersionTag(ObjectId commit, String versionPrefix,
+        VersionScheme scheme) {
+
+        if (commit == null) {
+            return Optional.empty();
+        }
+        return withRepo(repository -> commitHistory.findNearestVersionTag(commit, versionPrefix, scheme));
+    }
+
+    /**
+     * Creates lightweight tags, by name without <code>refs/tags/</code>, on the given commits in one atomic ref
+     * update. Conflicts are checked against the snapshot of the refs already loaded: a tag that already points at the
+     * same commit is left as it is, and a tag pointing at another commit fails the whole update, as does a tag created
+     * on disk since the snapshot was taken. The created tags are added to the snapshot, so the refs are not read
+     * again, and to the {@link RefIndex} if it was up to date.
+     * Tags from {@link #withKnownTags(KnownTags)} are not checked.
+     *
+     * @return the tags that were created
+     */
+    public Map<String, ObjectId> createTags(Map<String, ObjectId> tags) {
+        synchronized (refSnapshotLock) {
+            RefSnapshot snapshot = getRefSnapshot();
+            Map<String, ObjectId> newTags = TagWriter.findNewTags(snapshot, tags);
+            if (newTags.isEmpty()) {
+                return newTags;
+            }
+            // JGit does not run the reference-transaction hook, so an index that is up to date is updated here
+            boolean indexCurrent = RefIndex.isCurrent(gitDir);
+            List<String> failures = withRepo(repository -> TagWriter.createTags(repository, newTags));
+            if (!failures.isEmpty()) {
+                throw new IllegalStateException("Could not create tags: " + String.join(", ", failures));
+            }
+            if (indexCurrent) {
+                withRepo(repository -> {
+                    RefIndex.addCreatedTags(repository, gitDir, newTags);
+                    return null;
+                });
+            }
+            refSnapshot = withRepo(repository -> snapshot.withTags(newTags, repository, gitDir));
+            commitHistory.forgetNearestVersionTags();
+            return newTags;
+        }
+    }
+
+    /**
+     * Applies a reference transaction to the ref index of the repository, as git's <code>reference-transaction</code>
+     * hook. The branches and tags are read from the index instead of from the ref database while it is up to date, see
+     * {@link RefIndex}.
+     *
+     * @param state   the state of the transaction given to the hook, like <code>committed</code>
+     * @param updates the lines given to the hook on stdin, one per updated ref
+     */
+    public void updateRefIndex(String state, List<String> updates) {
+        withRepo(repository -> {
+            RefIndex.update(repository, gitDir, state, updates);
+            return null;
+        });
+    }
+
+    /**
+     * Takes a new snapshot of the branches and tags, so refs changed after the previous one are seen by later calls.
+     * Calls already running keep the snapshot they started with.
+     */
+    public void refreshRefs() {
+        synchronized (refSnapshotLock) {
+            refSnapshot = null;
+            commitHistory.forgetNearestVersionTags();
+        }
+    }
+
+    private RefSnapshot getRefSnapshot() {
+        RefSnapshot snapshot = refSnapshot;
+        if (snapshot != null && snapshot.isCurrent()) {
+            return snapshot;
+        }
+        synchronized (refSnapshotLock) {
+            if (refSnapshot != null && !refSnapshot.isCurrent()) {
+                refSnapshot = null;
+                commitHistory.forgetNearestVersionTags();
+            }
+            if (refSnapshot == null) {
+                refSnapshot = withRepo(repository -> RefSnapshot.of(repository, gitDir));
+            }
+            return refSnapshot;
+        }
+    }
+
     public Optional<RevCommit> getLogEntryForCurrentHead() {
         return getLogEntryForCommit(resolve("HEAD"));
     }
 
+    /**
+     * Stops the processes of the native backend, and closes the repository if it was opened by
+     * {@link #fromDir(File, GitBackend)}. A repository given to the constructor is left open for its owner to close.
+     */
+    @Override
+    public void close() {
+        commitStore.close();
+        if (ownsRepository) {
+            gitRepo.close();
+        }
+    }
+
     private <T> T withRepo(NoExceptionFunction<Repository, T> fn) {
         try {
             return fn.apply(gitRepo);
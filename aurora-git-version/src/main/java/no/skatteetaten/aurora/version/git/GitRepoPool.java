@@ -0,0 +1,82 @@
+package no.skatteetaten.aurora.version.git;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.eclipse.jgit.lib.Repository;
+
+/**
+ * Opens the repositories of many working trees, like the submodules of a superproject, opening each repository only
+ * once. Working trees whose git directories resolve to the same repository, like the linked worktrees of one
+ * repository, share the opened repository and its object database. The pool is safe for concurrent use.
+ * <p>
+ * Object databases borrowed through <code>objects/info/alternates</code> are not opened by the pool. JGit opens an
+ * alternate that is the object directory of a repository, as with <code>git clone --reference</code>, through its
+ * {@link org.eclipse.jgit.lib.RepositoryCache}, so all the repositories borrowing from it share one opened instance.
+ * An alternate that is a bare object directory outside of any repository is opened by each repository borrowing it,
+ * since JGit takes alternates as paths and gives no way to pass it an object database that is already open. The
+ * pool does not open its own repositories through that cache, which keeps them open after they are closed, so a
+ * repository that is both in the pool and borrowed from is opened twice.
+ */
+public final class GitRepoPool implements AutoCloseable {
+
+    private final Map<File, Repository> repositories = new ConcurrentHashMap<>();
+
+    private final GitBackend backend;
+
+    private final Queue<GitRepo> opened = new ConcurrentLinkedQueue<>();
+
+    public GitRepoPool() {
+        this(GitBackend.JGIT);
+    }
+
+    /**
+     * A pool whose repositories read commits and search branches with the given backend.
+     */
+    public GitRepoPool(GitBackend backend) {
+        this.backend = backend;
+    }
+
+    /**
+     * Opens the repository of the given working tree, where <code>.git</code> may be a directory, or a file
+     * pointing to the git directory of a submodule or linked worktree.
+     */
+    public GitRepo open(File workTree) {
+        try {
+            GitDir gitDir = GitDir.resolve(workTree);
+            Repository repository = repositories.computeIfAbsent(gitDir.getCommonDir(), dir -> openUnchecked(gitDir));
+            GitRepo gitRepo = new GitRepo(repository, gitDir, backend);
+            opened.add(gitRepo);
+            return gitRepo;
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * The number of distinct repositories opened.
+     */
+    public int size() {
+        return repositories.size();
+    }
+
+    @Override
+    public void close() {
+        opened.forEach(GitRepo::close);
+        opened.clear();
+        repositories.values().forEach(Repository::close);
+        repositories.clear();
+    }
+
+    private static Repository openUnchecked(GitDir gitDir) {
+        try {
+            return gitDir.open();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -1,21 +1,27 @@
 package no.skatteetaten.aurora.version.git;
 
 import static java.util.Collections.emptyList;
+import static java.util.Collections.emptyMap;
 import static no.skatteetaten.aurora.version.git.GitVersion.VersionSource.TAG;
 
 import java.io.File;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
+import org.eclipse.jgit.lib.Constants;
 import org.eclipse.jgit.lib.ObjectId;
 
-import no.skatteetaten.aurora.version.suggest.VersionNumber;
+import no.skatteetaten.aurora.version.suggest.VersionScheme;
+import no.skatteetaten.aurora.version.suggest.VersionSegment;
 import no.skatteetaten.aurora.version.utils.Assert;
 
 public class GitVersion {
 
     private final Options options;
 
+    private final BranchRules branchRules;
+
     private final GitRepo repository;
 
     public GitVersion(GitRepo gitRepo, Options options) {
@@ -23,6 +29,7 @@ public class GitVersion {
         Assert.notNull(options, "SuggesterOptions cannot be null");
         this.repository = gitRepo;
         this.options = options;
+        this.branchRules = BranchRules.of(options);
     }
 
     public static Version determineVersion(File gitDir) {
@@ -49,49 +56,99 @@ public class GitVersion {
      * The default behaviour can be modified with the <code>options</code> object.
      */
     public static Version determineVersion(File gitDir, Options options) {
-        return new GitVersion(GitRepo.fromDir(gitDir), options).determineVersion();
+        if (options.storageTuning != null) {
+            options.storageTuning.install();
+        }
+        try (GitRepo repository = GitRepo.fromDir(gitDir, options.backend)) {
+            return new GitVersion(repository, options).determineVersion();
+        }
     }
 
+    /**
+     * The most recent of the given version tags, see {@link TagSortKey} for the order. The list is not changed.
+     */
     public static Optional<String> getMostRecentTag(List<String> tags) {
+        return getMostRecentTag(tags, emptyMap());
+    }
 
-        tags.sort((s1, s2) -> {
-            int lengthComp = Integer.compare(s1.length(), s2.length());
-            if (lengthComp != 0) {
-                // If the tag names are not the same length, the shortest ones should come first
-                return lengthComp;
+    /**
+     * Same as {@link #getMostRecentTag(List)}, but tags are first ordered by the given tagger times, by tag name. Tags
+     * without a tagger time come before the others. The sort key of each tag is computed once, and the most recent
+     * tag is found in one pass over the tags.
+     */
+    public static Optional<String> getMostRecentTag(List<String> tags, Map<String, Long> taggerTimes) {
+        TagSortKey mostRecent = null;
+        for (String tag : tags) {
+            TagSortKey key = TagSortKey.of(tag, taggerTimes.get(tag));
+            if (mostRecent == null || key.compareTo(mostRecent) > 0) {
+                mostRecent = key;
             }
-            // If the tag names are the same length, order them by their natural order
-            return s1.compareTo(s2);
-        });
-        // Now, the tags list will be either empty or ordered by their natural order with the shortest names first.
-        // We can now get the last tag, assuming this is the most recent tag. For instance, in a list of tags like
-        // the following; dev-1, dev-10, dev-11, dev-2, dev-3..., we will get dev-11 as the most recent tag.
-        return tags.isEmpty() ? Optional.empty() : Optional.of(tags.get(tags.size() - 1));
+        }
+        return Optional.ofNullable(mostRecent).map(TagSortKey::getTagName);
     }
 
     public Version determineVersion() {
-        Optional<String> currentBranchName = getCurrentBranchName();
-
-        ObjectId head = repository.resolve("HEAD");
+        ObjectId head = repository.resolve(options.revision);
+        if (head == null && !Constants.HEAD.equals(options.revision)) {
+            throw new IllegalArgumentException("Unknown revision " + options.revision);
+        }
+        BranchSearchResult branchSearch = findCurrentBranchName();
+        Optional<String> currentBranchName = branchSearch.getBranchName();
 
         boolean shouldDetermineVersionFromTag = currentBranchName
-            .map(options::shouldDetermineVersionFromTag)
+            .map(branchRules::shouldDetermineVersionFromTag)
             .orElse(false);
 
         Optional<String> versionTagOnHead = shouldDetermineVersionFromTag
             ? getVersionTagOnCommit(head)
             : Optional.empty();
 
-        return versionTagOnHead
+        Version version = versionTagOnHead
             .map(v -> versionFromTagOrBranchIfNotReleaseBranch(v, currentBranchName))
             .orElseGet(() -> currentBranchName
+                .map(branchName -> getVersionFromBranch(branchName, head))
+                .orElse(new Version(options.fallbackVersion, VersionSource.FALLBACK)));
+        return version.withGitState(branchSearch, versionTagOnHead.orElse(null));
+    }
+
+    /**
+     * The version {@link #determineVersion()} gives a commit with the given version tags on the given branch, for
+     * callers that already know the branch and the tags. Distance versions are not given, since they need the
+     * history of the commit.
+     */
+    public Version determineVersion(String branchName, List<String> versionTagsOnCommit) {
+        return determineVersion(BranchSearchResult.checkedOut(branchName), versionTagsOnCommit);
+    }
+
+    /**
+     * Same as {@link #determineVersion(String, List)}, with the branch as found by {@link #findBranch()}, so one
+     * branch search can be shared by several versions of the same commit. Without a branch the fallback version is
+     * given.
+     */
+    public Version determineVersion(BranchSearchResult branchSearch, List<String> versionTagsOnCommit) {
+        Optional<String> branchName = branchSearch.getBranchName();
+        Optional<String> versionTag = branchName.filter(branchRules::shouldDetermineVersionFromTag).isPresent()
+            ? findMostRecentTag(versionTagsOnCommit)
+            : Optional.empty();
+
+        Version version = versionTag
+            .map(v -> versionFromTagOrBranchIfNotReleaseBranch(v, branchName))
+            .orElseGet(() -> branchName
                 .map(this::getVersionFromBranchName)
                 .orElse(new Version(options.fallbackVersion, VersionSource.FALLBACK)));
+        return version.withGitState(branchSearch, versionTag.orElse(null));
+    }
+
+    /**
+     * Finds the branch of the commit to determine the version of, as {@link #determineVersion()} does.
+     */
+    public BranchSearchResult findBranch() {
+        return findCurrentBranchName();
     }
 
     private Version versionFromTagOrBranchIfNotReleaseBranch(String v, Optional<String> currentBranchName) {
         Version version = getVersionFromVersionTag(v);
-        if (version.source == TAG && VersionNumber.isValidSemanticVersion(version.getVersion())) {
+        if (version.source == TAG && options.versionScheme.parse(version.getVersion()) != null) {
             return currentBranchName
                 .filter(this::isNotReleaseBranch)
                 .map(this::getVersionFromBranchName)
@@ -107,13 +164,52 @@ public class GitVersion {
     }
 
     protected Optional<String> getVersionTagOnCommit(ObjectId head) {
-        return getMostRecentTag(repository.getVersionTagsFromCommit(head, options.versionPrefix));
+        return findMostRecentTag(repository.getVersionTagsFromCommit(head, options.versionPrefix));
     }
 
-    private Optional<String> getCurrentBranchName() {
-        return repository.getBranchName(
+    private Optional<String> findMostRecentTag(List<String> tags) {
+        if (!options.orderTagsByTaggerDate || tags.size() < 2) {
+            return getMostRecentTag(tags);
+        }
+        return getMostRecentTag(tags, repository.getTaggerTimes(tags));
+    }
+
+    private BranchSearchResult findCurrentBranchName() {
+        if (options.branchName != null) {
+            return BranchSearchResult.supplied(options.branchName);
+        }
+        if (!Constants.HEAD.equals(options.revision)) {
+            return repository.findBranchNameOfRevision(options.revision, options.getBranchSearchBudget());
+        }
+        return repository.findBranchName(
             options.fallbackToBranchNameEnv,
-            options.fallbackBranchNameEnvName);
+            options.fallbackBranchNameEnvName,
+            options.getBranchSearchBudget());
+    }
+
+    private Version getVersionFromBranch(String branchName, ObjectId head) {
+        if (branchRules.usesDistanceVersions(branchName)) {
+            Optional<Version> distanceVersion = repository
+                .findNearestVersionTag(head, options.versionPrefix, options.versionScheme)
+                .map(this::getVersionFromDistance);
+            if (distanceVersion.isPresent()) {
+                return distanceVersion.get();
+            }
+        }
+        return getVersionFromBranchName(branchName);
+    }
+
+    /**
+     * Creates a pre-release of the next patch version after the nearest version tag, with the distance to that tag
+     * and the current commit, for example <code>1.4.2-rc.37+g1a2b3c4</code> when the nearest tag is
+     * <code>v1.4.1</code>. The next version is given by the version scheme, so it is <code>58-rc.37+g1a2b3c4</code>
+     * after <code>v57</code> with build numbers.
+     */
+    protected Version getVersionFromDistance(VersionTagDistance tagDistance) {
+        String tagVersion = tagDistance.getTagName().substring(options.versionPrefix.length());
+        VersionScheme scheme = options.versionScheme;
+        String nextVersion = scheme.next(VersionSegment.PATCH, null, scheme.parse(tagVersion));
+        return new Version(tagDistance.toPreReleaseVersion(nextVersion), VersionSource.DISTANCE);
     }
 
     public Version getVersionFromBranchName(String branchName) {
@@ -151,12 +247,13 @@ public class GitVersion {
     }
 
     private boolean isNotReleaseBranch(String b) {
-        return !this.options.branchesToUseTagsAsVersionsFor.contains(b);
+        return !branchRules.usesTagsAsVersions(b);
     }
 
     public enum VersionSource {
         TAG,
         BRANCH,
+        DISTANCE,
         FALLBACK
     }
 
@@ -166,11 +263,26 @@ public class GitVersion {
 
         private VersionSource source;
 
+        private BranchSearchResult branchSearchResult;
+
+        private String versionTagOnHead;
+
         public Version(String version, VersionSource source) {
             this.version = version;
             this.source = source;
         }
 
+        /**
+         * A copy of the version with the branch it was determined on and the version tag on HEAD, for versions that
+         * are read back rather than determined again.
+         */
+        public Version withGitState(BranchSearchResult branchSearch, String tagOnHead) {
+            Version v = new Version(version, source);
+            v.branchSearchResult = branchSearch;
+            v.versionTagOnHead = tagOnHead;
+            return v;
+        }
+
         public String getVersion() {
             return version;
         }
@@ -182,6 +294,21 @@ public class GitVersion {
         public boolean isFromTag() {
             return getSource() == TAG;
         }
+
+        /**
+         * How the name of the current branch was determined, if the version was determined from the git state.
+         */
+        public Optional<BranchSearchResult> getBranchSearchResult() {
+            return Optional.ofNullable(branchSearchResult);
+        }
+
+        /**
+         * The version tag found on HEAD, if tags were used for determining the version. The tag is reported even if
+         * the version was taken from the branch name because the branch is not a release branch.
+         */
+        public Optional<String> getVersionTagOnHead() {
+            return Optional.ofNullable(versionTagOnHead);
+        }
     }
 
     public static class Options {
@@ -200,6 +327,25 @@ public class GitVersion {
         private int versionMaxLength = DEFAULT_VERSION_MAX_LENGTH;
         private boolean useNormalizationForNorwegianLetters = true;
 
+        /**
+         * The maximum number of commits to walk when searching for the branch of a detached HEAD. When the budget is
+         * spent the version falls back to <code>fallbackVersion</code>. <code>0</code> means no limit.
+         */
+        private int branchSearchMaxCommits = 0;
+
+        /**
+         * The maximum time in milliseconds to spend searching for the branch of a detached HEAD. When the budget is
+         * spent the version falls back to <code>fallbackVersion</code>. <code>0</code> means no limit.
+         */
+        private long branchSearchTimeoutMillis = 0;
+
+        /**
+         * Branches that get a git describe style version, like <code>1.4.2-rc.37+g1a2b3c4</code>, counting the commits
+         * since the nearest version tag, instead of a snapshot version from the branch name. Entries may be glob
+         * patterns like <code>release/*</code>.
+         */
+        private List<String> branchesToUseDistanceVersionsFor = emptyList();
+
         /**
          * Whether or not we should use try to use existing tags on the current commit for determining the current
          * version. Setting this to <code>false</code> will always yield a snapshot version.
@@ -208,11 +354,51 @@ public class GitVersion {
 
         /**
          * A list of branch names that should use the tags of the current commit to determine version. Branches not in
-         * this list will always become snapshot versions. An empty list will use all branches. Use
+         * this list will always become snapshot versions. Entries may be glob patterns like <code>release/*</code>. An
+         * empty list will use all branches. Use
          * <code>tryDeterminingCurrentVersionFromTagName</code> to disable this feature.
          */
         private List<String> branchesToUseTagsAsVersionsFor = emptyList();
 
+        private volatile BranchRules branchRules;
+
+        /**
+         * The commit to determine the version of, as a revision like a branch, a tag or a commit id. Anything but
+         * <code>HEAD</code> needs no checkout, so versions can be determined directly in a bare mirror.
+         */
+        private String revision = Constants.HEAD;
+
+        /**
+         * The branch the commit was built on. When not set, the branch is the checked out branch for
+         * <code>HEAD</code>, the branch itself for a revision naming a branch, and otherwise searched for.
+         */
+        private String branchName;
+
+        /**
+         * The JGit storage settings to install before opening the repository, or <code>null</code> to leave them as
+         * they are. They replace the window cache configuration of the whole JVM, see {@link StorageTuning}.
+         */
+        private StorageTuning storageTuning;
+
+        /**
+         * How the repository opened by {@link GitVersion#determineVersion(File, Options)} reads commits and searches
+         * branches.
+         */
+        private GitBackend backend = GitBackend.JGIT;
+
+        /**
+         * Whether the most recent of several version tags on a commit is the annotated tag with the latest tagger date,
+         * rather than the tag with the highest version. Lightweight tags come before annotated tags, and tags with the
+         * same date are ordered by version.
+         */
+        private boolean orderTagsByTaggerDate = false;
+
+        /**
+         * The scheme of release versions. A version tag on a branch that does not use tags as versions only gives a
+         * snapshot version instead if it is a release version in this scheme.
+         */
+        private VersionScheme versionScheme = VersionScheme.SEMANTIC;
+
         public String getVersionPrefix() {
             return versionPrefix;
         }
@@ -261,16 +447,25 @@ public class GitVersion {
             this.branchesToUseTagsAsVersionsFor = branchesToUseTagsAsVersionsFor;
         }
 
-        public boolean shouldDetermineVersionFromTag(String currentBranchName) {
+        public List<String> getBranchesToUseDistanceVersionsFor() {
+            return branchesToUseDistanceVersionsFor;
+        }
 
-            if (!tryDeterminingCurrentVersionFromTagName) {
-                return false;
-            }
-            // Empty list means all branches
-            if (branchesToUseTagsAsVersionsFor.isEmpty()) {
-                return true;
+        public void setBranchesToUseDistanceVersionsFor(List<String> branchesToUseDistanceVersionsFor) {
+            this.branchesToUseDistanceVersionsFor = branchesToUseDistanceVersionsFor;
+        }
+
+        /**
+         * Compiles the branch rules once and reuses them until the branch lists change. {@link GitVersion} compiles
+         * them once with {@link BranchRules#of}.
+         */
+        public boolean shouldDetermineVersionFromTag(String currentBranchName) {
+            BranchRules rules = branchRules;
+            if (rules == null || !rules.isCompiledFrom(this)) {
+                rules = BranchRules.of(this);
+                branchRules = rules;
             }
-            return branchesToUseTagsAsVersionsFor.contains(currentBranchName);
+            return rules.shouldDetermineVersionFromTag(currentBranchName);
         }
 
         public String getVersionFromBranchNamePostfix() {
@@ -302,5 +497,73 @@ public class GitVersion {
         public void setUseNormalizationForNorwegianLetters(boolean useNormalizationForNorwegianLetters) {
             this.useNormalizationForNorwegianLetters = useNormalizationForNorwegianLetters;
         }
+
+        public int getBranchSearchMaxCommits() {
+            return branchSearchMaxCommits;
+        }
+
+        public void setBranchSearchMaxCommits(int branchSearchMaxCommits) {
+            this.branchSearchMaxCommits = branchSearchMaxCommits;
+        }
+
+        public long getBranchSearchTimeoutMillis() {
+            return branchSearchTimeoutMillis;
+        }
+
+        public void setBranchSearchTimeoutMillis(long branchSearchTimeoutMillis) {
+            this.branchSearchTimeoutMillis = branchSearchTimeoutMillis;
+        }
+
+        public String getRevision() {
+            return revision;
+        }
+
+        public void setRevision(String revision) {
+            this.revision = revision;
+        }
+
+        public String getBranchName() {
+            return branchName;
+        }
+
+        public void setBranchName(String branchName) {
+            this.branchName = branchName;
+        }
+
+        public StorageTuning getStorageTuning() {
+            return storageTuning;
+        }
+
+        public void setStorageTuning(StorageTuning storageTuning) {
+            this.storageTuning = storageTuning;
+        }
+
+        public GitBackend getBackend() {
+            return backend;
+        }
+
+        public void setBackend(GitBackend backend) {
+            this.backend = backend;
+        }
+
+        public boolean isOrderTagsByTaggerDate() {
+            return orderTagsByTaggerDate;
+        }
+
+        public void setOrderTagsByTaggerDate(boolean orderTagsByTaggerDate) {
+            this.orderTagsByTaggerDate = orderTagsByTaggerDate;
+        }
+
+        public VersionScheme getVersionScheme() {
+            return versionScheme;
+        }
+
+        public void setVersionScheme(VersionScheme versionScheme) {
+            this.versionScheme = versionScheme;
+        }
+
+        public BranchSearchBudget getBranchSearchBudget() {
+            return new BranchSearchBudget(branchSearchMaxCommits, branchSearchTimeoutMillis);
+        }
     }
 }
@@ -0,0 +1,62 @@
+package no.skatteetaten.aurora.version.git;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.Repository;
+
+/**
+ * The HEAD of a working tree. Usually that is the HEAD of the repository, but a linked worktree has its own HEAD
+ * file, which JGit does not know about.
+ */
+final class Head {
+
+    static final Head SHARED = new Head(null);
+
+    private static final String SYMREF_PREFIX = "ref:";
+
+    private final File headFile;
+
+    private Head(File headFile) {
+        this.headFile = headFile;
+    }
+
+    static Head fromFile(File headFile) {
+        return new Head(headFile);
+    }
+
+    ObjectId resolve(Repository repository) throws IOException {
+        if (headFile == null) {
+            return repository.resolve(Constants.HEAD);
+        }
+        String target = read();
+        if (!target.startsWith(SYMREF_PREFIX)) {
+            return ObjectId.fromString(target);
+        }
+        Ref ref = repository.exactRef(target.substring(SYMREF_PREFIX.length()).trim());
+        return ref != null ? ref.getObjectId() : null;
+    }
+
+    /**
+     * The short name of the checked out branch, or the commit id when HEAD is detached, like
+     * {@link Repository#getBranch()}.
+     */
+    String getBranch(Repository repository) throws IOException {
+        if (headFile == null) {
+            return repository.getBranch();
+        }
+        String target = read();
+        return target.startsWith(SYMREF_PREFIX)
+            ? Repository.shortenRefName(target.substring(SYMREF_PREFIX.length()).trim())
+            : target;
+    }
+
+    private String read() throws IOException {
+        return new String(Files.readAllBytes(headFile.toPath()), StandardCharsets.UTF_8).trim();
+    }
+}
@@ -0,0 +1,241 @@
+package no.skatteetaten.aurora.version.git;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Objects;
+
+import org.eclipse.jgit.lib.Constants;
+
+/**
+ * A fingerprint of the inputs a version is determined from, for build caches that need to know whether the version
+ * can have changed without determining it. Only ref files and file metadata are read, never objects, so it is much
+ * cheaper than determining the version.
+ * <p>
+ * The fingerprint changes when HEAD, a branch or a version tag moves, since the commits are identified by their ids,
+ * and when any of the values added change. Loose refs are read, while <code>packed-refs</code> is only identified by
+ * its size, modification time and file key, since git always replaces it rather than rewriting it in place. The
+ * fingerprint may therefore also change when nothing relevant did, for instance when refs are packed, but it does not
+ * stay the same when something relevant changed.
+ * <p>
+ * The <code>shallow</code> file of a shallow clone is read too, since deepening the clone moves no ref, but lets the
+ * history reach version tags and branches it did not reach before.
+ */
+public final class InputFingerprint {
+
+    private static final String PACKED_REFS = "packed-refs";
+
+    private static final String SHALLOW = "shallow";
+
+    private static final String LOCK_SUFFIX = ".lock";
+
+    private static final byte SEPARATOR = 0;
+
+    private static final int BUFFER_SIZE = 256;
+
+    private final GitDir gitDir;
+
+    private final MessageDigest digest;
+
+    /**
+     * Large enough for a loose ref or a symbolic ref in one read.
+     */
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+
+    private InputFingerprint(GitDir gitDir) {
+        this.gitDir = gitDir;
+        try {
+            this.digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Starts a fingerprint of the repository at the given path, which is resolved like {@link GitRepo#fromDir(File)}.
+     * HEAD, <code>packed-refs</code> and the <code>shallow</code> file are always part of it.
+     */
+    public static InputFingerprint of(File dir) {
+        try {
+            InputFingerprint fingerprint = new InputFingerprint(GitDir.resolve(dir));
+            if (!fingerprint.addFile(fingerprint.gitDir.getHeadFile(), Constants.HEAD)) {
+                fingerprint.add(Constants.HEAD, null);
+            }
+            fingerprint.addFileMetadata(new File(fingerprint.gitDir.getCommonDir(), PACKED_REFS));
+            if (!fingerprint.addFile(new File(fingerprint.gitDir.getCommonDir(), SHALLOW), SHALLOW)) {
+                fingerprint.add(SHALLOW, null);
+            }
+            return fingerprint;
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Starts a fingerprint of the ref storage of the given git directory, without HEAD: only the metadata of
+     * <code>packed-refs</code>, with loose refs to be added.
+     */
+    static InputFingerprint ofRefStorage(GitDir gitDir) {
+        InputFingerprint fingerprint = new InputFingerprint(gitDir);
+        fingerprint.addFileMetadata(new File(gitDir.getCommonDir(), PACKED_REFS));
+        return fingerprint;
+    }
+
+    /**
+     * Starts a fingerprint of values only, without any files of a repository, for inputs that are the same in every
+     * clone. Refs cannot be added to it.
+     */
+    public static InputFingerprint ofValues() {
+        return new InputFingerprint(null);
+    }
+
+    /**
+     * Adds the inputs of {@link GitVersion#determineVersion(File, GitVersion.Options)}: the branches, the tags with
+     * the version prefix, the remote branches when the revision is not HEAD, the branch name from the environment if
+     * it is used, and the options that change the version.
+     */
+    public InputFingerprint addOptions(GitVersion.Options options) {
+        addRefs(Constants.R_HEADS);
+        addRefs(Constants.R_TAGS + options.getVersionPrefix());
+        if (!Constants.HEAD.equals(options.getRevision())) {
+            addRefs(Constants.R_REMOTES);
+        }
+        if (options.isFallbackToBranchNameEnv()) {
+            String envName = options.getFallbackBranchNameEnvName();
+            add("env." + envName, System.getenv(envName));
+        }
+        return addOptionValues(options);
+    }
+
+    /**
+     * Adds the values of the options that change the version, but none of the refs.
+     */
+    public InputFingerprint addOptionValues(GitVersion.Options options) {
+        return add("versionPrefix", options.getVersionPrefix())
+            .add("fallbackToBranchNameEnv", options.isFallbackToBranchNameEnv())
+            .add("fallbackVersion", options.getFallbackVersion())
+            .add("versionFromBranchNamePostfix", options.getVersionFromBranchNamePostfix())
+            .add("versionMaxLength", options.getVersionMaxLength())
+            .add("useNormalizationForNorwegianLetters", options.useNormalizationForNorwegianLetters())
+            .add("branchSearchMaxCommits", options.getBranchSearchMaxCommits())
+            .add("branchSearchTimeoutMillis", options.getBranchSearchTimeoutMillis())
+            .add("tryDeterminingCurrentVersionFromTagName", options.isTryDeterminingCurrentVersionFromTagName())
+            .add("branchesToUseTagsAsVersionsFor", options.getBranchesToUseTagsAsVersionsFor())
+            .add("branchesToUseDistanceVersionsFor", options.getBranchesToUseDistanceVersionsFor())
+            .add("revision", options.getRevision())
+            .add("branchName", options.getBranchName())
+            .add("orderTagsByTaggerDate", options.isOrderTagsByTaggerDate())
+            .add("versionScheme", options.getVersionScheme().getCacheKey())
+            .add("backend", options.getBackend());
+    }
+
+    /**
+     * Adds the loose refs whose names start with the given prefix, like <code>refs/heads/</code> or
+     * <code>refs/tags/api/v</code>. Only the directories that can hold such refs are listed.
+     */
+    public InputFingerprint addRefs(String prefix) {
+        if (gitDir == null) {
+            throw new IllegalStateException("Refs cannot be added to a fingerprint of values only");
+        }
+        addLooseRefs(new File(gitDir.getCommonDir(), Constants.R_REFS), Constants.R_REFS, prefix);
+        return this;
+    }
+
+    /**
+     * Adds the tags given instead of the tags of the repository, with the commits they point at.
+     */
+    public InputFingerprint addKnownTags(KnownTags knownTags) {
+        if (knownTags != null) {
+            knownTags.forEachTag((tagName, commit) ->
+                add("knownTag." + tagName, commit == null ? null : commit.name()));
+        }
+        return this;
+    }
+
+    public InputFingerprint add(String name, Object value) {
+        update(name);
+        update(Objects.toString(value));
+        return this;
+    }
+
+    /**
+     * The fingerprint as a hexadecimal SHA-256 hash. Nothing can be added afterwards.
+     */
+    public String toHex() {
+        StringBuilder hex = new StringBuilder();
+        for (byte b : digest.digest()) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+
+    private void addLooseRefs(File dir, String refName, String prefix) {
+        String[] names = dir.list();
+        if (names == null) {
+            return;
+        }
+        // The order of the listing is not specified
+        Arrays.sort(names);
+        for (String name : names) {
+            // Refs being updated are locked, but the lock files are not refs
+            if (name.endsWith(LOCK_SUFFIX)) {
+                continue;
+            }
+            File file = new File(dir, name);
+            String childRefName = refName + name;
+            // Most entries are refs, so they are read without checking first whether they are directories
+            if (childRefName.startsWith(prefix) && addFile(file, childRefName)) {
+                continue;
+            }
+            String childDirName = childRefName + "/";
+            if ((childDirName.startsWith(prefix) || prefix.startsWith(childDirName)) && file.isDirectory()) {
+                addLooseRefs(file, childDirName, prefix);
+            }
+        }
+    }
+
+    /**
+     * Adds the name and the content of the file.
+     *
+     * @return <code>false</code> if it is not a file, but for instance a directory or deleted while listing
+     */
+    private boolean addFile(File file, String name) {
+        try (FileInputStream input = new FileInputStream(file)) {
+            update(name);
+            for (int length = input.read(buffer); length > 0; length = input.read(buffer)) {
+                digest.update(buffer, 0, length);
+            }
+            digest.update(SEPARATOR);
+            return true;
+        } catch (FileNotFoundException e) {
+            return false;
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private void addFileMetadata(File file) {
+        update(file.getName());
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+            update(attributes.size() + " " + attributes.lastModifiedTime() + " " + attributes.fileKey());
+        } catch (NoSuchFileException e) {
+            update("missing");
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private void update(String value) {
+        digest.update(value.getBytes(StandardCharsets.UTF_8));
+        digest.update(SEPARATOR);
+    }
+}
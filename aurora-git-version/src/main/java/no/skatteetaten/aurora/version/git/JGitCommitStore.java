@@ -0,0 +1,44 @@
+package no.skatteetaten.aurora.version.git;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.Repository;
+
+/**
+ * Reads commits through a {@link CommitReader} and searches branches with {@link BranchSearch}.
+ */
+final class JGitCommitStore implements CommitStore {
+
+    private final Repository repository;
+
+    JGitCommitStore(Repository repository) {
+        this.repository = repository;
+    }
+
+    @Override
+    public List<byte[]> readRaw(List<ObjectId> commits) throws IOException {
+        List<byte[]> rawCommits = new ArrayList<>(commits.size());
+        try (CommitReader reader = new CommitReader(repository)) {
+            for (ObjectId commit : commits) {
+                rawCommits.add(reader.readRaw(commit));
+            }
+        }
+        return rawCommits;
+    }
+
+    @Override
+    public BranchSearchResult findBranch(ObjectId commit, List<Ref> branches, BranchSearchBudget budget)
+        throws IOException {
+
+        return BranchSearch.find(repository, commit, branches, budget);
+    }
+
+    @Override
+    public void close() {
+        // The repository is owned by the GitRepo
+    }
+}
@@ -0,0 +1,154 @@
+package no.skatteetaten.aurora.version.git;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+
+/**
+ * A set of tags supplied by the caller instead of read from the local repository, typically the output of
+ * <code>git ls-remote --tags</code>. This makes it possible to suggest versions from a shallow clone without fetching
+ * the tag history.
+ * <p>
+ * Tags listed with an object id can also be matched against HEAD. For annotated tags the peeled
+ * (<code>^{}</code>) entry is used. Tags known only by name are used when inferring release versions, and are matched
+ * against HEAD if the local repository has them, see {@link GitRepo#withKnownTags(KnownTags)}.
+ */
+public final class KnownTags {
+
+    private static final String PEELED_SUFFIX = "^{}";
+
+    private final Map<String, Optional<ObjectId>> tags;
+
+    private KnownTags(Map<String, Optional<ObjectId>> tags) {
+        this.tags = Collections.unmodifiableMap(tags);
+    }
+
+    public static KnownTags of(Collection<String> tagNames) {
+        Map<String, Optional<ObjectId>> tags = new LinkedHashMap<>();
+        tagNames.forEach(tagName -> tags.put(tagName, Optional.empty()));
+        return new KnownTags(tags);
+    }
+
+    /**
+     * Reads tags in the format of <code>git ls-remote --tags</code>, one <code>&lt;object id&gt; &lt;ref&gt;</code>
+     * per line, or a plain list of tag names, one per line, like the output of <code>git tag</code>. The two may be
+     * mixed. Refs outside of <code>refs/tags/</code> and blank lines are ignored.
+     */
+    public static KnownTags parseLsRemote(Reader reader) throws IOException {
+        BufferedReader lines = new BufferedReader(reader);
+        List<String> allLines = new ArrayList<>();
+        String line;
+        while ((line = lines.readLine()) != null) {
+            allLines.add(line);
+        }
+        return parseLsRemote(allLines);
+    }
+
+    public static KnownTags parseLsRemote(List<String> lines) {
+        Map<String, Optional<ObjectId>> tags = new LinkedHashMap<>();
+        for (String line : lines) {
+            String trimmed = line.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            String[] parts = trimmed.split("\\s+");
+            if (parts.length == 1 && !ObjectId.isId(parts[0])) {
+                addTagName(tags, parts[0]);
+                continue;
+            }
+            if (parts.length != 2 || !ObjectId.isId(parts[0])) {
+                throw new IllegalArgumentException("Not a valid ls-remote line: " + line);
+            }
+            if (!parts[1].startsWith(Constants.R_TAGS)) {
+                continue;
+            }
+            String tagName = parts[1].substring(Constants.R_TAGS.length());
+            ObjectId objectId = ObjectId.fromString(parts[0]);
+            if (tagName.endsWith(PEELED_SUFFIX)) {
+                // The peeled entry always follows the tag itself and points at the tagged commit
+                tags.put(tagName.substring(0, tagName.length() - PEELED_SUFFIX.length()), Optional.of(objectId));
+            } else {
+                tags.putIfAbsent(tagName, Optional.of(objectId));
+            }
+        }
+        return new KnownTags(tags);
+    }
+
+    private static void addTagName(Map<String, Optional<ObjectId>> tags, String name) {
+        if (name.startsWith(Constants.R_TAGS)) {
+            tags.putIfAbsent(name.substring(Constants.R_TAGS.length()), Optional.empty());
+        } else if (!name.startsWith(Constants.R_REFS)) {
+            tags.putIfAbsent(name, Optional.empty());
+        }
+    }
+
+    /**
+     * Whether some of the tags are known only by name.
+     */
+    boolean hasTagsWithoutObjectId() {
+        return tags.values().stream().anyMatch(commit -> !commit.isPresent());
+    }
+
+    /**
+     * The same tags, with the tags known only by name given the commits of the local tags of the same names. Tags
+     * the local repository does not have are still known only by name.
+     *
+     * @param localTags the commits of the local tags, by tag name
+     */
+    KnownTags resolve(Function<String, ObjectId> localTags) {
+        Map<String, Optional<ObjectId>> resolved = new LinkedHashMap<>();
+        tags.forEach((tagName, commit) ->
+            resolved.put(tagName, commit.isPresent() ? commit : Optional.ofNullable(localTags.apply(tagName))));
+        return new KnownTags(resolved);
+    }
+
+    public List<String> getVersionsFromTags(String prefix) {
+        return tags.keySet().stream()
+            .filter(tagName -> tagName.startsWith(prefix))
+            .map(tagName -> tagName.substring(prefix.length()))
+            .collect(Collectors.toList());
+    }
+
+    public List<String> getVersionTagsFromCommit(ObjectId commit, String prefix) {
+        return tags.entrySet().stream()
+            .filter(e -> e.getKey().startsWith(prefix))
+            .filter(e -> e.getValue().filter(commit::equals).isPresent())
+            .map(Map.Entry::getKey)
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * The version tags with a known object id, grouped by the commit they point at.
+     */
+    public Map<ObjectId, List<String>> getVersionTagsByCommit(String prefix) {
+        return tags.entrySet().stream()
+            .filter(e -> e.getKey().startsWith(prefix))
+            .filter(e -> e.getValue().isPresent())
+            .collect(Collectors.groupingBy(e -> e.getValue().get(),
+                Collectors.mapping(Map.Entry::getKey, Collectors.toList())));
+    }
+
+    /**
+     * Gives every tag to the consumer, with the commit it points at, or <code>null</code> when that is not known.
+     */
+    void forEachTag(BiConsumer<String, ObjectId> consumer) {
+        tags.forEach((tagName, commit) -> consumer.accept(tagName, commit.orElse(null)));
+    }
+
+    public int size() {
+        return tags.size();
+    }
+}
@@ -0,0 +1,41 @@
+package no.skatteetaten.aurora.version.git;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The version tags of one namespace in a repository tagging several components, like <code>api/v1.2.3</code> for the
+ * prefix <code>api/v</code>. See {@link GitRepo#getVersionTagsByNamespace}.
+ */
+public final class NamespaceTags {
+
+    private final String prefix;
+
+    private final List<String> versions;
+
+    private final List<String> tagsOnCommit;
+
+    NamespaceTags(String prefix, List<String> versions, List<String> tagsOnCommit) {
+        this.prefix = prefix;
+        this.versions = Collections.unmodifiableList(versions);
+        this.tagsOnCommit = Collections.unmodifiableList(tagsOnCommit);
+    }
+
+    public String getPrefix() {
+        return prefix;
+    }
+
+    /**
+     * The versions of all the tags with the prefix, with the prefix removed.
+     */
+    public List<String> getVersions() {
+        return versions;
+    }
+
+    /**
+     * The names of the tags with the prefix on the commit the namespaces were read for.
+     */
+    public List<String> getTagsOnCommit() {
+        return tagsOnCommit;
+    }
+}
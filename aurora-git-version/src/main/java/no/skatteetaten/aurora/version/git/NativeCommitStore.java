@@ -0,0 +1,137 @@
+package no.skatteetaten.aurora.version.git;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.Repository;
+
+/**
+ * Reads commits through a long-lived {@link CatFileBatch}, and searches branches with
+ * <code>git for-each-ref --contains</code>, or with JGit when the search is limited to a number of
+ * commits. The <code>cat-file</code> process is started on the first read and stopped by {@link #close()}.
+ */
+final class NativeCommitStore implements CommitStore {
+
+    private static final String SHALLOW = "shallow";
+
+    private final Repository repository;
+
+    private final File gitDir;
+
+    private final Object lock = new Object();
+
+    private CatFileBatch catFile;
+
+    NativeCommitStore(Repository repository) {
+        this.repository = repository;
+        this.gitDir = repository.getDirectory();
+    }
+
+    @Override
+    public List<byte[]> readRaw(List<ObjectId> commits) throws IOException {
+        synchronized (lock) {
+            if (catFile == null || !catFile.isAlive()) {
+                catFile = new CatFileBatch(gitDir);
+            }
+            try {
+                return catFile.readCommits(commits);
+            } catch (IOException e) {
+                // The responses may be out of step with the requests, so start over with a new process
+                stop();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * The first of the given branches, in order, that contains the commit, after a cheap pass over them for one
+     * pointing straight at the commit. <code>for-each-ref</code> lists all the branches containing the commit, and
+     * the first of the given branches among them is taken. It cannot stop after a number of commits, so with a budget
+     * of commits the search is done by JGit instead; otherwise the budget is used as a timeout. In a shallow clone no
+     * branch found is {@link BranchSearchResult.Outcome#UNKNOWN_SHALLOW}, since <code>for-each-ref</code> does not
+     * tell whether it reached the shallow boundary.
+     */
+    @Override
+    public BranchSearchResult findBranch(ObjectId commit, List<Ref> branches, BranchSearchBudget budget)
+        throws IOException {
+
+        if (budget.getMaxCommits() > 0) {
+            return BranchSearch.find(repository, commit, branches, budget);
+        }
+        Optional<Ref> pointingAtCommit = findFirst(branches, branch -> commit.equals(branch.getObjectId()));
+        if (pointingAtCommit.isPresent()) {
+            return found(pointingAtCommit.get());
+        }
+        Optional<Set<String>> containing = findContainingBranches(commit, budget.getTimeoutMillis());
+        if (!containing.isPresent()) {
+            return new BranchSearchResult(null, BranchSearchResult.Outcome.BUDGET_EXHAUSTED, 0);
+        }
+        Optional<Ref> containingCommit = findFirst(branches, branch -> containing.get().contains(branch.getName()));
+        if (containingCommit.isPresent()) {
+            return found(containingCommit.get());
+        }
+        return new BranchSearchResult(null, isShallow()
+            ? BranchSearchResult.Outcome.UNKNOWN_SHALLOW
+            : BranchSearchResult.Outcome.NOT_FOUND, 0);
+    }
+
+    /**
+     * The full names of the branches containing the commit, or none if <code>for-each-ref</code> did not finish in
+     * time. The output goes to a temporary file, so <code>for-each-ref</code> is not blocked by a full pipe while it
+     * is waited for.
+     */
+    private Optional<Set<String>> findContainingBranches(ObjectId commit, long timeoutMillis) throws IOException {
+        File output = File.createTempFile("for-each-ref", ".txt");
+        try {
+            Process forEachRef = GitCommand.start(gitDir, output, "for-each-ref", "--contains", commit.name(),
+                "--format=%(refname)", Constants.R_HEADS);
+            forEachRef.getOutputStream().close();
+            if (!GitCommand.waitFor(forEachRef, timeoutMillis)) {
+                forEachRef.destroy();
+                return Optional.empty();
+            }
+            if (forEachRef.exitValue() != 0) {
+                throw new IOException("git for-each-ref failed with exit code " + forEachRef.exitValue());
+            }
+            return Optional.of(new HashSet<>(Files.readAllLines(output.toPath(), StandardCharsets.UTF_8)));
+        } finally {
+            Files.deleteIfExists(output.toPath());
+        }
+    }
+
+    private static Optional<Ref> findFirst(List<Ref> branches, Predicate<Ref> predicate) {
+        return branches.stream().filter(predicate).findFirst();
+    }
+
+    private static BranchSearchResult found(Ref branch) {
+        return new BranchSearchResult(Repository.shortenRefName(branch.getName()), BranchSearchResult.Outcome.FOUND, 0);
+    }
+
+    @Override
+    public void close() {
+        synchronized (lock) {
+            stop();
+        }
+    }
+
+    private boolean isShallow() {
+        return new File(gitDir, SHALLOW).length() > 0;
+    }
+
+    private void stop() {
+        if (catFile != null) {
+            catFile.stop();
+            catFile = null;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package no.skatteetaten.aurora.version.git;
+
+import java.io.IOException;
+import java.util.Optional;
+
+import org.eclipse.jgit.lib.CommitBuilder;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.RefUpdate;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.notes.NoteMap;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.util.RawParseUtils;
+
+/**
+ * Reads and writes git notes under a notes ref, like <code>git notes --ref</code> does. Reading a note is one lookup
+ * in the fan-out tree of the notes commit. Writing a note commits a new notes tree on top of the current one, and
+ * the ref is only moved if nobody else moved it in the meantime.
+ */
+final class NoteStore {
+
+    /**
+     * How many times to write a note again when another process updated the notes ref at the same time.
+     */
+    private static final int MAX_ATTEMPTS = 3;
+
+    private NoteStore() {
+    }
+
+    /**
+     * The note on the given object, or empty if the notes ref does not exist or has no note on the object.
+     */
+    static Optional<String> read(Repository repository, String notesRef, ObjectId object) throws IOException {
+        Ref ref = repository.exactRef(notesRef);
+        if (ref == null) {
+            return Optional.empty();
+        }
+        try (RevWalk walk = new RevWalk(repository)) {
+            NoteMap notes = NoteMap.read(walk.getObjectReader(), walk.parseCommit(ref.getObjectId()));
+            ObjectId blob = notes.get(object);
+            if (blob == null) {
+                return Optional.empty();
+            }
+            return Optional.of(RawParseUtils.decode(walk.getObjectReader().open(blob, Constants.OBJ_BLOB)
+                .getCachedBytes()));
+        }
+    }
+
+    /**
+     * Adds the note to the given object, replacing any note it has.
+     *
+     * @return whether the note was written, <code>false</code> if the notes ref kept being updated by others
+     */
+    static boolean write(Repository repository, String notesRef, ObjectId object, String note) throws IOException {
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            if (tryWrite(repository, notesRef, object, note)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean tryWrite(Repository repository, String notesRef, ObjectId object, String note)
+        throws IOException {
+
+        Ref ref = repository.exactRef(notesRef);
+        try (RevWalk walk = new RevWalk(repository); ObjectInserter inserter = repository.newObjectInserter()) {
+            RevCommit parent = ref == null ? null : walk.parseCommit(ref.getObjectId());
+            NoteMap notes = parent == null ? NoteMap.newEmptyMap() : NoteMap.read(walk.getObjectReader(), parent);
+            ObjectId blob = inserter.insert(Constants.OBJ_BLOB, Constants.encode(note));
+            if (blob.equals(notes.get(object))) {
+                return true;
+            }
+            notes.set(object, blob);
+
+            PersonIdent ident = new PersonIdent(repository);
+            CommitBuilder commit = new CommitBuilder();
+            commit.setTreeId(notes.writeTree(inserter));
+            commit.setAuthor(ident);
+            commit.setCommitter(ident);
+            commit.setMessage("Notes added by aurora-git-version\n");
+            if (parent != null) {
+                commit.setParentId(parent);
+            }
+            ObjectId commitId = inserter.insert(commit);
+            inserter.flush();
+
+            RefUpdate update = repository.updateRef(notesRef);
+            update.setExpectedOldObjectId(parent == null ? ObjectId.zeroId() : parent);
+            update.setNewObjectId(commitId);
+            update.setRefLogMessage("noted by aurora-git-version", false);
+            RefUpdate.Result result = update.update(walk);
+            return result == RefUpdate.Result.NEW || result == RefUpdate.Result.FAST_FORWARD;
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package no.skatteetaten.aurora.version.git;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+import org.eclipse.jgit.internal.storage.file.LockFile;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevObject;
+import org.eclipse.jgit.revwalk.RevTag;
+import org.eclipse.jgit.revwalk.RevWalk;
+
+/**
+ * A compact binary index of the branch heads and the tags of a repository, with annotated tags peeled to their
+ * commits, kept up to date by git's <code>reference-transaction</code> hook as refs change. It is stored as
+ * <code>aurora-version-index</code> in the git directory, and read instead of scanning the ref database and peeling
+ * the tags, see {@link RefSnapshot#of(Repository, GitDir)}. The tags are ordered by name, so the version tags of a
+ * prefix, and so its release tracks, are read from one range of it.
+ * <p>
+ * The index holds a stamp of the loose branches and tags and the metadata of <code>packed-refs</code>, computed as
+ * for {@link InputFingerprint}, and is only used while the stamp is the same. Refs changed without the hook, for
+ * instance by JGit or by packing the refs, make readers scan the refs as before. When a transaction is prepared a
+ * stale index is deleted, and when it is committed its updates are applied to the index if it is still there, or the
+ * index is built again from a scan of the refs. An index that cannot be read is discarded, and built again by the
+ * next transaction. Tags created by {@link GitRepo#createTags(Map)}, which the hook does not see, are added to an
+ * index that was up to date before they were created.
+ */
+final class RefIndex {
+
+    static final String FILE_NAME = "aurora-version-index";
+
+    private static final String PREPARED = "prepared";
+
+    private static final String COMMITTED = "committed";
+
+    private static final int LOCK_ATTEMPTS = 40;
+
+    private static final long LOCK_RETRY_MILLIS = 50;
+
+    private static final int UPDATE_FIELDS = 3;
+
+    private RefIndex() {
+    }
+
+    /**
+     * The refs in the index, or empty if there is no index or it is not up to date with the refs.
+     */
+    static Optional<RefSnapshot> read(GitDir gitDir) throws IOException {
+        if (gitDir.getCommonDir() == null) {
+            return Optional.empty();
+        }
+        return RefIndexFormat.read(getFile(gitDir), stamp -> stamp.equals(stamp(gitDir)));
+    }
+
+    /**
+     * Whether there is an index that is up to date with the refs, checked from its header only.
+     */
+    static boolean isCurrent(GitDir gitDir) {
+        if (gitDir.getCommonDir() == null) {
+            return false;
+        }
+        return RefIndexFormat.readStamp(getFile(gitDir)).filter(stamp -> stamp.equals(stamp(gitDir))).isPresent();
+    }
+
+    /**
+     * Adds lightweight tags just created without git, like by {@link TagWriter}, which does not run the
+     * <code>reference-transaction</code> hook, as a committed transaction creating them. Only call it when the index
+     * was {@link #isCurrent(GitDir)} before the tags were created, since the tags are applied to the index as it is.
+     */
+    static void addCreatedTags(Repository repository, GitDir gitDir, Map<String, ObjectId> tags) throws IOException {
+        List<String> updates = new ArrayList<>(tags.size());
+        tags.forEach((tagName, commit) ->
+            updates.add(ObjectId.zeroId().name() + " " + commit.name() + " " + Constants.R_TAGS + tagName));
+        commit(repository, gitDir, updates);
+    }
+
+    /**
+     * Applies a reference transaction in the given state to the index, as git's <code>reference-transaction</code>
+     * hook. Other states than <code>prepared</code> and <code>committed</code> are ignored.
+     *
+     * @param updates the lines given to the hook, <code>&lt;old-value&gt; &lt;new-value&gt; &lt;ref-name&gt;</code>
+     */
+    static void update(Repository repository, GitDir gitDir, String state, List<String> updates) throws IOException {
+        if (gitDir.getCommonDir() == null) {
+            return;
+        }
+        if (PREPARED.equals(state) && !read(gitDir).isPresent()) {
+            Files.deleteIfExists(getFile(gitDir).toPath());
+        } else if (COMMITTED.equals(state)) {
+            commit(repository, gitDir, updates);
+        }
+    }
+
+    private static void commit(Repository repository, GitDir gitDir, List<String> updates) throws IOException {
+        LockFile lock = new LockFile(getFile(gitDir));
+        if (!lock(lock)) {
+            // Another hook holds the lock for long, so the updates cannot be applied in order
+            Files.deleteIfExists(getFile(gitDir).toPath());
+            return;
+        }
+        try {
+            // The stamp is taken before the refs are read, so refs changed while they are read make the index stale
+            String stamp = stamp(gitDir);
+            RefSnapshot refs = readWithoutStamp(gitDir)
+                .map(snapshot -> apply(repository, snapshot, updates))
+                .orElseGet(() -> scan(repository));
+            try (OutputStream out = lock.getOutputStream()) {
+                RefIndexFormat.write(out, stamp, refs);
+            }
+            lock.commit();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static boolean lock(LockFile lock) throws IOException {
+        for (int attempt = 0; attempt < LOCK_ATTEMPTS; attempt++) {
+            if (lock.lock()) {
+                return true;
+            }
+            try {
+                Thread.sleep(LOCK_RETRY_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The refs in the index as last written, for applying the updates of a committed transaction, which changed the
+     * refs the stamp was computed from.
+     */
+    private static Optional<RefSnapshot> readWithoutStamp(GitDir gitDir) throws IOException {
+        return RefIndexFormat.read(getFile(gitDir), stamp -> true);
+    }
+
+    private static RefSnapshot apply(Repository repository, RefSnapshot snapshot, List<String> updates) {
+        Map<String, ObjectId> branches = new TreeMap<>();
+        snapshot.getBranches().forEach(branch -> branches.put(branch.getName(), branch.getObjectId()));
+        Map<String, ObjectId> taggedCommits = new TreeMap<>(snapshot.getTaggedCommits());
+        Map<String, ObjectId> tagObjects = new HashMap<>(snapshot.getTagObjects());
+
+        try (RevWalk walk = new RevWalk(repository)) {
+            for (String update : updates) {
+                String[] fields = update.trim().split(" ", UPDATE_FIELDS);
+                // Symbolic refs, like HEAD, are given with their targets instead of object ids
+                if (fields.length < UPDATE_FIELDS || !ObjectId.isId(fields[1])) {
+                    continue;
+                }
+                ObjectId newId = ObjectId.fromString(fields[1]);
+                String refName = fields[2];
+                if (refName.startsWith(Constants.R_HEADS)) {
+                    putOrRemove(branches, refName, newId, newId);
+                } else if (refName.startsWith(Constants.R_TAGS)) {
+                    String tagName = refName.substring(Constants.R_TAGS.length());
+                    RevObject tagged = newId.equals(ObjectId.zeroId()) ? null : walk.parseAny(newId);
+                    putOrRemove(tagObjects, tagName, newId, tagged instanceof RevTag ? newId : null);
+                    putOrRemove(taggedCommits, tagName, newId, tagged == null ? null : walk.peel(tagged).copy());
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return RefSnapshot.of(branches, new LinkedHashMap<>(taggedCommits), tagObjects);
+    }
+
+    private static void putOrRemove(Map<String, ObjectId> refs, String name, ObjectId newId, ObjectId value) {
+        if (newId.equals(ObjectId.zeroId()) || value == null) {
+            refs.remove(name);
+        } else {
+            refs.put(name, value);
+        }
+    }
+
+    private static RefSnapshot scan(Repository repository) {
+        try {
+            return RefSnapshot.of(repository);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static String stamp(GitDir gitDir) {
+        return InputFingerprint.ofRefStorage(gitDir)
+            .addRefs(Constants.R_HEADS)
+            .addRefs(Constants.R_TAGS)
+            .toHex();
+    }
+
+    private static File getFile(GitDir gitDir) {
+        return new File(gitDir.getCommonDir(), FILE_NAME);
+    }
+}
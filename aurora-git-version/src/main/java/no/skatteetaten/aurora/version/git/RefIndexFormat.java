@@ -0,0 +1,133 @@
+package no.skatteetaten.aurora.version.git;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Predicate;
+
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Ref;
+
+/**
+ * The binary format of the {@link RefIndex}: a header with a magic number, the format version and the stamp of the
+ * refs, followed by the branches and the tags, each ordered by name. A branch is its full name and its commit id. A
+ * tag is its name without <code>refs/tags/</code>, whether it is annotated, the id of the commit it is peeled to and,
+ * for annotated tags, the id of the tag object. Names are modified UTF-8 and ids are raw bytes.
+ */
+final class RefIndexFormat {
+
+    /**
+     * <code>AGVI</code>, for aurora-git-version index.
+     */
+    private static final int MAGIC = 0x41475649;
+
+    private static final int FORMAT_VERSION = 1;
+
+    private static final byte LIGHTWEIGHT = 0;
+
+    private static final byte ANNOTATED = 1;
+
+    private RefIndexFormat() {
+    }
+
+    /**
+     * The refs in the given index file, or empty if there is no such file, it has another format, or its stamp is not
+     * accepted. A file that cannot be read, for instance because it is truncated or corrupt, is deleted.
+     */
+    static Optional<RefSnapshot> read(File file, Predicate<String> acceptStamp) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            String stamp = readStamp(in);
+            if (stamp == null || !acceptStamp.test(stamp)) {
+                return Optional.empty();
+            }
+            return Optional.of(readRefs(in));
+        } catch (FileNotFoundException e) {
+            return Optional.empty();
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(file.toPath());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * The stamp of the given index file, read without the refs, or empty if there is no such file, it has another
+     * format or it cannot be read.
+     */
+    static Optional<String> readStamp(File file) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            return Optional.ofNullable(readStamp(in));
+        } catch (IOException e) {
+            return Optional.empty();
+        }
+    }
+
+    static void write(OutputStream output, String stamp, RefSnapshot refs) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(output));
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeUTF(stamp);
+        out.writeInt(refs.getBranches().size());
+        for (Ref branch : refs.getBranches()) {
+            out.writeUTF(branch.getName());
+            branch.getObjectId().copyRawTo(out);
+        }
+        Map<String, ObjectId> taggedCommits = refs.getTaggedCommits();
+        Map<String, ObjectId> tagObjects = refs.getTagObjects();
+        out.writeInt(taggedCommits.size());
+        for (Map.Entry<String, ObjectId> tag : taggedCommits.entrySet()) {
+            ObjectId tagObject = tagObjects.get(tag.getKey());
+            out.writeUTF(tag.getKey());
+            out.writeByte(tagObject != null ? ANNOTATED : LIGHTWEIGHT);
+            tag.getValue().copyRawTo(out);
+            if (tagObject != null) {
+                tagObject.copyRawTo(out);
+            }
+        }
+        out.flush();
+    }
+
+    /**
+     * The stamp from the header, or <code>null</code> if the file has another format.
+     */
+    private static String readStamp(DataInputStream in) throws IOException {
+        return in.readInt() == MAGIC && in.readInt() == FORMAT_VERSION ? in.readUTF() : null;
+    }
+
+    private static RefSnapshot readRefs(DataInputStream in) throws IOException {
+        byte[] raw = new byte[Constants.OBJECT_ID_LENGTH];
+        Map<String, ObjectId> branches = new LinkedHashMap<>();
+        int branchCount = in.readInt();
+        for (int i = 0; i < branchCount; i++) {
+            branches.put(in.readUTF(), readId(in, raw));
+        }
+        Map<String, ObjectId> taggedCommits = new LinkedHashMap<>();
+        Map<String, ObjectId> tagObjects = new HashMap<>();
+        int tagCount = in.readInt();
+        for (int i = 0; i < tagCount; i++) {
+            String tagName = in.readUTF();
+            boolean annotated = in.readByte() == ANNOTATED;
+            taggedCommits.put(tagName, readId(in, raw));
+            if (annotated) {
+                tagObjects.put(tagName, readId(in, raw));
+            }
+        }
+        return RefSnapshot.of(branches, taggedCommits, tagObjects);
+    }
+
+    private static ObjectId readId(DataInputStream in, byte[] raw) throws IOException {
+        in.readFully(raw);
+        return ObjectId.fromRaw(raw);
+    }
+}
@@ -0,0 +1,217 @@
+package no.skatteetaten.aurora.version.git;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectIdRef;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.RefDatabase;
+import org.eclipse.jgit.lib.Repository;
+
+/**
+ * An immutable snapshot of the branches and tags of a repository. The snapshot is taken once and then shared, so
+ * concurrent callers see the same refs and the ref database is only scanned once, until {@link #isCurrent()} tells
+ * that the refs on disk have changed.
+ * <p>
+ * Annotated tags are peeled to the commits they point at when they are first asked for, and only the tags asked for,
+ * so a snapshot used for one version prefix does not read the tag objects of all the other tags. Tags from
+ * <code>packed-refs</code> are usually peeled already.
+ */
+final class RefSnapshot {
+
+    private final RefDatabase refDatabase;
+
+    private final RefStorageState storageState;
+
+    private final List<Ref> branches;
+
+    private final SortedMap<String, Ref> tags;
+
+    private final Map<String, Ref> peeledTags = new ConcurrentHashMap<>();
+
+    private RefSnapshot(RefDatabase refDatabase, RefStorageState storageState, List<Ref> branches,
+        SortedMap<String, Ref> tags) {
+
+        this.refDatabase = refDatabase;
+        this.storageState = storageState;
+        this.branches = Collections.unmodifiableList(branches);
+        this.tags = Collections.unmodifiableSortedMap(tags);
+    }
+
+    /**
+     * The snapshot from the {@link RefIndex} of the git directory if it is there and up to date, and otherwise from a
+     * scan of the ref database.
+     */
+    static RefSnapshot of(Repository repository, GitDir gitDir) throws IOException {
+        RefStorageState storageState = readStorageState(repository, gitDir);
+        Optional<RefSnapshot> indexed = RefIndex.read(gitDir);
+        RefSnapshot snapshot = indexed.isPresent() ? indexed.get() : of(repository);
+        return new RefSnapshot(snapshot.refDatabase, storageState, snapshot.branches, snapshot.tags);
+    }
+
+    static RefSnapshot of(Repository repository) throws IOException {
+        RefDatabase refDatabase = repository.getRefDatabase();
+        List<Ref> branches = new ArrayList<>(refDatabase.getRefsByPrefix(Constants.R_HEADS));
+        SortedMap<String, Ref> tags = new TreeMap<>();
+        for (Ref ref : refDatabase.getRefsByPrefix(Constants.R_TAGS)) {
+            tags.put(ref.getName().substring(Constants.R_TAGS.length()), ref);
+        }
+        return new RefSnapshot(refDatabase, RefStorageState.UNKNOWN, branches, tags);
+    }
+
+    /**
+     * A snapshot of the given branches, by full name, and tags, by name without <code>refs/tags/</code>, with the
+     * tags already peeled, for refs read from the {@link RefIndex}.
+     */
+    static RefSnapshot of(Map<String, ObjectId> branches, Map<String, ObjectId> taggedCommits,
+        Map<String, ObjectId> tagObjects) {
+
+        List<Ref> branchRefs = new ArrayList<>(branches.size());
+        branches.forEach((name, id) -> branchRefs.add(new ObjectIdRef.PeeledNonTag(Ref.Storage.LOOSE, name, id)));
+        SortedMap<String, Ref> tags = new TreeMap<>();
+        taggedCommits.forEach((tagName, commit) -> {
+            ObjectId tagObject = tagObjects.get(tagName);
+            String refName = Constants.R_TAGS + tagName;
+            tags.put(tagName, tagObject != null
+                ? new ObjectIdRef.PeeledTag(Ref.Storage.LOOSE, refName, tagObject, commit)
+                : new ObjectIdRef.PeeledNonTag(Ref.Storage.LOOSE, refName, commit));
+        });
+        return new RefSnapshot(null, RefStorageState.UNKNOWN, branchRefs, tags);
+    }
+
+    /**
+     * This snapshot with the given lightweight tags added, by name without <code>refs/tags/</code>, for tags this
+     * process has just created, so the refs need not be read again. The state of the ref storage is read now, after
+     * the tags were written, so writing them does not make the snapshot stale. The tags already peeled are kept.
+     */
+    RefSnapshot withTags(Map<String, ObjectId> newTags, Repository repository, GitDir gitDir) {
+        SortedMap<String, Ref> allTags = new TreeMap<>(tags);
+        newTags.forEach((tagName, commit) -> allTags.put(tagName,
+            new ObjectIdRef.PeeledNonTag(Ref.Storage.PACKED, Constants.R_TAGS + tagName, commit)));
+        RefSnapshot snapshot = new RefSnapshot(refDatabase, readStorageState(repository, gitDir), branches, allTags);
+        snapshot.peeledTags.putAll(peeledTags);
+        return snapshot;
+    }
+
+    /**
+     * Whether the refs on disk are the same as when the snapshot was taken. Always <code>true</code> for a repository
+     * that is not stored in files.
+     */
+    boolean isCurrent() {
+        return !storageState.isModified();
+    }
+
+    /**
+     * The local branches, ordered by name.
+     */
+    List<Ref> getBranches() {
+        return branches;
+    }
+
+    /**
+     * The commit at the tip of each local branch, by the short name of the branch, ordered by name.
+     */
+    Map<String, ObjectId> getBranchHeads() {
+        Map<String, ObjectId> branchHeads = new LinkedHashMap<>();
+        branches.forEach(branch -> branchHeads.putIfAbsent(Repository.shortenRefName(branch.getName()),
+            branch.getObjectId()));
+        return branchHeads;
+    }
+
+    /**
+     * The commit the tag points at, peeled if it is an annotated tag, or <code>null</code> if there is no such tag.
+     */
+    ObjectId getTaggedCommit(String tagName) {
+        Ref ref = getPeeledTag(tagName);
+        if (ref == null) {
+            return null;
+        }
+        return ref.getPeeledObjectId() != null ? ref.getPeeledObjectId() : ref.getObjectId();
+    }
+
+    /**
+     * The tag object of the annotated tag, or <code>null</code> if it is a lightweight tag or there is no such tag.
+     */
+    ObjectId getTagObject(String tagName) {
+        Ref ref = getPeeledTag(tagName);
+        return ref != null && ref.getPeeledObjectId() != null ? ref.getObjectId() : null;
+    }
+
+    /**
+     * The commits all the tags point at, by tag name, ordered by name. Peels every tag.
+     */
+    Map<String, ObjectId> getTaggedCommits() {
+        Map<String, ObjectId> taggedCommits = new LinkedHashMap<>();
+        tags.keySet().forEach(tagName -> taggedCommits.put(tagName, getTaggedCommit(tagName)));
+        return taggedCommits;
+    }
+
+    /**
+     * The tag objects of all the annotated tags, by tag name. Lightweight tags have none. Peels every tag.
+     */
+    Map<String, ObjectId> getTagObjects() {
+        Map<String, ObjectId> tagObjects = new LinkedHashMap<>();
+        tags.keySet().forEach(tagName -> {
+            ObjectId tagObject = getTagObject(tagName);
+            if (tagObject != null) {
+                tagObjects.put(tagName, tagObject);
+            }
+        });
+        return tagObjects;
+    }
+
+    /**
+     * The names of the tags starting with the given prefix, ordered by name. No tag is peeled.
+     */
+    List<String> getTagNames(String prefix) {
+        List<String> tagNames = new ArrayList<>();
+        for (String tagName : tags.tailMap(prefix).keySet()) {
+            if (!tagName.startsWith(prefix)) {
+                break;
+            }
+            tagNames.add(tagName);
+        }
+        return tagNames;
+    }
+
+    /**
+     * The tags starting with the given prefix, grouped by the commit they point at. Only these tags are peeled.
+     */
+    Map<ObjectId, List<String>> getTagsByCommit(String prefix) {
+        Map<ObjectId, List<String>> tagsByCommit = new LinkedHashMap<>();
+        for (String tagName : getTagNames(prefix)) {
+            tagsByCommit.computeIfAbsent(getTaggedCommit(tagName), id -> new ArrayList<>()).add(tagName);
+        }
+        return tagsByCommit;
+    }
+
+    private static RefStorageState readStorageState(Repository repository, GitDir gitDir) {
+        return RefStorageState.of(gitDir.getCommonDir() != null ? gitDir.getCommonDir() : repository.getDirectory());
+    }
+
+    private Ref getPeeledTag(String tagName) {
+        Ref ref = tags.get(tagName);
+        if (ref == null || ref.isPeeled()) {
+            return ref;
+        }
+        return peeledTags.computeIfAbsent(tagName, name -> peel(ref));
+    }
+
+    private Ref peel(Ref ref) {
+        try {
+            return refDatabase.peel(ref);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
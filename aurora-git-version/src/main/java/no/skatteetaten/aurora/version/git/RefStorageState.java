@@ -0,0 +1,78 @@
+package no.skatteetaten.aurora.version.git;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.jgit.internal.storage.file.FileSnapshot;
+import org.eclipse.jgit.lib.Constants;
+
+/**
+ * The modification times of the files the branches and tags of a repository are stored in: <code>packed-refs</code>
+ * and the directories of the loose branches and tags. Git and JGit write a loose ref to a lock file and rename it,
+ * and replace <code>packed-refs</code> rather than rewriting it, so creating, moving or deleting a branch or a tag
+ * modifies one of them. Only the metadata of the files is read, so checking the state is much cheaper than reading
+ * the refs again.
+ */
+final class RefStorageState {
+
+    /**
+     * For repositories that are not stored in files, whose state is never known to have changed.
+     */
+    static final RefStorageState UNKNOWN = new RefStorageState(new ArrayList<>(), new ArrayList<>());
+
+    private static final String PACKED_REFS = "packed-refs";
+
+    private final List<File> files;
+
+    private final List<FileSnapshot> snapshots;
+
+    private RefStorageState(List<File> files, List<FileSnapshot> snapshots) {
+        this.files = files;
+        this.snapshots = snapshots;
+    }
+
+    /**
+     * The current state of the ref storage in the given directory, the common git directory of the repository. Take
+     * it before reading the refs, so refs changed while they are read are seen as a change.
+     */
+    static RefStorageState of(File commonDir) {
+        if (commonDir == null) {
+            return UNKNOWN;
+        }
+        List<File> files = new ArrayList<>();
+        files.add(new File(commonDir, PACKED_REFS));
+        addDirectories(new File(commonDir, Constants.R_HEADS), files);
+        addDirectories(new File(commonDir, Constants.R_TAGS), files);
+        List<FileSnapshot> snapshots = new ArrayList<>(files.size());
+        files.forEach(file -> snapshots.add(FileSnapshot.save(file)));
+        return new RefStorageState(files, snapshots);
+    }
+
+    /**
+     * Whether a branch or a tag may have been created, moved or deleted since the state was taken. A file modified so
+     * soon after it was last seen that the change may not show in its modification time counts as modified.
+     */
+    boolean isModified() {
+        for (int i = 0; i < files.size(); i++) {
+            if (snapshots.get(i).isModified(files.get(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Adds the directory and its subdirectories. A subdirectory created later modifies the directory it is created
+     * in, so it need not be known in advance.
+     */
+    private static void addDirectories(File dir, List<File> files) {
+        files.add(dir);
+        File[] children = dir.listFiles(File::isDirectory);
+        if (children != null) {
+            for (File child : children) {
+                addDirectories(child, files);
+            }
+        }
+    }
+}
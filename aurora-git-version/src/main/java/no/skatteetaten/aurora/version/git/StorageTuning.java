@@ -0,0 +1,208 @@
+package no.skatteetaten.aurora.version.git;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import org.eclipse.jgit.storage.file.WindowCacheConfig;
+
+/**
+ * Settings for how JGit reads pack files: how much of the packs to keep in memory, in windows of what size, whether
+ * to map them into memory, how many delta bases to cache and how many packs to keep open. The JGit defaults suit small
+ * repositories; on repositories with packs of several gigabytes they make the window cache thrash.
+ * <p>
+ * JGit has one window cache for the whole JVM, so {@link #install()} affects every repository opened by the process,
+ * also by other libraries, and replaces any configuration they installed. Installing the same settings again does
+ * nothing. Applications sharing the JVM with other users of JGit should leave the tuning out of the options and
+ * configure the window cache themselves; it is meant for the command line, which owns its JVM.
+ */
+public class StorageTuning {
+
+    private static final int KB = 1024;
+
+    private static final int MB = KB * KB;
+
+    private static final long HUGE_PACKED_GIT_LIMIT = 1024L * MB;
+
+    private static final int HUGE_WINDOW_SIZE = 64 * KB;
+
+    private static final int HUGE_DELTA_BASE_CACHE_LIMIT = 64 * MB;
+
+    private static final int HUGE_OPEN_FILES = 512;
+
+    private static final Object INSTALL_LOCK = new Object();
+
+    private static List<Object> installed;
+
+    /**
+     * The maximum number of bytes of pack files to keep in the window cache.
+     */
+    private long packedGitLimit;
+
+    /**
+     * The size of each window of a pack file in the cache. Must be a power of 2.
+     */
+    private int packedGitWindowSize;
+
+    /**
+     * Whether to map windows into memory instead of reading them onto the heap.
+     */
+    private boolean packedGitMMAP;
+
+    /**
+     * The maximum number of bytes of uncompressed delta bases to cache.
+     */
+    private int deltaBaseCacheLimit;
+
+    /**
+     * The maximum number of pack files to keep open at once.
+     */
+    private int packedGitOpenFiles;
+
+    /**
+     * The JGit defaults.
+     */
+    public StorageTuning() {
+        WindowCacheConfig defaults = new WindowCacheConfig();
+        this.packedGitLimit = defaults.getPackedGitLimit();
+        this.packedGitWindowSize = defaults.getPackedGitWindowSize();
+        this.packedGitMMAP = defaults.isPackedGitMMAP();
+        this.deltaBaseCacheLimit = defaults.getDeltaBaseCacheLimit();
+        this.packedGitOpenFiles = defaults.getPackedGitOpenFiles();
+    }
+
+    /**
+     * For repositories with packs of up to a few hundred megabytes. The same as the JGit defaults.
+     */
+    public static StorageTuning forSmallRepositories() {
+        return new StorageTuning();
+    }
+
+    /**
+     * For repositories with packs of several gigabytes. Windows are mapped into memory, so the larger cache is not
+     * read onto the heap.
+     */
+    public static StorageTuning forHugeRepositories() {
+        StorageTuning tuning = new StorageTuning();
+        tuning.setPackedGitLimit(HUGE_PACKED_GIT_LIMIT);
+        tuning.setPackedGitWindowSize(HUGE_WINDOW_SIZE);
+        tuning.setPackedGitMMAP(true);
+        tuning.setDeltaBaseCacheLimit(HUGE_DELTA_BASE_CACHE_LIMIT);
+        tuning.setPackedGitOpenFiles(HUGE_OPEN_FILES);
+        return tuning;
+    }
+
+    /**
+     * The preset with the given name, <code>small</code> or <code>huge</code>.
+     */
+    public static StorageTuning preset(String name) {
+        switch (name.toLowerCase(Locale.ROOT)) {
+        case "small":
+            return forSmallRepositories();
+        case "huge":
+            return forHugeRepositories();
+        default:
+            throw new IllegalArgumentException("Unknown storage preset " + name + ", expected small or huge");
+        }
+    }
+
+    /**
+     * Parses a number of bytes with an optional <code>k</code>, <code>m</code> or <code>g</code> suffix, like
+     * <code>512m</code>, as in the git configuration.
+     */
+    public static long parseSize(String size) {
+        String value = size.trim().toLowerCase(Locale.ROOT);
+        long unit = 1;
+        if (value.endsWith("k")) {
+            unit = KB;
+        } else if (value.endsWith("m")) {
+            unit = MB;
+        } else if (value.endsWith("g")) {
+            unit = (long) MB * KB;
+        }
+        String number = unit == 1 ? value : value.substring(0, value.length() - 1);
+        return Long.parseLong(number.trim()) * unit;
+    }
+
+    /**
+     * Parses <code>true</code> or <code>false</code>, ignoring case, as given for a flag like mmap. Unlike
+     * {@link Boolean#parseBoolean(String)} a misspelt value is not taken as <code>false</code>.
+     *
+     * @throws IllegalArgumentException if the value is neither
+     */
+    public static boolean parseBoolean(String value) {
+        String trimmed = value.trim();
+        if ("true".equalsIgnoreCase(trimmed)) {
+            return true;
+        }
+        if ("false".equalsIgnoreCase(trimmed)) {
+            return false;
+        }
+        throw new IllegalArgumentException("Expected true or false, not " + value);
+    }
+
+    /**
+     * Reconfigures the window cache of the JVM with these settings, unless they are already installed. The windows
+     * cached for all open repositories are dropped, so only call it from code that owns the JVM.
+     */
+    public void install() {
+        synchronized (INSTALL_LOCK) {
+            if (getValues().equals(installed)) {
+                return;
+            }
+            WindowCacheConfig config = new WindowCacheConfig();
+            config.setPackedGitLimit(packedGitLimit);
+            config.setPackedGitWindowSize(packedGitWindowSize);
+            config.setPackedGitMMAP(packedGitMMAP);
+            config.setDeltaBaseCacheLimit(deltaBaseCacheLimit);
+            config.setPackedGitOpenFiles(packedGitOpenFiles);
+            config.install();
+            installed = getValues();
+        }
+    }
+
+    private List<Object> getValues() {
+        return Arrays.asList(packedGitLimit, packedGitWindowSize, packedGitMMAP, deltaBaseCacheLimit,
+            packedGitOpenFiles);
+    }
+
+    public long getPackedGitLimit() {
+        return packedGitLimit;
+    }
+
+    public void setPackedGitLimit(long packedGitLimit) {
+        this.packedGitLimit = packedGitLimit;
+    }
+
+    public int getPackedGitWindowSize() {
+        return packedGitWindowSize;
+    }
+
+    public void setPackedGitWindowSize(int packedGitWindowSize) {
+        this.packedGitWindowSize = packedGitWindowSize;
+    }
+
+    public boolean isPackedGitMMAP() {
+        return packedGitMMAP;
+    }
+
+    public void setPackedGitMMAP(boolean packedGitMMAP) {
+        this.packedGitMMAP = packedGitMMAP;
+    }
+
+    public int getDeltaBaseCacheLimit() {
+        return deltaBaseCacheLimit;
+    }
+
+    public void setDeltaBaseCacheLimit(int deltaBaseCacheLimit) {
+        this.deltaBaseCacheLimit = deltaBaseCacheLimit;
+    }
+
+    public int getPackedGitOpenFiles() {
+        return packedGitOpenFiles;
+    }
+
+    public void setPackedGitOpenFiles(int packedGitOpenFiles) {
+        this.packedGitOpenFiles = packedGitOpenFiles;
+    }
+}
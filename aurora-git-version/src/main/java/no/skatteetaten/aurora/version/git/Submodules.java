@@ -0,0 +1,30 @@
+package no.skatteetaten.aurora.version.git;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.submodule.SubmoduleWalk;
+
+final class Submodules {
+
+    private Submodules() {
+    }
+
+    /**
+     * The paths of the submodules in the tree of the given commit, relative to the root of the working tree.
+     */
+    static List<String> findPaths(Repository repository, ObjectId commit) throws IOException {
+        List<String> paths = new ArrayList<>();
+        try (RevWalk walk = new RevWalk(repository); SubmoduleWalk submodules = new SubmoduleWalk(repository)) {
+            submodules.setTree(walk.parseCommit(commit).getTree());
+            while (submodules.next()) {
+                paths.add(submodules.getPath());
+            }
+        }
+        return paths;
+    }
+}
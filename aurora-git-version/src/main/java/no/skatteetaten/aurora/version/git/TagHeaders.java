@@ -0,0 +1,56 @@
+package no.skatteetaten.aurora.version.git;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.util.RawParseUtils;
+
+/**
+ * The tagger dates of annotated tags, read from the tag objects once and then cached by tag object id. Only the
+ * header of a tag object is looked at, the tag is not parsed any further. Tag objects never change, so the cache is
+ * valid across snapshots of the refs.
+ */
+final class TagHeaders {
+
+    /**
+     * Cached for tag objects without a tagger, which old versions of git could create.
+     */
+    private static final long NO_TAGGER = Long.MIN_VALUE;
+
+    private final Map<ObjectId, Long> taggerTimes = new ConcurrentHashMap<>();
+
+    /**
+     * The tagger time in milliseconds of each of the given tag objects that has a tagger. Tag objects not in the cache
+     * are read with one object reader.
+     */
+    Map<ObjectId, Long> getTaggerTimes(Repository repository, Iterable<ObjectId> tagObjects) throws IOException {
+        Map<ObjectId, Long> times = new HashMap<>();
+        try (ObjectReader reader = repository.newObjectReader()) {
+            for (ObjectId tagObject : tagObjects) {
+                Long time = taggerTimes.get(tagObject);
+                if (time == null) {
+                    time = readTaggerTime(reader, tagObject);
+                    taggerTimes.put(tagObject.copy(), time);
+                }
+                if (time != NO_TAGGER) {
+                    times.put(tagObject, time);
+                }
+            }
+        }
+        return times;
+    }
+
+    private static long readTaggerTime(ObjectReader reader, ObjectId tagObject) throws IOException {
+        byte[] raw = reader.open(tagObject, Constants.OBJ_TAG).getCachedBytes();
+        int tagger = RawParseUtils.tagger(raw, 0);
+        PersonIdent ident = tagger < 0 ? null : RawParseUtils.parsePersonIdent(raw, tagger);
+        return ident == null ? NO_TAGGER : ident.getWhen().getTime();
+    }
+}
@@ -0,0 +1,146 @@
+package no.skatteetaten.aurora.version.git;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The order of the version tags on a commit, computed once per tag so the most recent tag is found in one pass.
+ * <p>
+ * Tags are ordered by tagger time first, when one is given. Tags with a semantic version after the prefix, like
+ * <code>v10.0.0-rc1</code>, come after other tags and are ordered by semantic version precedence, so
+ * <code>v2.0.0</code> comes before <code>v10.0.0-rc1</code>, which comes before <code>v10.0.0</code>. Other tags,
+ * and semantic versions of equal precedence, are ordered with the shortest names first and then by their natural
+ * order, so <code>dev-11</code> comes after <code>dev-2</code>.
+ */
+final class TagSortKey implements Comparable<TagSortKey> {
+
+    /**
+     * A semantic version after a prefix without digits, with an optional pre-release and build metadata.
+     */
+    private static final Pattern SEMANTIC_VERSION = Pattern.compile(
+        "^\\D*(\\d+)\\.(\\d+)\\.(\\d+)(?:-([0-9A-Za-z.-]+))?(?:\\+[0-9A-Za-z.-]+)?$");
+
+    private static final int CORE_SEGMENTS = 3;
+
+    private static final int PRE_RELEASE_GROUP = 4;
+
+    private static final String[] RELEASE = new String[0];
+
+    private final String tagName;
+
+    private final long taggerTime;
+
+    /**
+     * The major, minor and patch numbers, or <code>null</code> if the tag is not a semantic version.
+     */
+    private final String[] core;
+
+    private final String[] preRelease;
+
+    private TagSortKey(String tagName, long taggerTime, String[] core, String[] preRelease) {
+        this.tagName = tagName;
+        this.taggerTime = taggerTime;
+        this.core = core;
+        this.preRelease = preRelease;
+    }
+
+    /**
+     * @param taggerTime the tagger time of an annotated tag, or <code>null</code> to order the tag before all tags
+     *                   with a tagger time
+     */
+    static TagSortKey of(String tagName, Long taggerTime) {
+        long time = taggerTime == null ? Long.MIN_VALUE : taggerTime;
+        Matcher matcher = SEMANTIC_VERSION.matcher(tagName);
+        if (!matcher.matches()) {
+            return new TagSortKey(tagName, time, null, RELEASE);
+        }
+        String[] core = new String[CORE_SEGMENTS];
+        for (int i = 0; i < CORE_SEGMENTS; i++) {
+            core[i] = matcher.group(i + 1);
+        }
+        String preRelease = matcher.group(PRE_RELEASE_GROUP);
+        return new TagSortKey(tagName, time, core, preRelease == null ? RELEASE : preRelease.split("\\."));
+    }
+
+    String getTagName() {
+        return tagName;
+    }
+
+    @Override
+    public int compareTo(TagSortKey other) {
+        int comparison = Long.compare(taggerTime, other.taggerTime);
+        if (comparison == 0) {
+            comparison = Boolean.compare(core != null, other.core != null);
+        }
+        if (comparison == 0 && core != null) {
+            comparison = compareSemanticVersions(other);
+        }
+        if (comparison == 0) {
+            comparison = Integer.compare(tagName.length(), other.tagName.length());
+        }
+        return comparison != 0 ? comparison : tagName.compareTo(other.tagName);
+    }
+
+    private int compareSemanticVersions(TagSortKey other) {
+        for (int i = 0; i < CORE_SEGMENTS; i++) {
+            int comparison = compareNumbers(core[i], other.core[i]);
+            if (comparison != 0) {
+                return comparison;
+            }
+        }
+        // A release comes after its pre-releases
+        if (preRelease.length == 0 || other.preRelease.length == 0) {
+            return Integer.compare(other.preRelease.length, preRelease.length);
+        }
+        int identifiers = Math.min(preRelease.length, other.preRelease.length);
+        for (int i = 0; i < identifiers; i++) {
+            int comparison = compareIdentifiers(preRelease[i], other.preRelease[i]);
+            if (comparison != 0) {
+                return comparison;
+            }
+        }
+        return Integer.compare(preRelease.length, other.preRelease.length);
+    }
+
+    /**
+     * Numeric identifiers come before alphanumeric ones, and are compared as numbers.
+     */
+    private static int compareIdentifiers(String identifier, String other) {
+        boolean numeric = isNumeric(identifier);
+        boolean otherNumeric = isNumeric(other);
+        if (numeric && otherNumeric) {
+            return compareNumbers(identifier, other);
+        }
+        if (numeric || otherNumeric) {
+            return numeric ? -1 : 1;
+        }
+        return identifier.compareTo(other);
+    }
+
+    /**
+     * Compares numbers of any size without parsing them, ignoring leading zeros.
+     */
+    private static int compareNumbers(String number, String other) {
+        String digits = stripLeadingZeros(number);
+        String otherDigits = stripLeadingZeros(other);
+        int comparison = Integer.compare(digits.length(), otherDigits.length());
+        return comparison != 0 ? comparison : digits.compareTo(otherDigits);
+    }
+
+    private static String stripLeadingZeros(String number) {
+        int start = 0;
+        while (start < number.length() - 1 && number.charAt(start) == '0') {
+            start++;
+        }
+        return number.substring(start);
+    }
+
+    private static boolean isNumeric(String identifier) {
+        for (int i = 0; i < identifier.length(); i++) {
+            if (!Character.isDigit(identifier.charAt(i))) {
+                return false;
+            }
+        }
+        return !identifier.isEmpty();
+    }
+}
@@ -0,0 +1,62 @@
+package no.skatteetaten.aurora.version.git;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.eclipse.jgit.lib.BatchRefUpdate;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.NullProgressMonitor;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.transport.ReceiveCommand;
+
+/**
+ * Creates lightweight tags in one {@link BatchRefUpdate}, so either all of them are created or none are. With the
+ * default ref database the tags are written directly to <code>packed-refs</code>.
+ */
+final class TagWriter {
+
+    private TagWriter() {
+    }
+
+    /**
+     * The tags, by name without <code>refs/tags/</code>, that are not in the snapshot already. Fails if a tag in the
+     * snapshot points at another commit than the one given for it.
+     */
+    static Map<String, ObjectId> findNewTags(RefSnapshot snapshot, Map<String, ObjectId> tags) {
+        tags.forEach((tagName, commit) -> {
+            ObjectId existingCommit = snapshot.getTaggedCommit(tagName);
+            if (existingCommit != null && !existingCommit.equals(commit)) {
+                throw new IllegalStateException(String.format("Tag %s already exists on %s, not on %s",
+                    tagName, existingCommit.name(), commit.name()));
+            }
+        });
+        return tags.entrySet().stream()
+            .filter(tag -> snapshot.getTaggedCommit(tag.getKey()) == null)
+            .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+    }
+
+    /**
+     * Creates the tags, none of which may exist. A tag created on disk since the snapshot was taken makes the whole
+     * update fail.
+     *
+     * @return the tags that could not be created, with the reason, or an empty list if all were created
+     */
+    static List<String> createTags(Repository repository, Map<String, ObjectId> tags) throws IOException {
+        BatchRefUpdate update = repository.getRefDatabase().newBatchUpdate()
+            .setAtomic(true)
+            .setRefLogMessage("tagged by aurora-git-version", false);
+        tags.forEach((tagName, commit) ->
+            update.addCommand(new ReceiveCommand(ObjectId.zeroId(), commit, Constants.R_TAGS + tagName)));
+        try (RevWalk revWalk = new RevWalk(repository)) {
+            update.execute(revWalk, NullProgressMonitor.INSTANCE);
+        }
+        return update.getCommands().stream()
+            .filter(command -> command.getResult() != ReceiveCommand.Result.OK)
+            .map(command -> command.getRefName() + " " + command.getResult())
+            .collect(Collectors.toList());
+    }
+}
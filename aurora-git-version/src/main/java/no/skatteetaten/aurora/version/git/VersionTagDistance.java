@@ -0,0 +1,51 @@
+package no.skatteetaten.aurora.version.git;
+
+import org.eclipse.jgit.lib.ObjectId;
+
+/**
+ * The nearest version tag of a commit and the number of commits between them, like <code>git describe</code>.
+ */
+public final class VersionTagDistance {
+
+    private final String tagName;
+
+    private final ObjectId taggedCommit;
+
+    private final int distance;
+
+    private final String abbreviatedCommit;
+
+    VersionTagDistance(String tagName, ObjectId taggedCommit, int distance, String abbreviatedCommit) {
+        this.tagName = tagName;
+        this.taggedCommit = taggedCommit;
+        this.distance = distance;
+        this.abbreviatedCommit = abbreviatedCommit;
+    }
+
+    public String getTagName() {
+        return tagName;
+    }
+
+    public ObjectId getTaggedCommit() {
+        return taggedCommit;
+    }
+
+    /**
+     * The number of commits reachable from the described commit, but not from the tagged commit.
+     */
+    public int getDistance() {
+        return distance;
+    }
+
+    public String getAbbreviatedCommit() {
+        return abbreviatedCommit;
+    }
+
+    /**
+     * Formats a pre-release version with the distance and the commit as build metadata, for example
+     * <code>1.4.2-rc.37+g1a2b3c4</code> for the version <code>1.4.2</code>.
+     */
+    public String toPreReleaseVersion(String version) {
+        return String.format("%s-rc.%d+g%s", version, distance, abbreviatedCommit);
+    }
+}
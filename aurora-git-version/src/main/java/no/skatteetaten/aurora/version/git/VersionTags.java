@@ -0,0 +1,97 @@
+package no.skatteetaten.aurora.version.git;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+
+/**
+ * Reads version tags from a snapshot of the refs of a repository, or from a set of {@link KnownTags} when one is
+ * given.
+ */
+final class VersionTags {
+
+    private final Supplier<RefSnapshot> refs;
+
+    private final KnownTags knownTags;
+
+    private final TagHeaders tagHeaders = new TagHeaders();
+
+    VersionTags(Supplier<RefSnapshot> refs, KnownTags knownTags) {
+        this.refs = refs;
+        this.knownTags = knownTags;
+    }
+
+    List<String> getTagsOnCommit(ObjectId commit, String versionPrefix) {
+        if (knownTags != null) {
+            return knownTags.getVersionTagsFromCommit(commit, versionPrefix);
+        }
+        return getTagsByCommit(versionPrefix).getOrDefault(commit, Collections.emptyList());
+    }
+
+    List<String> getVersions(String versionPrefix) {
+        if (knownTags != null) {
+            return knownTags.getVersionsFromTags(versionPrefix);
+        }
+        return refs.get().getTagNames(versionPrefix).stream()
+            .map(tagName -> tagName.substring(versionPrefix.length()))
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * The version tags of each of the prefixes. Each prefix is matched with case, like every other lookup of version
+     * tags, and is a range of the tag names of the snapshot, which are ordered by name, so only the tags with one of
+     * the prefixes are visited.
+     */
+    Map<String, NamespaceTags> getNamespaces(ObjectId commit, List<String> prefixes) {
+        Map<String, NamespaceTags> namespaces = new LinkedHashMap<>();
+        for (String prefix : prefixes) {
+            namespaces.computeIfAbsent(prefix, p -> new NamespaceTags(p, getVersions(p),
+                commit != null ? getTagsOnCommit(commit, p) : Collections.emptyList()));
+        }
+        return namespaces;
+    }
+
+    /**
+     * The tagger times in milliseconds of the annotated tags among the given tags, by tag name. Lightweight tags and
+     * {@link KnownTags} have none.
+     */
+    Map<String, Long> getTaggerTimes(Repository repository, List<String> tagNames) throws IOException {
+        if (knownTags != null) {
+            return Collections.emptyMap();
+        }
+        RefSnapshot snapshot = refs.get();
+        Map<String, ObjectId> annotatedTags = new LinkedHashMap<>();
+        for (String tagName : tagNames) {
+            ObjectId tagObject = snapshot.getTagObject(tagName);
+            if (tagObject != null) {
+                annotatedTags.put(tagName, tagObject);
+            }
+        }
+        Map<ObjectId, Long> times = tagHeaders.getTaggerTimes(repository, annotatedTags.values());
+        Map<String, Long> taggerTimes = new LinkedHashMap<>();
+        annotatedTags.forEach((tagName, tagObject) -> {
+            Long time = times.get(tagObject);
+            if (time != null) {
+                taggerTimes.put(tagName, time);
+            }
+        });
+        return taggerTimes;
+    }
+
+    /**
+     * The version tags grouped by the commit they point at, with annotated tags peeled.
+     */
+    Map<ObjectId, List<String>> getTagsByCommit(String versionPrefix) {
+        if (knownTags != null) {
+            return knownTags.getVersionTagsByCommit(versionPrefix);
+        }
+        return refs.get().getTagsByCommit(versionPrefix);
+    }
+}
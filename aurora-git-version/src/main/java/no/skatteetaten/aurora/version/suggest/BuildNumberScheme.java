@@ -0,0 +1,48 @@
+package no.skatteetaten.aurora.version.suggest;
+
+/**
+ * Release versions that are plain build numbers, like <code>57</code>. All build numbers are in one release track,
+ * and the next version is the one after the latest. The first build number is the first number of the version hint,
+ * or <code>1</code> without one.
+ */
+public final class BuildNumberScheme implements VersionScheme {
+
+    @Override
+    public String getName() {
+        return "build-number";
+    }
+
+    @Override
+    public long[] parse(String version) {
+        return VersionKeys.parseNumbers(version, 1);
+    }
+
+    @Override
+    public long[] parseHint(String versionHint) {
+        return VersionKeys.parseHint(versionHint);
+    }
+
+    @Override
+    public String format(long[] key) {
+        return Long.toString(key[0]);
+    }
+
+    @Override
+    public int getReleaseTrackDepth(VersionSegment versionSegmentToIncrement, long[] versionHint) {
+        return 0;
+    }
+
+    @Override
+    public String next(VersionSegment versionSegmentToIncrement, String versionHint, long[] latestInReleaseTrack) {
+        if (latestInReleaseTrack != null) {
+            return Long.toString(latestInReleaseTrack[0] + 1);
+        }
+        long[] hint = parseHint(versionHint);
+        return Long.toString(hint.length > 0 ? hint[0] : 1);
+    }
+
+    @Override
+    public String toString() {
+        return getName();
+    }
+}
@@ -0,0 +1,76 @@
+package no.skatteetaten.aurora.version.suggest;
+
+import java.time.Clock;
+import java.time.LocalDate;
+
+/**
+ * Calendar versions of the year, the month and a counter within the month, like <code>2026.10.3</code>. The month is
+ * written without a leading zero, but one is accepted in tags.
+ * <p>
+ * The next version is the first of the current month, or the one after the latest version in the release track if
+ * that is from the current month. A latest version from a later month, for instance from a clock that is behind, is
+ * counted on from, so versions never go backwards. The segment to increment is not used, and the version hint only
+ * selects the release track, like <code>2026</code> for the versions of that year.
+ */
+public final class CalendarVersionScheme implements VersionScheme {
+
+    private static final int NUMBERS = 3;
+
+    private static final int MONTHS = 12;
+
+    private final Clock clock;
+
+    /**
+     * @param clock the clock giving the current month
+     */
+    public CalendarVersionScheme(Clock clock) {
+        this.clock = clock;
+    }
+
+    @Override
+    public String getName() {
+        return "calver";
+    }
+
+    /**
+     * The name and the current month, since the next version depends on it.
+     */
+    @Override
+    public String getCacheKey() {
+        LocalDate today = LocalDate.now(clock);
+        return getName() + "@" + today.getYear() + "-" + today.getMonthValue();
+    }
+
+    @Override
+    public long[] parse(String version) {
+        long[] key = VersionKeys.parseNumbers(version, NUMBERS);
+        return key != null && key[1] >= 1 && key[1] <= MONTHS ? key : null;
+    }
+
+    @Override
+    public long[] parseHint(String versionHint) {
+        return VersionKeys.parseHint(versionHint);
+    }
+
+    @Override
+    public String format(long[] key) {
+        return VersionKeys.format(key);
+    }
+
+    @Override
+    public String next(VersionSegment versionSegmentToIncrement, String versionHint, long[] latestInReleaseTrack) {
+        LocalDate today = LocalDate.now(clock);
+        long year = today.getYear();
+        long month = today.getMonthValue();
+        long[] latest = latestInReleaseTrack;
+        if (latest != null && (latest[0] > year || latest[0] == year && latest[1] >= month)) {
+            return format(new long[] {latest[0], latest[1], latest[2] + 1});
+        }
+        return format(new long[] {year, month, 0});
+    }
+
+    @Override
+    public String toString() {
+        return getName();
+    }
+}
@@ -0,0 +1,38 @@
+package no.skatteetaten.aurora.version.suggest;
+
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Classifies commit messages according to https://www.conventionalcommits.org/. A breaking change gives MAJOR, a
+ * <code>feat</code> gives MINOR and a <code>fix</code> gives PATCH. Other types do not call for a release on their
+ * own.
+ */
+public final class ConventionalCommits {
+
+    private static final Pattern HEADER = Pattern.compile("^(?<type>[A-Za-z]+)(\\([^)\\r\\n]*\\))?(?<breaking>!)?: ");
+
+    private static final Pattern BREAKING_CHANGE_FOOTER = Pattern.compile("^BREAKING[ -]CHANGE: ", Pattern.MULTILINE);
+
+    private ConventionalCommits() {
+    }
+
+    public static Optional<VersionSegment> classify(CharSequence commitMessage) {
+        Matcher header = HEADER.matcher(commitMessage);
+        if (!header.lookingAt()) {
+            return Optional.empty();
+        }
+        if (header.group("breaking") != null || BREAKING_CHANGE_FOOTER.matcher(commitMessage).find()) {
+            return Optional.of(VersionSegment.MAJOR);
+        }
+        String type = header.group("type");
+        if ("feat".equalsIgnoreCase(type)) {
+            return Optional.of(VersionSegment.MINOR);
+        }
+        if ("fix".equalsIgnoreCase(type)) {
+            return Optional.of(VersionSegment.PATCH);
+        }
+        return Optional.empty();
+    }
+}
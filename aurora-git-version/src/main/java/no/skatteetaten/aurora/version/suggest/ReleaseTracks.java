@@ -0,0 +1,209 @@
+package no.skatteetaten.aurora.version.suggest;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * The highest version in every release track, kept up to date as versions are added. Finding the latest version in
+ * a track is a lookup, rather than a scan of all the versions, so it suits callers that add versions one at a time
+ * and ask for the next release version in between.
+ * <p>
+ * A release track is given by the version hint and the segment to increment, as described for
+ * {@link ReleaseVersionIncrementer#findLatestVersionInReleaseTrack(VersionSegment, String, List)}, or as the
+ * {@link VersionScheme} gives it. Each version is parsed once by the scheme, and the versions are compared by their
+ * keys. Versions that are not release versions in the scheme are not part of any track. The latest keys of the tracks
+ * are kept in arrays ordered by their leading numbers, so adding a version and finding a track are binary searches
+ * that neither box the numbers nor build keys of strings.
+ */
+public final class ReleaseTracks {
+
+    private final VersionScheme scheme;
+
+    private final LatestByLeadingNumbers latestByMajor = new LatestByLeadingNumbers(1);
+
+    private final LatestByLeadingNumbers latestByMajorAndMinor = new LatestByLeadingNumbers(2);
+
+    private long[] latest;
+
+    /**
+     * Release tracks of semantic versions, see {@link VersionScheme#SEMANTIC}.
+     */
+    public ReleaseTracks() {
+        this(VersionScheme.SEMANTIC);
+    }
+
+    public ReleaseTracks(VersionScheme scheme) {
+        this.scheme = scheme;
+    }
+
+    public static ReleaseTracks of(Collection<String> versions) {
+        return of(VersionScheme.SEMANTIC, versions);
+    }
+
+    public static ReleaseTracks of(VersionScheme scheme, Collection<String> versions) {
+        ReleaseTracks releaseTracks = new ReleaseTracks(scheme);
+        versions.forEach(releaseTracks::add);
+        return releaseTracks;
+    }
+
+    public VersionScheme getScheme() {
+        return scheme;
+    }
+
+    public void add(String version) {
+        long[] key = scheme.parse(version);
+        if (key != null) {
+            add(key);
+        }
+    }
+
+    /**
+     * Adds the latest versions of every release track of the other release tracks, for release tracks built
+     * separately, for instance in parallel, that share one version line. Both must have the same scheme.
+     */
+    public void addAll(ReleaseTracks other) {
+        if (!scheme.equals(other.scheme)) {
+            throw new IllegalArgumentException("Release tracks of version scheme " + other.scheme
+                + " cannot be added to release tracks of version scheme " + scheme);
+        }
+        latest = max(latest, other.latest);
+        latestByMajor.addAll(other.latestByMajor);
+        latestByMajorAndMinor.addAll(other.latestByMajorAndMinor);
+    }
+
+    public Optional<VersionNumber> findLatest(VersionSegment versionSegmentToIncrement, String versionHintAsString) {
+        return findLatestVersion(versionSegmentToIncrement, versionHintAsString).map(VersionNumber::parse);
+    }
+
+    /**
+     * Same as {@link #findLatest(VersionSegment, String)}, as written by the scheme.
+     */
+    public Optional<String> findLatestVersion(VersionSegment versionSegmentToIncrement, String versionHintAsString) {
+        return Optional.ofNullable(findLatestKey(versionSegmentToIncrement, versionHintAsString)).map(scheme::format);
+    }
+
+    /**
+     * The next release version in the release track, see
+     * {@link ReleaseVersionIncrementer#suggestNextReleaseVersionAfter(VersionSegment, String, Optional)}.
+     */
+    public VersionNumber suggestNext(VersionSegment versionSegmentToIncrement, String versionHintAsString) {
+        return VersionNumber.parse(suggestNextVersion(versionSegmentToIncrement, versionHintAsString));
+    }
+
+    /**
+     * The next release version in the release track, as given by {@link VersionScheme#next}.
+     */
+    public String suggestNextVersion(VersionSegment versionSegmentToIncrement, String versionHintAsString) {
+        return scheme.next(versionSegmentToIncrement, versionHintAsString,
+            findLatestKey(versionSegmentToIncrement, versionHintAsString));
+    }
+
+    private void add(long[] key) {
+        latest = max(latest, key);
+        latestByMajor.add(key);
+        if (key.length >= 2) {
+            latestByMajorAndMinor.add(key);
+        }
+    }
+
+    private long[] findLatestKey(VersionSegment versionSegmentToIncrement, String versionHintAsString) {
+        long[] hint = scheme.parseHint(versionHintAsString);
+        int depth = scheme.getReleaseTrackDepth(versionSegmentToIncrement, hint);
+        if (depth == 0) {
+            return latest;
+        }
+        return depth == 1 ? latestByMajor.get(hint) : latestByMajorAndMinor.get(hint);
+    }
+
+    private long[] max(long[] a, long[] b) {
+        if (a == null || b == null) {
+            return a == null ? b : a;
+        }
+        return scheme.compare(a, b) >= 0 ? a : b;
+    }
+
+    /**
+     * The latest key of every release track of the versions sharing their leading numbers, ordered by those numbers.
+     */
+    private final class LatestByLeadingNumbers {
+
+        private static final int INITIAL_CAPACITY = 8;
+
+        private final int numbers;
+
+        private long[][] keys = new long[INITIAL_CAPACITY][];
+
+        private int size;
+
+        LatestByLeadingNumbers(int numbers) {
+            this.numbers = numbers;
+        }
+
+        /**
+         * The latest key of the release track of the leading numbers of the given key or version hint, or
+         * <code>null</code> if the release track has no versions.
+         */
+        long[] get(long[] leadingNumbers) {
+            int index = indexOf(leadingNumbers);
+            return index >= 0 ? keys[index] : null;
+        }
+
+        void add(long[] key) {
+            int index = indexOf(key);
+            if (index >= 0) {
+                keys[index] = max(keys[index], key);
+                return;
+            }
+            int insertAt = -index - 1;
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+            }
+            System.arraycopy(keys, insertAt, keys, insertAt + 1, size - insertAt);
+            keys[insertAt] = key;
+            size++;
+        }
+
+        void addAll(LatestByLeadingNumbers other) {
+            for (int i = 0; i < other.size; i++) {
+                add(other.keys[i]);
+            }
+        }
+
+        /**
+         * The index of the release track, or <code>-(insertion point) - 1</code> if it has no versions. Versions are
+         * usually added in order, so the last release track is tried first.
+         */
+        private int indexOf(long[] leadingNumbers) {
+            if (size > 0 && compareLeadingNumbers(keys[size - 1], leadingNumbers) < 0) {
+                return -size - 1;
+            }
+            int low = 0;
+            int high = size - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                int comparison = compareLeadingNumbers(keys[middle], leadingNumbers);
+                if (comparison == 0) {
+                    return middle;
+                }
+                if (comparison < 0) {
+                    low = middle + 1;
+                } else {
+                    high = middle - 1;
+                }
+            }
+            return -low - 1;
+        }
+
+        private int compareLeadingNumbers(long[] key, long[] other) {
+            for (int i = 0; i < numbers; i++) {
+                int comparison = Long.compare(key[i], other[i]);
+                if (comparison != 0) {
+                    return comparison;
+                }
+            }
+            return 0;
+        }
+    }
+}
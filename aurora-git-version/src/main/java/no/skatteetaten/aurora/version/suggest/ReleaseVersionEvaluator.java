@@ -2,7 +2,8 @@ package no.skatteetaten.aurora.version.suggest;
 
 import java.util.List;
 import java.util.Optional;
-import java.util.stream.Collectors;
+
+import no.skatteetaten.aurora.version.utils.PrefixTrie;
 
 public final class ReleaseVersionEvaluator {
 
@@ -19,6 +20,10 @@ public final class ReleaseVersionEvaluator {
      * Examples:<br>
      * 1.0 - Will never increment Minor even if commit start matches prefix
      * 1   - Increment PATCH to next minor version<br>
+     * <p>
+     * The prefixes are compiled on every call. Callers evaluating many versions with the same prefixes should compile
+     * them once with {@link PrefixTrie#compile(java.util.Collection)} and use
+     * {@link #findVersionSegmentToIncrement(String, Optional, PrefixTrie, Optional)}.
      */
     public static VersionSegment findVersionSegmentToIncrement(
         String versionHintAsString,
@@ -28,29 +33,52 @@ public final class ReleaseVersionEvaluator {
         VersionNumber versionHint = VersionNumber.parseVersionHint(versionHintAsString);
 
         if (versionHint.getVersionNumberSegments().size() == 1
-            && prefixListContainsBranchNameCaseInsensitive(originatingBranchName,
-            forceMinorIncrementForBranchPrefixes)) {
+            && matchesPrefix(originatingBranchName, PrefixTrie.compile(forceMinorIncrementForBranchPrefixes))) {
             return VersionSegment.MINOR;
         }
 
         return VersionSegment.PATCH;
     }
 
-    private static boolean prefixListContainsBranchNameCaseInsensitive(
-        Optional<String> optionalBranchName, List<String> prefixList) {
+    /**
+     * Same as {@link #findVersionSegmentToIncrement(String, Optional, List)}, with the prefixes already compiled, for
+     * callers that evaluate many versions with the same options, and with the segment found from conventional
+     * commits since the latest release also taken into account. The number of segments in the version hint still
+     * limits what can be incremented; 1.0 never increments MINOR and 1 never increments MAJOR. An empty version hint
+     * does not lock any segment.
+     */
+    public static VersionSegment findVersionSegmentToIncrement(
+        String versionHintAsString,
+        Optional<String> originatingBranchName,
+        PrefixTrie forceMinorIncrementForBranchPrefixes,
+        Optional<VersionSegment> conventionalCommitSegment) {
+
+        int lockedSegments = isVersionHintEmpty(versionHintAsString)
+            ? 0
+            : VersionNumber.parseVersionHint(versionHintAsString).getVersionNumberSegments().size();
 
-        List<String> lowerCasedPrefixList = prefixList.stream()
-            .map(String::toLowerCase)
-            .collect(Collectors.toList());
+        VersionSegment fromBranch = lockedSegments <= 1
+            && matchesPrefix(originatingBranchName, forceMinorIncrementForBranchPrefixes)
+            ? VersionSegment.MINOR
+            : VersionSegment.PATCH;
+        VersionSegment segment = conventionalCommitSegment
+            .map(s -> VersionSegment.mostSignificant(s, fromBranch))
+            .orElse(fromBranch);
 
-        return optionalBranchName
-            .map(String::toLowerCase)
-            .flatMap(branchName ->
-                lowerCasedPrefixList.stream()
-                    .filter(branchName::startsWith)
-                    .findFirst())
-            .isPresent();
+        if (lockedSegments >= 2) {
+            return VersionSegment.PATCH;
+        }
+        if (lockedSegments == 1 && segment == VersionSegment.MAJOR) {
+            return VersionSegment.MINOR;
+        }
+        return segment;
     }
 
-}
+    static boolean isVersionHintEmpty(String versionHintAsString) {
+        return versionHintAsString == null || versionHintAsString.trim().isEmpty();
+    }
 
+    private static boolean matchesPrefix(Optional<String> optionalBranchName, PrefixTrie prefixes) {
+        return optionalBranchName.isPresent() && prefixes.matchesPrefixOf(optionalBranchName.get());
+    }
+}
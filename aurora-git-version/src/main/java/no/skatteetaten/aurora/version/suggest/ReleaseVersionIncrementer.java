@@ -1,7 +1,6 @@
 package no.skatteetaten.aurora.version.suggest;
 
 import java.util.List;
-import java.util.Objects;
 import java.util.Optional;
 
 public final class ReleaseVersionIncrementer {
@@ -11,7 +10,8 @@ public final class ReleaseVersionIncrementer {
 
     /**
      * Suggests a new version number based on given segment to increase, combined with current version
-     * and existing version tags.
+     * and existing version tags. An empty version hint does not lock the release track to any major or minor
+     * version, so the given segment of the highest existing version is incremented.
      * <p>
      * http://semver.org/
      */
@@ -20,15 +20,36 @@ public final class ReleaseVersionIncrementer {
         String versionHintAsString,
         List<String> existingVersions) {
 
-        VersionNumber versionHint = VersionNumber.parseVersionHint(versionHintAsString);
+        return suggestNextReleaseVersionAfter(
+            versionSegmentToIncrement,
+            versionHintAsString,
+            findLatestVersionInReleaseTrack(versionSegmentToIncrement, versionHintAsString, existingVersions));
+    }
+
+    /**
+     * Finds the highest existing version in the release track given by the version hint and the segment to increment.
+     */
+    public static Optional<VersionNumber> findLatestVersionInReleaseTrack(
+        VersionSegment versionSegmentToIncrement,
+        String versionHintAsString,
+        List<String> existingVersions) {
+
+        return ReleaseTracks.of(existingVersions).findLatest(versionSegmentToIncrement, versionHintAsString);
+    }
+
+    /**
+     * Same as {@link #suggestNextReleaseVersion(VersionSegment, String, List)}, but with the latest version in the
+     * release track already known.
+     */
+    public static VersionNumber suggestNextReleaseVersionAfter(
+        VersionSegment versionSegmentToIncrement,
+        String versionHintAsString,
+        Optional<VersionNumber> latestTagInCurrentReleaseTrack) {
 
-        Optional<VersionNumber> latestTagInCurrentReleaseTrack = existingVersions.stream()
-            .map(ReleaseVersionIncrementer::getVersionNumberOrNull)
-            .filter(Objects::nonNull)
-            .sorted()
-            .filter(
-                versionNumber -> isVersionTagPartOfReleaseTrack(versionSegmentToIncrement, versionHint, versionNumber))
-            .reduce((first, second) -> second);
+        VersionNumber versionHint = parseVersionHintOrNull(versionHintAsString);
+        if (versionHint == null) {
+            versionHint = VersionNumber.parseVersionHint("0");
+        }
 
         // To handle first version tag in a new release track
         if (!latestTagInCurrentReleaseTrack.isPresent()) {
@@ -40,46 +61,20 @@ public final class ReleaseVersionIncrementer {
             return versionHint.unlockVersion();
         }
 
-        if (VersionSegment.MINOR.equals(versionSegmentToIncrement)) {
+        if (VersionSegment.MAJOR.equals(versionSegmentToIncrement)) {
+            return latestTagInCurrentReleaseTrack.get().incrementMajorSegment();
+        } else if (VersionSegment.MINOR.equals(versionSegmentToIncrement)) {
             return latestTagInCurrentReleaseTrack.get().incrementMinorSegment();
         } else {
             return latestTagInCurrentReleaseTrack.get().incrementPatchSegment();
         }
     }
 
-    private static VersionNumber getVersionNumberOrNull(String versionString) {
-        try {
-            return VersionNumber.parse(versionString);
-        } catch (Exception e) {
+    private static VersionNumber parseVersionHintOrNull(String versionHintAsString) {
+        if (ReleaseVersionEvaluator.isVersionHintEmpty(versionHintAsString)) {
             return null;
         }
-    }
-
-    private static boolean isVersionTagPartOfReleaseTrack(
-        VersionSegment versionSegment, VersionNumber versionHint, VersionNumber versionTag) {
-
-        if (!versionTag.isSemanticVersion()) {
-            return false;
-        }
-
-        List<String> versionTagSegments = versionTag.getVersionNumberSegments();
-        List<String> versionHintSegments = versionHint.getVersionNumberSegments();
-
-        int segmentsToCompare = VersionSegment.PATCH.equals(versionSegment) ? 2 : 1;
-        if (versionHintSegments.size() < segmentsToCompare) {
-            segmentsToCompare = versionHintSegments.size();
-        }
-
-        if (segmentsToCompare == 0) {
-            return false;
-        }
-        if (segmentsToCompare >= 1 && !versionHintSegments.get(0).equals(versionTagSegments.get(0))) {
-            return false;
-        }
-        if (segmentsToCompare >= 2 && !versionHintSegments.get(1).equals(versionTagSegments.get(1))) {
-            return false;
-        }
-        return true;
+        return VersionNumber.parseVersionHint(versionHintAsString);
     }
 
     private static boolean isVersionHintGreaterThanVersionTag(VersionNumber versionHint, VersionNumber versionTag) {
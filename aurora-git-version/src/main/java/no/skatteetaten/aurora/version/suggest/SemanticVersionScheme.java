@@ -0,0 +1,56 @@
+package no.skatteetaten.aurora.version.suggest;
+
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+/**
+ * Release versions of three numbers, like <code>1.4.2</code>, with optional build metadata that is not part of the
+ * key. Pre-releases are not release versions. The next version is given by {@link ReleaseVersionIncrementer}: the
+ * version hint locks the leading segments, and the segment to increment decides which of the others is incremented.
+ */
+public final class SemanticVersionScheme implements VersionScheme {
+
+    /**
+     * The same versions as {@link VersionNumber#isValidSemanticVersion(String)}, compiled once.
+     */
+    private static final Pattern RELEASE_VERSION = Pattern.compile("^\\d+\\.\\d+\\.\\d+?(\\+[0-9a-zA-Z]+)?$");
+
+    private static final int NUMBERS = 3;
+
+    @Override
+    public String getName() {
+        return "semver";
+    }
+
+    @Override
+    public long[] parse(String version) {
+        if (version == null || !RELEASE_VERSION.matcher(version).matches()) {
+            return null;
+        }
+        int metadata = version.indexOf('+');
+        return VersionKeys.parseNumbers(metadata < 0 ? version : version.substring(0, metadata), NUMBERS);
+    }
+
+    @Override
+    public long[] parseHint(String versionHint) {
+        return VersionKeys.parseHint(versionHint);
+    }
+
+    @Override
+    public String format(long[] key) {
+        return VersionKeys.format(key);
+    }
+
+    @Override
+    public String next(VersionSegment versionSegmentToIncrement, String versionHint, long[] latestInReleaseTrack) {
+        Optional<VersionNumber> latest = Optional.ofNullable(latestInReleaseTrack)
+            .map(key -> VersionNumber.parse(format(key)));
+        return ReleaseVersionIncrementer.suggestNextReleaseVersionAfter(versionSegmentToIncrement, versionHint, latest)
+            .toString();
+    }
+
+    @Override
+    public String toString() {
+        return getName();
+    }
+}
@@ -0,0 +1,70 @@
+package no.skatteetaten.aurora.version.suggest;
+
+import java.util.List;
+
+/**
+ * Parsing and formatting of the keys of the {@link VersionScheme}s, without regular expressions.
+ */
+final class VersionKeys {
+
+    private static final long[] EMPTY = new long[0];
+
+    /**
+     * More digits than this may not fit in a long.
+     */
+    private static final int MAX_DIGITS = 18;
+
+    private static final int RADIX = 10;
+
+    private VersionKeys() {
+    }
+
+    /**
+     * The numbers of a version of only digits and dots, like <code>2026.10.3</code>, or <code>null</code> if it is
+     * something else or has another number of numbers than given.
+     */
+    static long[] parseNumbers(String version, int numbers) {
+        if (version == null) {
+            return null;
+        }
+        long[] key = new long[numbers];
+        int index = 0;
+        int digits = 0;
+        for (int i = 0; i < version.length(); i++) {
+            char c = version.charAt(i);
+            if (c == '.' && digits > 0 && index < numbers - 1) {
+                index++;
+                digits = 0;
+            } else if (c >= '0' && c <= '9' && digits < MAX_DIGITS) {
+                key[index] = key[index] * RADIX + (c - '0');
+                digits++;
+            } else {
+                return null;
+            }
+        }
+        return digits > 0 && index == numbers - 1 ? key : null;
+    }
+
+    /**
+     * The numbers of the version hint, ignoring anything after the digits of each segment, like
+     * {@link VersionNumber#parseVersionHint(String)}.
+     */
+    static long[] parseHint(String versionHint) {
+        if (ReleaseVersionEvaluator.isVersionHintEmpty(versionHint)) {
+            return EMPTY;
+        }
+        List<String> segments = VersionNumber.parseVersionHint(versionHint).getVersionNumberSegments();
+        return segments.stream().mapToLong(Long::parseLong).toArray();
+    }
+
+    static String format(long[] key) {
+        StringBuilder version = new StringBuilder();
+        for (long number : key) {
+            if (version.length() > 0) {
+                version.append('.');
+            }
+            version.append(number);
+        }
+        return version.toString();
+    }
+}
@@ -106,6 +106,17 @@ public final class VersionNumber implements Comparable<VersionNumber> {
         return new VersionNumber(newSegments, isSemanticVersion);
     }
 
+    public VersionNumber incrementMajorSegment() {
+        List<String> newSegments = new ArrayList<>(versionNumberSegments);
+        Integer majorElement = Integer.parseInt(versionNumberSegments.get(0));
+        majorElement += 1;
+        newSegments.set(0, majorElement.toString());
+        for (int i = 1; i < newSegments.size(); i++) {
+            newSegments.set(i, "0");
+        }
+        return new VersionNumber(newSegments, isSemanticVersion);
+    }
+
     public VersionNumber incrementMinorSegment() {
         List<String> newSegments = new ArrayList<>(versionNumberSegments);
         Integer minorElement = Integer.parseInt(versionNumberSegments.get(versionNumberSegments.size() - 2));
@@ -0,0 +1,144 @@
+package no.skatteetaten.aurora.version.suggest;
+
+import java.time.Clock;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * How release versions are written, ordered and incremented. The version tags are parsed once into keys of numbers,
+ * which are compared without allocating, so finding the latest version in a release track among many tags is cheap.
+ * <p>
+ * A release track is given by the version hint and the segment to increment, see
+ * {@link #getReleaseTrackDepth(VersionSegment, long[])}. Implementations must be safe for concurrent use.
+ */
+public interface VersionScheme {
+
+    /**
+     * Numeric dotted versions like <code>1.4.2</code>, the default. See {@link SemanticVersionScheme}.
+     */
+    VersionScheme SEMANTIC = new SemanticVersionScheme();
+
+    /**
+     * Calendar versions like <code>2026.10.3</code>, by the current UTC date. See {@link CalendarVersionScheme}.
+     */
+    VersionScheme CALENDAR = new CalendarVersionScheme(Clock.systemUTC());
+
+    /**
+     * Plain build numbers like <code>57</code>. See {@link BuildNumberScheme}.
+     */
+    VersionScheme BUILD_NUMBER = new BuildNumberScheme();
+
+    /**
+     * The built in schemes, with {@link #SEMANTIC} first.
+     *
+     * @return the built in schemes
+     */
+    static List<VersionScheme> builtIn() {
+        return Arrays.asList(SEMANTIC, CALENDAR, BUILD_NUMBER);
+    }
+
+    /**
+     * The built in scheme with the given name, ignoring case.
+     *
+     * @param name the name of the scheme, like <code>semver</code>
+     * @return the scheme
+     * @throws IllegalArgumentException if there is no such scheme
+     */
+    static VersionScheme forName(String name) {
+        return builtIn().stream()
+            .filter(scheme -> scheme.getName().equalsIgnoreCase(name))
+            .findFirst()
+            .orElseThrow(() -> new IllegalArgumentException("Unknown version scheme " + name));
+    }
+
+    /**
+     * The name of the scheme, like <code>semver</code>.
+     *
+     * @return the name of the scheme
+     */
+    String getName();
+
+    /**
+     * A key that changes whenever the versions given by the scheme can change, for caches of suggested versions. By
+     * default the name of the scheme.
+     *
+     * @return the cache key of the scheme
+     */
+    default String getCacheKey() {
+        return getName();
+    }
+
+    /**
+     * The key of the given release version, or <code>null</code> if it is not a release version in this scheme.
+     * Versions that are not release versions, like pre-releases, are not part of any release track.
+     *
+     * @param version the version, without the version prefix
+     * @return the key of the version, or <code>null</code>
+     */
+    long[] parse(String version);
+
+    /**
+     * The numbers of the version hint, or an empty array if there is no version hint.
+     *
+     * @param versionHint the version hint, like <code>1.2</code>, or <code>null</code>
+     * @return the numbers of the version hint
+     */
+    long[] parseHint(String versionHint);
+
+    /**
+     * The version of the given key, so <code>parse(format(key))</code> gives the same key.
+     *
+     * @param key a key from {@link #parse(String)}
+     * @return the version of the key
+     */
+    String format(long[] key);
+
+    /**
+     * Compares two keys from {@link #parse(String)}, number by number, with the shorter key first if one is a prefix
+     * of the other. Nothing is allocated.
+     *
+     * @param key   a key from {@link #parse(String)}
+     * @param other another key from {@link #parse(String)}
+     * @return a negative number, zero or a positive number as the key is lower than, equal to or higher than the
+     *         other key
+     */
+    default int compare(long[] key, long[] other) {
+        int length = Math.min(key.length, other.length);
+        for (int i = 0; i < length; i++) {
+            int comparison = Long.compare(key[i], other[i]);
+            if (comparison != 0) {
+                return comparison;
+            }
+        }
+        return Integer.compare(key.length, other.length);
+    }
+
+    /**
+     * The number of leading numbers of the version hint that the versions in the release track share with it.
+     * <code>0</code> puts all versions in one release track. By default all versions are in the release track without
+     * a version hint or when incrementing {@link VersionSegment#MAJOR}, the versions with the same first two numbers
+     * when incrementing {@link VersionSegment#PATCH} with a hint of two numbers or more, and otherwise the versions
+     * with the same first number.
+     *
+     * @param versionSegmentToIncrement the segment to increment
+     * @param versionHint               the numbers of the version hint from {@link #parseHint(String)}
+     * @return the number of leading numbers shared by the versions in the release track
+     */
+    default int getReleaseTrackDepth(VersionSegment versionSegmentToIncrement, long[] versionHint) {
+        if (versionHint.length == 0 || VersionSegment.MAJOR.equals(versionSegmentToIncrement)) {
+            return 0;
+        }
+        return VersionSegment.PATCH.equals(versionSegmentToIncrement) && versionHint.length >= 2 ? 2 : 1;
+    }
+
+    /**
+     * The next release version in the release track.
+     *
+     * @param versionSegmentToIncrement the segment to increment
+     * @param versionHint               the version hint of the release track
+     * @param latestInReleaseTrack      the key of the latest version in the release track, or <code>null</code> if
+     *                                  the release track has no versions yet
+     * @return the next release version
+     */
+    String next(VersionSegment versionSegmentToIncrement, String versionHint, long[] latestInReleaseTrack);
+}
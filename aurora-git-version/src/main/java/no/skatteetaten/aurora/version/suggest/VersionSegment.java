@@ -1,6 +1,14 @@
 package no.skatteetaten.aurora.version.suggest;
 
+/**
+ * The segments of a version number, ordered from most to least significant.
+ */
 public enum VersionSegment {
+    MAJOR,
     MINOR,
-    PATCH
+    PATCH;
+
+    public static VersionSegment mostSignificant(VersionSegment a, VersionSegment b) {
+        return a.compareTo(b) <= 0 ? a : b;
+    }
 }
@@ -0,0 +1,54 @@
+package no.skatteetaten.aurora.version.utils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A list of branch names and glob patterns like <code>release/*</code>, compiled once so that matching a branch does
+ * not allocate and does not depend on the number of rules. Plain names are looked up in a hash set, and all the
+ * patterns are matched together by one automaton. See {@link GlobAutomaton} for the pattern syntax.
+ */
+public final class BranchMatcher {
+
+    private static final BranchMatcher EMPTY = new BranchMatcher(Collections.emptySet(), null);
+
+    private final Set<String> names;
+
+    private final GlobAutomaton patterns;
+
+    private BranchMatcher(Set<String> names, GlobAutomaton patterns) {
+        this.names = names;
+        this.patterns = patterns;
+    }
+
+    public static BranchMatcher compile(Collection<String> rules) {
+        if (rules == null || rules.isEmpty()) {
+            return EMPTY;
+        }
+        Set<String> names = new HashSet<>();
+        List<String> globs = new ArrayList<>();
+        for (String rule : rules) {
+            if (GlobAutomaton.isGlob(rule)) {
+                globs.add(rule);
+            } else {
+                names.add(rule);
+            }
+        }
+        return new BranchMatcher(names, globs.isEmpty() ? null : GlobAutomaton.compile(globs));
+    }
+
+    public boolean isEmpty() {
+        return this == EMPTY;
+    }
+
+    public boolean matches(String branchName) {
+        if (branchName == null) {
+            return false;
+        }
+        return names.contains(branchName) || patterns != null && patterns.matches(branchName);
+    }
+}
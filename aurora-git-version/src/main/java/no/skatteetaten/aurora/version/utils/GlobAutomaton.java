@@ -0,0 +1,207 @@
+package no.skatteetaten.aurora.version.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * A set of glob patterns compiled into one deterministic automaton, so a name is matched against all of them in a
+ * single pass over its characters, without allocating. In the patterns <code>*</code> matches any characters except
+ * <code>/</code>, <code>**</code> matches any characters, <code>?</code> matches one character except
+ * <code>/</code>, and all other characters match themselves.
+ */
+final class GlobAutomaton {
+
+    private static final char SEPARATOR = '/';
+
+    private static final int DEAD = -1;
+
+    private static final int LITERAL = 0;
+
+    private static final int ANY_ONE = 1;
+
+    private static final int STAR = 2;
+
+    private static final int GLOBSTAR = 3;
+
+    /** The characters that appear in the patterns, sorted. Any other character is in class 0. */
+    private final char[] classChars;
+
+    private final int[][] transitions;
+
+    private final boolean[] accepting;
+
+    private GlobAutomaton(char[] classChars, int[][] transitions, boolean[] accepting) {
+        this.classChars = classChars;
+        this.transitions = transitions;
+        this.accepting = accepting;
+    }
+
+    static boolean isGlob(String pattern) {
+        return pattern.indexOf('*') >= 0 || pattern.indexOf('?') >= 0;
+    }
+
+    static GlobAutomaton compile(List<String> patterns) {
+        return new Builder(patterns).build();
+    }
+
+    boolean matches(CharSequence name) {
+        int state = 0;
+        for (int i = 0; i < name.length() && state != DEAD; i++) {
+            state = transitions[state][classOf(name.charAt(i))];
+        }
+        return state != DEAD && accepting[state];
+    }
+
+    private int classOf(char c) {
+        int index = Arrays.binarySearch(classChars, c);
+        return index >= 0 ? index + 1 : 0;
+    }
+
+    /**
+     * Builds the automaton by subset construction. The states of the nondeterministic automaton are the positions in
+     * the tokenized patterns, and each deterministic state is the set of positions reachable on the same input.
+     */
+    private static final class Builder {
+
+        private final List<int[]> kinds = new ArrayList<>();
+
+        private final List<char[]> literals = new ArrayList<>();
+
+        private final int[] offsets;
+
+        private final int positions;
+
+        private final char[] classChars;
+
+        private final Map<BitSet, Integer> stateIds = new HashMap<>();
+
+        private final List<BitSet> states = new ArrayList<>();
+
+        Builder(List<String> patterns) {
+            TreeSet<Character> chars = new TreeSet<>();
+            chars.add(SEPARATOR);
+            offsets = new int[patterns.size()];
+            int next = 0;
+            for (int p = 0; p < patterns.size(); p++) {
+                tokenize(patterns.get(p), chars);
+                offsets[p] = next;
+                next += kinds.get(p).length + 1;
+            }
+            positions = next;
+            classChars = new char[chars.size()];
+            int i = 0;
+            for (char c : chars) {
+                classChars[i++] = c;
+            }
+        }
+
+        GlobAutomaton build() {
+            BitSet start = new BitSet(positions);
+            for (int p = 0; p < offsets.length; p++) {
+                addWithClosure(start, p, 0);
+            }
+            stateId(start);
+
+            List<int[]> transitions = new ArrayList<>();
+            for (int s = 0; s < states.size(); s++) {
+                int[] row = new int[classChars.length + 1];
+                for (int cls = 0; cls < row.length; cls++) {
+                    BitSet target = step(states.get(s), cls);
+                    row[cls] = target.isEmpty() ? DEAD : stateId(target);
+                }
+                transitions.add(row);
+            }
+
+            boolean[] accepting = new boolean[states.size()];
+            for (int s = 0; s < states.size(); s++) {
+                for (int p = 0; p < offsets.length; p++) {
+                    accepting[s] |= states.get(s).get(offsets[p] + kinds.get(p).length);
+                }
+            }
+            return new GlobAutomaton(classChars, transitions.toArray(new int[0][]), accepting);
+        }
+
+        private void tokenize(String pattern, TreeSet<Character> chars) {
+            List<Integer> patternKinds = new ArrayList<>();
+            StringBuilder patternLiterals = new StringBuilder();
+            for (int i = 0; i < pattern.length(); i++) {
+                char c = pattern.charAt(i);
+                if (c == '*' && i + 1 < pattern.length() && pattern.charAt(i + 1) == '*') {
+                    patternKinds.add(GLOBSTAR);
+                    i++;
+                } else if (c == '*') {
+                    patternKinds.add(STAR);
+                } else if (c == '?') {
+                    patternKinds.add(ANY_ONE);
+                } else {
+                    patternKinds.add(LITERAL);
+                    chars.add(c);
+                }
+                patternLiterals.append(c);
+            }
+            kinds.add(patternKinds.stream().mapToInt(Integer::intValue).toArray());
+            literals.add(patternLiterals.toString().toCharArray());
+        }
+
+        private BitSet step(BitSet from, int cls) {
+            BitSet to = new BitSet(positions);
+            for (int p = 0; p < offsets.length; p++) {
+                for (int i = 0; i < kinds.get(p).length; i++) {
+                    if (!from.get(offsets[p] + i)) {
+                        continue;
+                    }
+                    int next = advance(p, i, cls);
+                    if (next != DEAD) {
+                        addWithClosure(to, p, next);
+                    }
+                }
+            }
+            return to;
+        }
+
+        /**
+         * The position in the pattern after reading a character of the class at the given position, if it matches.
+         */
+        private int advance(int pattern, int position, int cls) {
+            boolean separator = cls != 0 && classChars[cls - 1] == SEPARATOR;
+            switch (kinds.get(pattern)[position]) {
+            case LITERAL:
+                return cls != 0 && literals.get(pattern)[position] == classChars[cls - 1] ? position + 1 : DEAD;
+            case ANY_ONE:
+                return separator ? DEAD : position + 1;
+            case STAR:
+                return separator ? DEAD : position;
+            default:
+                return position;
+            }
+        }
+
+        /**
+         * Adds the position, and the positions after any <code>*</code> or <code>**</code> that may match nothing.
+         */
+        private void addWithClosure(BitSet set, int pattern, int position) {
+            int[] patternKinds = kinds.get(pattern);
+            int i = position;
+            set.set(offsets[pattern] + i);
+            while (i < patternKinds.length && (patternKinds[i] == STAR || patternKinds[i] == GLOBSTAR)) {
+                i++;
+                set.set(offsets[pattern] + i);
+            }
+        }
+
+        private int stateId(BitSet state) {
+            Integer id = stateIds.get(state);
+            if (id == null) {
+                id = states.size();
+                stateIds.put(state, id);
+                states.add(state);
+            }
+            return id;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package no.skatteetaten.aurora.version.utils;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A read only {@link CharSequence} view of a range of bytes, where every byte is one ISO-8859-1 character. Regular
+ * expressions can be matched on the view without decoding or copying the bytes, and since character indexes are
+ * byte offsets, a match can afterwards be decoded in the actual encoding of the bytes.
+ */
+public final class Latin1CharSequence implements CharSequence {
+
+    private final byte[] bytes;
+
+    private final int start;
+
+    private final int end;
+
+    public Latin1CharSequence(byte[] bytes, int start, int end) {
+        if (start < 0 || end > bytes.length || start > end) {
+            throw new IndexOutOfBoundsException(String.format("[%d, %d) of %d bytes", start, end, bytes.length));
+        }
+        this.bytes = bytes;
+        this.start = start;
+        this.end = end;
+    }
+
+    @Override
+    public int length() {
+        return end - start;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= length()) {
+            throw new IndexOutOfBoundsException(String.valueOf(index));
+        }
+        return (char) Byte.toUnsignedInt(bytes[start + index]);
+    }
+
+    @Override
+    public CharSequence subSequence(int from, int to) {
+        if (from < 0 || to > length() || from > to) {
+            throw new IndexOutOfBoundsException(String.format("[%d, %d) of %d", from, to, length()));
+        }
+        return new Latin1CharSequence(bytes, start + from, start + to);
+    }
+
+    @Override
+    public String toString() {
+        return new String(bytes, start, length(), StandardCharsets.ISO_8859_1);
+    }
+}
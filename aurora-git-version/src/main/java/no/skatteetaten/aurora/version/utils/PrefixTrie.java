@@ -0,0 +1,99 @@
+package no.skatteetaten.aurora.version.utils;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * A set of prefixes, compiled into a trie with the characters folded to lower case, for case insensitive matching of
+ * names against many prefixes at once. Matching walks the trie one character at a time, so it does not allocate and
+ * its cost depends on the length of the name rather than on the number of prefixes.
+ * <p>
+ * Characters are folded one at a time with {@link Character#toLowerCase(char)}.
+ */
+public final class PrefixTrie {
+
+    private static final PrefixTrie EMPTY = new PrefixTrie(new Node());
+
+    private final Node root;
+
+    private PrefixTrie(Node root) {
+        this.root = root;
+    }
+
+    public static PrefixTrie compile(Collection<String> prefixes) {
+        if (prefixes == null || prefixes.isEmpty()) {
+            return EMPTY;
+        }
+        Node root = new Node();
+        for (String prefix : prefixes) {
+            Node node = root;
+            for (int i = 0; i < prefix.length(); i++) {
+                node = node.getOrAddChild(Character.toLowerCase(prefix.charAt(i)));
+            }
+            node.terminal = true;
+        }
+        return new PrefixTrie(root);
+    }
+
+    public boolean isEmpty() {
+        return this == EMPTY;
+    }
+
+    /**
+     * Whether any of the prefixes is a prefix of the given name, ignoring case.
+     */
+    public boolean matchesPrefixOf(CharSequence name) {
+        if (isEmpty()) {
+            return false;
+        }
+        Node node = root;
+        for (int i = 0; !node.terminal; i++) {
+            if (i == name.length()) {
+                return false;
+            }
+            node = node.getChild(Character.toLowerCase(name.charAt(i)));
+            if (node == null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static final class Node {
+
+        private char[] keys = new char[0];
+
+        private Node[] children = new Node[0];
+
+        private boolean terminal;
+
+        Node getChild(char c) {
+            int index = Arrays.binarySearch(keys, c);
+            return index >= 0 ? children[index] : null;
+        }
+
+        Node getOrAddChild(char c) {
+            int index = Arrays.binarySearch(keys, c);
+            if (index >= 0) {
+                return children[index];
+            }
+            int insertAt = -index - 1;
+            Node child = new Node();
+            keys = insert(keys, insertAt, c);
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(children, 0, newChildren, 0, insertAt);
+            newChildren[insertAt] = child;
+            System.arraycopy(children, insertAt, newChildren, insertAt + 1, children.length - insertAt);
+            children = newChildren;
+            return child;
+        }
+
+        private static char[] insert(char[] array, int index, char c) {
+            char[] result = new char[array.length + 1];
+            System.arraycopy(array, 0, result, 0, index);
+            result[index] = c;
+            System.arraycopy(array, index, result, index + 1, array.length - index);
+            return result;
+        }
+    }
+}
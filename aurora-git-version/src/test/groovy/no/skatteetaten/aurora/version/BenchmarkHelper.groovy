@@ -0,0 +1,37 @@
+package no.skatteetaten.aurora.version
+
+import org.eclipse.jgit.api.Git
+import org.eclipse.jgit.lib.PersonIdent
+
+/**
+ * Shared by the benchmarks, which only run with <code>-Dbenchmark=true</code>.
+ */
+class BenchmarkHelper {
+
+  /**
+   * The mean time in milliseconds of the given number of rounds, after as many rounds to warm up.
+   */
+  static double time(int rounds, Closure work) {
+    (1..rounds).each { work() }
+    long start = System.nanoTime()
+    (1..rounds).each { work() }
+    (System.nanoTime() - start) / 1e6 / rounds
+  }
+
+  /**
+   * Creates a repository on branch master with the given number of commits to one growing file, packed by gc, so the
+   * history is only found by reading packs with deltas.
+   */
+  static Git createPackedRepo(File dir, int commits) {
+    def git = Git.init().setDirectory(dir).setInitialBranch("master").call()
+    def ident = new PersonIdent("Test", "test@example.com")
+    def file = new File(dir, "file.txt")
+    (1..commits).each { i ->
+      file << "line $i with some content to make the blobs and their deltas grow\n"
+      git.add().addFilepattern("file.txt").call()
+      git.commit().setMessage("commit $i").setAuthor(ident).setCommitter(ident).call()
+    }
+    git.gc().call()
+    return git
+  }
+}
@@ -0,0 +1,60 @@
+package no.skatteetaten.aurora.version
+
+import no.skatteetaten.aurora.version.git.GitBackend
+import no.skatteetaten.aurora.version.suggest.VersionScheme
+import no.skatteetaten.aurora.version.suggest.VersionSegment
+import spock.lang.Specification
+
+class FederatedReleaseTracksTest extends Specification {
+
+  File dir = File.createTempDir()
+
+  def cleanup() {
+    dir.deleteDir()
+  }
+
+  def "Merges the version tags of all the repositories into one version line"() {
+
+    given: "three repositories releasing the same product, each with some of its versions"
+      def repos = [
+          ["v1.0.0", "v1.1.0"],
+          ["v1.0.1", "v1.2.0", "other-2.0.0"],
+          ["v1.0.2"]].withIndex().collect { tags, i ->
+        def repoDir = new File(dir, "repo$i")
+        GitRepoHelper.createRepo(repoDir, tags.collect { ["commit $it", it] }).close()
+        repoDir
+      }
+
+    when:
+      def releaseTracks = FederatedReleaseTracks.scan(repos, "v", VersionScheme.SEMANTIC, GitBackend.JGIT, 2)
+
+    then:
+      releaseTracks.suggestNext(VersionSegment.PATCH, "1.0").toString() == "1.0.3"
+      releaseTracks.suggestNext(VersionSegment.MINOR, "1").toString() == "1.3.0"
+  }
+
+  def "The highest version across the federated repositories decides the next version"() {
+
+    given:
+      def git = GitRepoHelper.createRepo(new File(dir, "app"), [["first", "v1.0.0"], ["second"]])
+      GitRepoHelper.createRepo(new File(dir, "api"), [["first", "v1.0.0"], ["second", "v1.0.4"]]).close()
+      GitRepoHelper.createRepo(new File(dir, "web"), [["first", "v1.0.2"]]).close()
+      def opt = new SuggesterOptions(
+          gitRepoPath: new File(dir, "app").path,
+          fallbackToBranchNameEnv: false,
+          branchesToInferReleaseVersionsFor: ["master"],
+          versionHint: "1.0")
+
+    when:
+      def local = VersionNumberSuggester.suggestVersion(opt)
+      opt.federatedRepoPaths = [new File(dir, "api").path, new File(dir, "web").path]
+      def federated = VersionNumberSuggester.suggestVersion(opt)
+
+    then:
+      local == "1.0.1"
+      federated == "1.0.5"
+
+    cleanup:
+      git?.close()
+  }
+}
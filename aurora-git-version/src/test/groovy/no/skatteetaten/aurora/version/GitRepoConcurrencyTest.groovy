@@ -0,0 +1,82 @@
+package no.skatteetaten.aurora.version
+
+import java.util.concurrent.Callable
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+
+import no.skatteetaten.aurora.version.git.GitRepo
+import no.skatteetaten.aurora.version.git.GitVersion
+import spock.lang.Specification
+
+class GitRepoConcurrencyTest extends Specification {
+
+  static String repoFolder = GitRepoHelper.repoFolder
+
+  static List<String> repos = [
+      "on_branch",
+      "on_detached_head",
+      "on_manual_tag",
+      "on_master_with_ff_merge",
+      "on_master_with_merge_commit",
+      "on_master_without_tag",
+      "on_tag"
+  ]
+
+  static final int THREADS = 16
+
+  static final int ROUNDS = 25
+
+  def "Shared repositories give the same results from many threads as from one"() {
+
+    given: "the results of one thread, each repository opened on its own"
+      Map<String, String> expected = repos.collectEntries { repo -> [repo, describe(GitRepo.fromDir("$repoFolder/$repo"))] }
+
+    and: "one shared instance per repository"
+      Map<String, GitRepo> shared = repos.collectEntries { repo -> [repo, GitRepo.fromDir("$repoFolder/$repo")] }
+      def executor = Executors.newFixedThreadPool(THREADS)
+      def start = new CountDownLatch(1)
+
+    when: "all threads start at once and visit the repositories in different orders"
+      def futures = (0..<THREADS).collect { thread ->
+        executor.submit({
+          start.await()
+          (0..<ROUNDS).collectMany { round ->
+            def order = repos.indices.collect { repos[(it + thread + round) % repos.size()] }
+            order.collect { repo -> [repo, describe(shared[repo])] }
+          }
+        } as Callable<List<List<String>>>)
+      }
+      start.countDown()
+      def results = futures.collectMany { it.get(2, TimeUnit.MINUTES) }
+
+    then:
+      results.size() == THREADS * ROUNDS * repos.size()
+      results.findAll { repo, result -> result != expected[repo] } == []
+
+    cleanup:
+      executor?.shutdownNow()
+  }
+
+  static String describe(GitRepo gitRepo) {
+    def gitVersionOptions = new GitVersion.Options(
+        fallbackToBranchNameEnv: false,
+        branchesToUseTagsAsVersionsFor: ["master"],
+        branchesToUseDistanceVersionsFor: ["develop"])
+    def suggesterOptions = new SuggesterOptions(
+        fallbackToBranchNameEnv: false,
+        branchesToInferReleaseVersionsFor: ["master"],
+        branchesToUseTagsAsVersionsFor: ["master"],
+        versionHint: "1.0")
+    def head = gitRepo.resolve("HEAD")
+
+    return [
+        new GitVersion(gitRepo, gitVersionOptions).determineVersion().version,
+        VersionNumberSuggester.suggest(gitRepo, suggesterOptions).version,
+        gitRepo.getVersionTagsFromCommit(head, "v"),
+        gitRepo.getAllVersionsFromTags("v").sort(),
+        gitRepo.findOriginatingBranchName(head).orElse(null),
+        gitRepo.findNearestVersionTag(head, "v").map { "${it.tagName}+${it.distance}" }.orElse(null)
+    ].join(" | ")
+  }
+}
@@ -1,6 +1,8 @@
 package no.skatteetaten.aurora.version
 
 import org.apache.tools.ant.taskdefs.Expand
+import org.eclipse.jgit.api.Git
+import org.eclipse.jgit.lib.PersonIdent
 
 class GitRepoHelper {
 
@@ -18,4 +20,18 @@ class GitRepoHelper {
     repoFolder = "$unzip.dest/gitrepos"
   }
 
+  /**
+   * Creates a repository on branch master with one empty commit per message. A message may be followed by the
+   * names of tags to put on that commit.
+   */
+  static Git createRepo(File dir, List<List<String>> commits) {
+    def git = Git.init().setDirectory(dir).setInitialBranch("master").call()
+    def ident = new PersonIdent("Test", "test@example.com")
+    commits.each { commit ->
+      git.commit().setMessage(commit[0]).setAllowEmpty(true).setAuthor(ident).setCommitter(ident).call()
+      commit.drop(1).each { tag -> git.tag().setName(tag).setAnnotated(false).call() }
+    }
+    return git
+  }
+
 }
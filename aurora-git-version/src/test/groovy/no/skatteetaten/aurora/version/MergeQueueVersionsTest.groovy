@@ -0,0 +1,108 @@
+package no.skatteetaten.aurora.version
+
+import no.skatteetaten.aurora.version.suggest.VersionSegment
+import spock.lang.Specification
+
+class MergeQueueVersionsTest extends Specification {
+
+  File dir = File.createTempDir()
+
+  def cleanup() {
+    dir.deleteDir()
+  }
+
+  def "Each queued commit gets the release version after the one of the commit before it"() {
+
+    given:
+      def git = GitRepoHelper.createRepo(dir, [["first", "v1.0.0"], ["second"], ["third"], ["fourth"]])
+      def commits = git.log().call()*.name.take(3).reverse()
+
+    when:
+      def versions = MergeQueueVersions.suggest(createOptions(), commits)
+
+    then:
+      versions.keySet() as List == commits
+      versions.values()*.version == ["1.0.1", "1.0.2", "1.0.3"]
+      versions.values()*.latestVersionInReleaseTrack*.get()*.toString() == ["1.0.0", "1.0.1", "1.0.2"]
+      versions.values().every { it.inferred && it.branchName.get() == "master" }
+
+    and: "a single suggestion only knows the existing tags"
+      VersionNumberSuggester.suggestVersion(createOptions()) == "1.0.1"
+
+    cleanup:
+      git?.close()
+  }
+
+  def "The segment of each queued commit is inferred from the conventional commits it adds"() {
+
+    given:
+      def git = GitRepoHelper.createRepo(dir,
+          [["feat: first", "v1.2.3"], ["fix: a"], ["chore: b"], ["feat: c"], ["fix: d"]])
+      def log = git.log().call()*.name
+      def opt = createOptions()
+      opt.inferSegmentFromConventionalCommits = true
+
+    when: "the second queued commit adds both the chore and the feature"
+      def versions = MergeQueueVersions.suggest(opt, [log[3], log[1], log[0]])
+
+    then:
+      versions.values()*.version == ["1.2.4", "1.3.0", "1.3.1"]
+      versions.values()*.versionSegmentToIncrement*.get() ==
+          [VersionSegment.PATCH, VersionSegment.MINOR, VersionSegment.PATCH]
+
+    cleanup:
+      git?.close()
+  }
+
+  def "A tagged commit keeps the version of its tag, and a commit on another branch gets a snapshot version"() {
+
+    given:
+      def git = GitRepoHelper.createRepo(dir, [["first", "v1.0.0"], ["second"], ["third", "v1.5.0"], ["fourth"]])
+      def log = git.log().call()*.name
+      def opt = createOptions()
+      opt.branchesToUseTagsAsVersionsFor = ["master"]
+
+    when:
+      def versions = MergeQueueVersions.suggest(opt, [log[2], log[1], log[0]])
+
+    then:
+      versions.values()*.version == ["1.5.1", "1.5.0", "1.5.2"]
+
+    when:
+      opt.branchName = "feature/x"
+
+    then:
+      MergeQueueVersions.suggest(opt, [log[0]]).values()*.version == ["feature_x-SNAPSHOT"]
+
+    cleanup:
+      git?.close()
+  }
+
+  def "Unknown and repeated revisions are rejected"() {
+
+    given:
+      def git = GitRepoHelper.createRepo(dir, [["first", "v1.0.0"], ["second"]])
+
+    when: "the id of HEAD is listed as the revision HEAD_ID"
+      def headId = git.repository.resolve("HEAD").name()
+      MergeQueueVersions.suggest(createOptions(), revisions.collect { it == "HEAD_ID" ? headId : it })
+
+    then:
+      def e = thrown(IllegalArgumentException)
+      e.message == message.replace("HEAD_ID", headId)
+
+    cleanup:
+      git?.close()
+
+    where:
+      revisions                      | message
+      ["unknown"]                    | "Unknown revision unknown"
+      ["HEAD", "HEAD"]               | "Revision HEAD is listed more than once"
+      ["HEAD~1", "HEAD", "HEAD_ID"]  | "Revision HEAD_ID is listed more than once"
+  }
+
+  SuggesterOptions createOptions() {
+    new SuggesterOptions(gitRepoPath: dir.absolutePath, fallbackToBranchNameEnv: false,
+        branchesToInferReleaseVersionsFor: ["master"], versionHint: "1")
+  }
+}
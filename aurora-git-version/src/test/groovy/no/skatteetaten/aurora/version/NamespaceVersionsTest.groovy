@@ -0,0 +1,94 @@
+package no.skatteetaten.aurora.version
+
+import no.skatteetaten.aurora.version.git.GitRepo
+import spock.lang.Specification
+
+class NamespaceVersionsTest extends Specification {
+
+  File dir = File.createTempDir()
+
+  def cleanup() {
+    dir.deleteDir()
+  }
+
+  def "Suggest versions for all namespaces"() {
+
+    given: "components tagged with their own prefixes, where only web is tagged on HEAD"
+      def git = GitRepoHelper.createRepo(dir, [
+          ["first", "api/v1.0.0", "web/v2.0.0", "v0.1.0"],
+          ["second", "api/v1.0.1"],
+          ["third", "web/v2.1.0"]])
+      def opt = new SuggesterOptions()
+      opt.fallbackToBranchNameEnv = false
+      opt.branchesToInferReleaseVersionsFor = ["master"]
+      opt.branchesToUseTagsAsVersionsFor = ["master"]
+
+    when:
+      def versions = NamespaceVersions.suggest(GitRepo.fromDir(dir), opt, ["api/v", "web/v", "v", "cli/v", "API/v"])
+
+    then: "web uses its tag, the others get the next version in their own namespace, matched with case"
+      versions.keySet() as List == ["api/v", "web/v", "v", "cli/v", "API/v"]
+      versions.collectEntries { prefix, version -> [prefix, version.version] } == [
+          "api/v": "1.0.2",
+          "web/v": "2.1.0",
+          "v"    : "0.1.1",
+          "cli/v": "0.0.0",
+          "API/v": "0.0.0"]
+      !versions["web/v"].inferred
+      versions["api/v"].latestVersionInReleaseTrack.get().toString() == "1.0.1"
+
+    cleanup:
+      git?.close()
+  }
+
+  def "Namespaces on a branch that does not infer versions get the snapshot version"() {
+
+    given:
+      def git = GitRepoHelper.createRepo(dir, [["first", "api/v1.0.0"]])
+      git.checkout().setCreateBranch(true).setName("feature/foo").call()
+      def opt = new SuggesterOptions()
+      opt.fallbackToBranchNameEnv = false
+      opt.branchesToInferReleaseVersionsFor = ["master"]
+      opt.branchesToUseTagsAsVersionsFor = ["master"]
+
+    when:
+      def versions = NamespaceVersions.suggest(GitRepo.fromDir(dir), opt, ["api/v", "web/v"])
+
+    then:
+      versions.values()*.version == ["feature_foo-SNAPSHOT", "feature_foo-SNAPSHOT"]
+
+    cleanup:
+      git?.close()
+  }
+
+  def "Namespaces only use reachable tags when asked to, and their inferred versions can be tagged"() {
+
+    given: "api/v1.5.0 is on a branch that is not merged"
+      def git = GitRepoHelper.createRepo(dir, [["first", "api/v1.0.0", "web/v2.0.0"]])
+      git.checkout().setCreateBranch(true).setName("side").call()
+      git.commit().setMessage("side").call()
+      git.tag().setName("api/v1.5.0").call()
+      git.checkout().setName("master").call()
+      git.commit().setMessage("second").call()
+      def opt = new SuggesterOptions()
+      opt.fallbackToBranchNameEnv = false
+      opt.branchesToInferReleaseVersionsFor = ["master"]
+      opt.versionHint = "1"
+      opt.onlyUseTagsReachableFromHead = true
+      opt.createTag = true
+      def repo = GitRepo.fromDir(dir)
+
+    when:
+      def versions = NamespaceVersions.suggest(repo, opt, ["api/v", "web/v"])
+
+    then:
+      versions.values()*.version == ["1.0.1", "1.0.0"]
+      versions.values()*.createdTag*.get() == ["api/v1.0.1", "web/v1.0.0"]
+      git.repository.exactRef("refs/tags/api/v1.0.1").objectId == git.repository.resolve("HEAD")
+      git.repository.exactRef("refs/tags/web/v1.0.0").objectId == git.repository.resolve("HEAD")
+
+    cleanup:
+      repo?.close()
+      git?.close()
+  }
+}
@@ -0,0 +1,70 @@
+package no.skatteetaten.aurora.version
+
+import org.eclipse.jgit.lib.PersonIdent
+
+import no.skatteetaten.aurora.version.git.GitRepo
+import spock.lang.Specification
+import spock.lang.Unroll
+
+class ReleaseBranchVersionsTest extends Specification {
+
+  File dir = File.createTempDir()
+
+  def cleanup() {
+    dir.deleteDir()
+  }
+
+  def "Suggest the next version of every release branch without checking them out"() {
+
+    given: "release branches cut from master, one of them with a fix since its last release"
+      def git = GitRepoHelper.createRepo(dir, [
+          ["first", "v1.1.0"],
+          ["second", "v1.2.0"],
+          ["third", "v1.2.1"],
+          ["fourth", "v1.3.0"],
+          ["fifth"]])
+      git.branchCreate().setName("release/1.1").setStartPoint("master~4").call()
+      git.branchCreate().setName("release/1.2").setStartPoint("master~2").call()
+      git.branchCreate().setName("release/v1.3").setStartPoint("master").call()
+      git.branchCreate().setName("release/2.0.x").setStartPoint("master").call()
+      git.branchCreate().setName("feature/foo").setStartPoint("master").call()
+      git.checkout().setName("release/1.2").call()
+      def ident = new PersonIdent("Test", "test@example.com")
+      git.commit().setMessage("fix").setAllowEmpty(true).setAuthor(ident).setCommitter(ident).call()
+      git.checkout().setName("master").call()
+      def opt = new SuggesterOptions()
+      opt.fallbackToBranchNameEnv = false
+
+    when:
+      def versions = ReleaseBranchVersions.suggest(GitRepo.fromDir(dir), opt, ["release/*"])
+
+    then: "the tagged tip keeps its tag, the others get the next version in the track of their name"
+      versions.collectEntries { branch, version -> [branch, version.version] } == [
+          "release/1.1"  : "1.1.0",
+          "release/1.2"  : "1.2.2",
+          "release/2.0.x": "2.0.0",
+          "release/v1.3" : "1.3.1"]
+      !versions["release/1.1"].inferred
+      versions["release/1.2"].latestVersionInReleaseTrack.get().toString() == "1.2.1"
+      !versions["release/2.0.x"].latestVersionInReleaseTrack.isPresent()
+
+    cleanup:
+      git?.close()
+  }
+
+  @Unroll
+  def "Version hint of branch #branchName"() {
+
+    expect:
+      ReleaseBranchVersions.findVersionHint(branchName, "9") == expected
+
+    where:
+      branchName          | expected
+      "release/1.2"       | "1.2"
+      "release/v1.2"      | "1.2"
+      "release/1.2.x"     | "1.2"
+      "hotfix/2"          | "2"
+      "release/next"      | "9"
+      "release/1.2-rc"    | "9"
+  }
+}
@@ -0,0 +1,63 @@
+package no.skatteetaten.aurora.version
+
+import spock.lang.Specification
+
+class VersionBackfillTest extends Specification {
+
+  File dir = File.createTempDir()
+
+  def cleanup() {
+    dir.deleteDir()
+  }
+
+  def "Gives every commit in the range the version it would have been given at the time"() {
+
+    given:
+      def git = GitRepoHelper.createRepo(dir, [["first", "v1.0.0"], ["second"], ["third", "v1.0.1"], ["fourth"]])
+      def options = releaseOptions()
+
+    when:
+      def versions = []
+      VersionBackfill.backfill(options, null, fromRevision, "HEAD") { versions << it }
+
+    then:
+      versions*.version == expectedVersions
+      versions*.commit == git.log().call().collect { it.name }.reverse().takeRight(expectedVersions.size())
+      versions.last().version == VersionNumberSuggester.suggestVersion(options)
+
+    cleanup:
+      git?.close()
+
+    where:
+      fromRevision | expectedVersions
+      null         | ["1.0.0", "1.0.1", "1.0.1", "1.0.2"]
+      "v1.0.0"     | ["1.0.1", "1.0.1", "1.0.2"]
+      "v1.0.1"     | ["1.0.2"]
+  }
+
+  def "Branches that do not infer release versions get snapshot versions"() {
+
+    given:
+      def git = GitRepoHelper.createRepo(dir, [["first", "v1.0.0"], ["second"]])
+
+    when:
+      def versions = []
+      VersionBackfill.backfill(releaseOptions(), "feature/foo", null, "HEAD") { versions << it }
+
+    then:
+      versions*.version == ["feature_foo-SNAPSHOT", "feature_foo-SNAPSHOT"]
+      versions*.inferred == [false, false]
+
+    cleanup:
+      git?.close()
+  }
+
+  SuggesterOptions releaseOptions() {
+    return new SuggesterOptions(
+        gitRepoPath: dir.path,
+        fallbackToBranchNameEnv: false,
+        branchesToInferReleaseVersionsFor: ["master"],
+        branchesToUseTagsAsVersionsFor: ["master"],
+        versionHint: "1.0")
+  }
+}
@@ -0,0 +1,153 @@
+package no.skatteetaten.aurora.version
+
+import org.eclipse.jgit.lib.PersonIdent
+
+import no.skatteetaten.aurora.version.git.GitBackend
+import spock.lang.Requires
+import spock.lang.Specification
+
+class VersionFingerprintTest extends Specification {
+
+  File dir = File.createTempDir()
+
+  def cleanup() {
+    dir.deleteDir()
+  }
+
+  def "The fingerprint changes with the refs and options the version depends on, and only those"() {
+
+    given:
+      def git = GitRepoHelper.createRepo(dir, [["first", "v1.0.0"], ["second"]])
+      def opt = new SuggesterOptions()
+      opt.gitRepoPath = dir.absolutePath
+      opt.fallbackToBranchNameEnv = false
+      def fingerprint = VersionFingerprint.compute(opt)
+
+    expect: "the same inputs give the same fingerprint"
+      VersionFingerprint.compute(opt) == fingerprint
+
+    when: "a tag without the version prefix is added"
+      git.tag().setName("other-1").setAnnotated(false).call()
+
+    then:
+      VersionFingerprint.compute(opt) == fingerprint
+
+    when: "a version tag is added"
+      git.tag().setName("v1.0.1").setAnnotated(false).call()
+      def tagged = VersionFingerprint.compute(opt)
+
+    then:
+      tagged != fingerprint
+
+    when: "an option changes"
+      opt.versionHint = "2"
+      def hinted = VersionFingerprint.compute(opt)
+
+    then:
+      hinted != tagged
+
+    when: "a branch moves"
+      git.branchCreate().setName("develop").call()
+      def branched = VersionFingerprint.compute(opt)
+      def ident = new PersonIdent("Test", "test@example.com")
+      git.commit().setMessage("third").setAllowEmpty(true).setAuthor(ident).setCommitter(ident).call()
+
+    then:
+      branched != hinted
+      VersionFingerprint.compute(opt) != branched
+
+    when: "the refs are packed"
+      def beforePacking = VersionFingerprint.compute(opt)
+      git.gc().call()
+
+    then: "the fingerprint may change, since packed-refs is new"
+      VersionFingerprint.compute(opt) != beforePacking
+
+    cleanup:
+      git?.close()
+  }
+
+  def "Tag prefixes of namespaces are part of the fingerprint"() {
+
+    given:
+      def git = GitRepoHelper.createRepo(dir, [["first", "api/v1.0.0"]])
+      def opt = new SuggesterOptions()
+      opt.gitRepoPath = dir.absolutePath
+      def fingerprint = VersionFingerprint.compute(opt, ["api/v"])
+
+    when:
+      git.tag().setName("api/v1.0.1").setAnnotated(false).call()
+
+    then:
+      VersionFingerprint.compute(opt, ["api/v"]) != fingerprint
+      VersionFingerprint.compute(opt) == VersionFingerprint.compute(opt, [])
+
+    cleanup:
+      git?.close()
+  }
+
+  def "Deepening a shallow clone and changing the backend change the fingerprint"() {
+
+    given: "a clone of depth 1, whose history ends at the shallow boundary"
+      def origin = new File(dir, "origin")
+      def git = GitRepoHelper.createRepo(origin, [["first", "v1.0.0"], ["second"], ["third"]])
+      def clone = new File(dir, "clone")
+      runGit(["clone", "-q", "--depth", "1", "file://${origin.absolutePath}", clone.absolutePath])
+      def opt = new SuggesterOptions()
+      opt.gitRepoPath = clone.absolutePath
+      opt.fallbackToBranchNameEnv = false
+      def shallow = VersionFingerprint.compute(opt)
+
+    when: "the clone is deepened, which moves no ref"
+      runGit(["-C", clone.absolutePath, "fetch", "-q", "--deepen", "1"])
+
+    then:
+      VersionFingerprint.compute(opt) != shallow
+
+    when:
+      def deepened = VersionFingerprint.compute(opt)
+      opt.backend = GitBackend.NATIVE
+
+    then:
+      VersionFingerprint.compute(opt) != deepened
+
+    cleanup:
+      git?.close()
+  }
+
+  static void runGit(List<String> args) {
+    def process = (["git"] + args).execute()
+    process.waitForProcessOutput(System.out, System.err)
+    assert process.exitValue() == 0
+  }
+
+  /**
+   * Run with <code>mvn test -Dbenchmark=true -Dtest=VersionFingerprintTest</code>. Every loose ref is a file read, so
+   * the fingerprint is measured with loose and with packed refs.
+   */
+  @Requires({ sys['benchmark'] })
+  def "Benchmark the fingerprint against suggesting the version"() {
+
+    given:
+      def git = GitRepoHelper.createRepo(dir, (1..200).collect { ["commit $it", "v1.0.$it"] })
+      git.branchCreate().setName("develop").call()
+      def opt = new SuggesterOptions()
+      opt.gitRepoPath = dir.absolutePath
+      opt.fallbackToBranchNameEnv = false
+
+    when:
+      double looseMillis = BenchmarkHelper.time(1000) { VersionFingerprint.compute(opt) }
+      double suggestMillis = BenchmarkHelper.time(10) { VersionNumberSuggester.suggest(opt) }
+      git.gc().call()
+      double packedMillis = BenchmarkHelper.time(1000) { VersionFingerprint.compute(opt) }
+      println String.format("fingerprint with 200 loose tags %.3f ms, with packed refs %.3f ms, "
+          + "suggesting the version %.3f ms", looseMillis, packedMillis, suggestMillis)
+
+    then:
+      looseMillis < suggestMillis
+      packedMillis < looseMillis
+
+    cleanup:
+      git?.close()
+  }
+}
@@ -0,0 +1,88 @@
+package no.skatteetaten.aurora.version
+
+import org.eclipse.jgit.api.Git
+import org.eclipse.jgit.submodule.SubmoduleWalk
+
+import spock.lang.Specification
+
+class VersionManifestTest extends Specification {
+
+  File dir = File.createTempDir()
+
+  def cleanup() {
+    dir.deleteDir()
+  }
+
+  def "Suggests versions for the superproject and its submodules, recursively"() {
+
+    given: "a superproject with a submodule, which has a submodule of its own"
+      def leaf = createRepo("leaf", [["leaf", "v3.0.0"]])
+      def core = createRepo("core", [["core", "v2.0.0"]])
+      addSubmodule(core, "vendor/leaf", leaf)
+      core.tag().setName("v2.1.0").setAnnotated(false).call()
+      def superproject = createRepo("superproject", [["initial"]])
+      addSubmodule(superproject, "libs/core", core)
+      Git.wrap(SubmoduleWalk.getSubmoduleRepository(superproject.repository, "libs/core")).withCloseable {
+        it.submoduleInit().call()
+        it.submoduleUpdate().call()
+      }
+
+    and:
+      def options = new SuggesterOptions(
+          gitRepoPath: superproject.repository.workTree.path,
+          fallbackToBranchNameEnv: false,
+          branchesToUseTagsAsVersionsFor: ["master"],
+          branchesToInferReleaseVersionsFor: ["master"],
+          versionHint: "1")
+
+    when:
+      def manifest = VersionManifest.suggest(options, 2)
+
+    then:
+      manifest.versions.collectEntries { path, suggestion -> [path, suggestion.version] } == [
+          ".": "1.0.0",
+          "libs/core": "2.1.0",
+          "libs/core/vendor/leaf": "3.0.0"
+      ]
+      manifest.versions.keySet() as List == [".", "libs/core", "libs/core/vendor/leaf"]
+
+    cleanup:
+      [leaf, core, superproject]*.close()
+  }
+
+  def "Submodules that are not checked out are left out"() {
+
+    given:
+      def core = createRepo("core", [["core", "v2.0.0"]])
+      def superproject = createRepo("superproject", [["initial"]])
+      addSubmodule(superproject, "libs/core", core)
+      def clone = Git.cloneRepository()
+          .setURI(superproject.repository.directory.toURI().toString())
+          .setDirectory(new File(dir, "clone"))
+          .call()
+
+    when:
+      def manifest = VersionManifest.suggest(new SuggesterOptions(
+          gitRepoPath: clone.repository.workTree.path,
+          fallbackToBranchNameEnv: false))
+
+    then:
+      manifest.versions.keySet() as List == ["."]
+
+    cleanup:
+      [core, superproject, clone]*.close()
+  }
+
+  Git createRepo(String name, List<List<String>> commits) {
+    return GitRepoHelper.createRepo(new File(dir, name), commits)
+  }
+
+  static void addSubmodule(Git git, String path, Git submodule) {
+    git.submoduleAdd()
+        .setPath(path)
+        .setURI(submodule.repository.directory.toURI().toString())
+        .call()
+        .close()
+    git.commit().setMessage("Add $path").call()
+  }
+}
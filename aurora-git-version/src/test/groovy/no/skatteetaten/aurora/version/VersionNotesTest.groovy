@@ -0,0 +1,159 @@
+package no.skatteetaten.aurora.version
+
+import org.eclipse.jgit.api.Git
+import org.eclipse.jgit.transport.RefSpec
+
+import no.skatteetaten.aurora.version.git.BranchSearchResult
+import no.skatteetaten.aurora.version.git.GitRepo
+import spock.lang.Specification
+import spock.lang.Unroll
+
+class VersionNotesTest extends Specification {
+
+  static final String NOTES_REF = "refs/notes/versions"
+
+  File dir = File.createTempDir()
+
+  File cloneDir = File.createTempDir()
+
+  def cleanup() {
+    dir.deleteDir()
+    cloneDir.deleteDir()
+  }
+
+  def "A suggested version is recorded in a note and read back while the inputs are the same"() {
+
+    given:
+      def git = GitRepoHelper.createRepo(dir, [["first", "v1.0.0"], ["second"]])
+      def opt = createOptions(dir)
+      def head = git.repository.resolve("HEAD")
+
+    when:
+      def suggested = VersionNumberSuggester.suggest(opt)
+      def note = readNote(dir, head)
+
+    then:
+      suggested.version == "1.0.1"
+      note.contains("version: 1.0.1\n")
+      note.contains("branch: master\n")
+      note.contains("latest: 1.0.0\n")
+
+    when: "the recorded version is changed, but not the inputs"
+      writeNote(dir, head, note.replaceFirst(/(?m)^version: .*$/, "version: 1.0.42"))
+      def recorded = VersionNumberSuggester.suggest(opt)
+
+    then: "the version is read from the note"
+      recorded.version == "1.0.42"
+      recorded.inferred
+      recorded.branchName.get() == "master"
+      recorded.latestVersionInReleaseTrack.get().toString() == "1.0.0"
+
+    when: "a version tag is added"
+      git.tag().setName("v1.0.5").setObjectId(git.log().setMaxCount(2).call()[1]).setAnnotated(false).call()
+      def retagged = VersionNumberSuggester.suggest(opt)
+
+    then: "the note is stale, and the version is suggested and recorded again"
+      retagged.version == "1.0.6"
+      readNote(dir, head).contains("version: 1.0.6\n")
+
+    when: "an option changes"
+      opt.versionHint = "2"
+
+    then:
+      VersionNumberSuggester.suggest(opt).version == "2.0.0"
+
+    cleanup:
+      git?.close()
+  }
+
+  def "A clone that fetched the notes reads the version from the note, also on a detached HEAD"() {
+
+    given:
+      def git = GitRepoHelper.createRepo(dir, [["first", "v1.0.0"], ["second"]])
+      def head = git.repository.resolve("HEAD")
+      VersionNumberSuggester.suggest(createOptions(dir))
+      writeNote(dir, head, readNote(dir, head).replaceFirst(/(?m)^version: .*$/, "version: 1.0.42"))
+
+      def clone = Git.cloneRepository().setURI(dir.toURI().toString()).setDirectory(cloneDir).call()
+      clone.fetch().setRefSpecs(new RefSpec("+refs/notes/*:refs/notes/*")).call()
+
+    when:
+      def suggested = VersionNumberSuggester.suggest(createOptions(cloneDir))
+
+    then:
+      suggested.version == "1.0.42"
+      suggested.branchSearchResult.get().outcome == BranchSearchResult.Outcome.CHECKED_OUT
+
+    when: "HEAD is detached, so the branch is not known without searching"
+      clone.checkout().setName(head.name()).call()
+      def detached = VersionNumberSuggester.suggest(createOptions(cloneDir))
+
+    then: "the branch recorded in the note is used"
+      detached.version == "1.0.42"
+      detached.branchSearchResult.get().outcome == BranchSearchResult.Outcome.RECORDED
+      detached.branchName.get() == "master"
+
+    cleanup:
+      git?.close()
+      clone?.close()
+  }
+
+  @Unroll
+  def "A note that cannot be read is replaced, when #malformation"() {
+
+    given:
+      def git = GitRepoHelper.createRepo(dir, [["first", "v1.0.0"], ["second"]])
+      def opt = createOptions(dir)
+      def head = git.repository.resolve("HEAD")
+      VersionNumberSuggester.suggest(opt)
+      def note = readNote(dir, head)
+
+    when: "the note is edited by hand, keeping its inputs"
+      writeNote(dir, head, note.replaceFirst(pattern, replacement))
+      def suggested = VersionNumberSuggester.suggest(opt)
+
+    then:
+      suggested.version == "1.0.1"
+      readNote(dir, head) == note
+
+    cleanup:
+      git?.close()
+
+    where:
+      malformation                       | pattern               | replacement
+      "the source is missing"            | /(?m)^source: .*\n/  | ""
+      "the source is unknown"            | /(?m)^source: .*$/    | "source: SOMEWHERE"
+      "the segment is unknown"           | /(?m)^segment: .*$/   | "segment: HUGE"
+      "the latest version is no version" | /(?m)^latest: .*$/    | "latest: latest"
+  }
+
+  def "Without a notes ref nothing is recorded"() {
+
+    given:
+      def git = GitRepoHelper.createRepo(dir, [["first", "v1.0.0"], ["second"]])
+      def opt = createOptions(dir)
+      opt.versionNotesRef = null
+
+    when:
+      VersionNumberSuggester.suggest(opt)
+
+    then:
+      git.repository.exactRef(NOTES_REF) == null
+
+    cleanup:
+      git?.close()
+  }
+
+  static SuggesterOptions createOptions(File dir) {
+    new SuggesterOptions(gitRepoPath: dir.absolutePath, fallbackToBranchNameEnv: false,
+        branchesToInferReleaseVersionsFor: ["master"], versionNotesRef: NOTES_REF)
+  }
+
+  static String readNote(File dir, def commit) {
+    GitRepo.fromDir(dir).withCloseable { it.readNote(NOTES_REF, commit).get() }
+  }
+
+  static void writeNote(File dir, def commit, String note) {
+    GitRepo.fromDir(dir).withCloseable { assert it.writeNote(NOTES_REF, commit, note) }
+  }
+}
@@ -1,7 +1,14 @@
 package no.skatteetaten.aurora.version
 
+import org.eclipse.jgit.api.Git
+
+import no.skatteetaten.aurora.version.git.GitRepo
+import no.skatteetaten.aurora.version.git.GitVersion
+import no.skatteetaten.aurora.version.git.KnownTags
+import no.skatteetaten.aurora.version.suggest.VersionScheme
 import no.skatteetaten.aurora.version.suggest.VersionSegment
 import spock.lang.Specification
+import spock.lang.Unroll
 
 class VersionNumberSuggesterTest extends Specification {
 
@@ -114,4 +121,263 @@ class VersionNumberSuggesterTest extends Specification {
       versionNumber == "1.0.1"
   }
 
+  def "Infer version from supplied tags instead of local tags"() {
+    given: "A repo tagged v1.0.0 locally, but with later versions known from the remote"
+      def opt = new SuggesterOptions()
+      opt.gitRepoPath = "$repoFolder/on_master_without_tag"
+      opt.branchesToInferReleaseVersionsFor = ["master"]
+      opt.versionHint = "1.0"
+      opt.knownTags = KnownTags.of(["v1.0.0", "v1.0.5"])
+
+    when: "suggesting next version"
+      def versionNumber = VersionNumberSuggester.suggestVersion(opt)
+
+    then: "expect version inferred from the supplied tags"
+      versionNumber == "1.0.6"
+  }
+
+  def "Use version from supplied tag on HEAD"() {
+    given: "A supplied tag pointing at HEAD"
+      def opt = new SuggesterOptions()
+      opt.gitRepoPath = repoOnTag
+      opt.branchesToUseTagsAsVersionsFor = ["master"]
+      opt.knownTags = KnownTags.parseLsRemote(["edf6570e29a70ce9d52f40416ff81cf092b4f19e\trefs/tags/v2.0.0"])
+
+    when: "suggesting next version"
+      def versionNumber = VersionNumberSuggester.suggestVersion(opt)
+
+    then: "expect version from the supplied tag"
+      versionNumber == "2.0.0"
+  }
+
+  def "Use version from supplied tag name on HEAD when the local repository has the tag"() {
+    given: "A plain list of tag names, with the tag on HEAD among them"
+      def opt = new SuggesterOptions()
+      opt.gitRepoPath = repoOnTag
+      opt.branchesToUseTagsAsVersionsFor = ["master"]
+      opt.knownTags = KnownTags.parseLsRemote(["v0.9.0", "v1.0.0"])
+
+    when: "suggesting next version"
+      def versionNumber = VersionNumberSuggester.suggestVersion(opt)
+
+    then: "expect version from the local tag of the same name"
+      versionNumber == "1.0.0"
+  }
+
+  def "Report the facts the inferred version was derived from"() {
+    given: "A merge commit from a feature branch on master"
+      def opt = new SuggesterOptions()
+      opt.gitRepoPath = "$repoFolder/on_master_with_merge_commit"
+      opt.branchesToInferReleaseVersionsFor = ["master"]
+      opt.versionHint = "0.0"
+
+    when: "suggesting next version"
+      def suggestion = VersionNumberSuggester.suggest(opt)
+
+    then: "expect the inferred version along with how it was derived"
+      suggestion.version == "0.0.2"
+      suggestion.inferred
+      suggestion.versionFromGit.source == GitVersion.VersionSource.BRANCH
+      suggestion.branchName == Optional.of("master")
+      suggestion.originatingBranchName == Optional.of("feature/PROJ-123-feature")
+      suggestion.versionSegmentToIncrement == Optional.of(VersionSegment.PATCH)
+      suggestion.latestVersionInReleaseTrack.get().toString() == "0.0.1"
+  }
+
+  def "Report the version tag found on HEAD"() {
+    given:
+      def opt = new SuggesterOptions()
+      opt.gitRepoPath = repoOnTag
+      opt.branchesToUseTagsAsVersionsFor = ["master"]
+      opt.branchesToInferReleaseVersionsFor = ["develop"]
+
+    when:
+      def suggestion = VersionNumberSuggester.suggest(opt)
+
+    then:
+      suggestion.version == "1.0.0"
+      !suggestion.inferred
+      suggestion.versionTagOnHead == Optional.of("v1.0.0")
+  }
+
+  @Unroll
+  def "Infer segment from conventional commits #commits since v1.2.3 with hint '#versionHint'"() {
+    given: "A repo with conventional commits on master"
+      def dir = File.createTempDir()
+      GitRepoHelper.createRepo(dir, [["feat!: before the release", "v1.2.3"]] + commits.collect { [it] })
+      def opt = new SuggesterOptions()
+      opt.gitRepoPath = dir.path
+      opt.fallbackToBranchNameEnv = false
+      opt.branchesToInferReleaseVersionsFor = ["master"]
+      opt.versionHint = versionHint
+      opt.inferSegmentFromConventionalCommits = true
+
+    when: "suggesting next version"
+      def suggestion = VersionNumberSuggester.suggest(opt)
+
+    then: "expect the most significant change since the tag to decide the segment"
+      suggestion.version == expectedVersion
+
+    cleanup:
+      dir.deleteDir()
+
+    where:
+      commits                                     | versionHint | expectedVersion
+      ["chore: nothing"]                          | ""          | "1.2.4"
+      ["fix: a", "chore: b"]                      | ""          | "1.2.4"
+      ["feat: a", "fix: b"]                       | ""          | "1.3.0"
+      ["fix: a", "feat!: b", "feat: c"]           | ""          | "2.0.0"
+      ["fix: a", "fix: b\n\nBREAKING CHANGE: c"] | "1"         | "1.3.0"
+      ["feat: a"]                                 | "1.2"       | "1.2.4"
+  }
+
+  @Unroll
+  def "Append distance to inferred version with metadata '#metadata'"() {
+    given: "A release branch two commits after v1.0.0"
+      def opt = new SuggesterOptions()
+      opt.gitRepoPath = "$repoFolder/on_master_without_tag"
+      opt.branchesToInferReleaseVersionsFor = ["master"]
+      opt.branchesToUseDistanceVersionsFor = ["master"]
+      opt.versionHint = "1.0"
+      opt.metadata = metadata
+
+    when: "suggesting next version"
+      def versionNumber = VersionNumberSuggester.suggestVersion(opt)
+
+    then: "expect the inferred version as a pre-release with the distance to the tag"
+      versionNumber == expectedVersion
+
+    where:
+      metadata | expectedVersion
+      null     | "1.0.1-rc.1+gdc31c2d"
+      "build5" | "1.0.1-rc.1+gdc31c2d.build5"
+  }
+
+  @Unroll
+  def "Only tags reachable from HEAD are used when requested: #onlyReachable"() {
+    given: "a maintenance branch from v1.0.0, while master has moved on to v1.1.0"
+      def dir = File.createTempDir()
+      def git = GitRepoHelper.createRepo(dir, [["first", "v1.0.0"], ["second", "v1.1.0"]])
+      git.checkout().setCreateBranch(true).setName("support").setStartPoint("v1.0.0").call()
+      git.commit().setMessage("fix").setAllowEmpty(true).call()
+      def opt = new SuggesterOptions()
+      opt.gitRepoPath = dir.path
+      opt.fallbackToBranchNameEnv = false
+      opt.branchesToInferReleaseVersionsFor = ["support"]
+      opt.versionHint = "1"
+      opt.onlyUseTagsReachableFromHead = onlyReachable
+
+    when: "suggesting next version"
+      def versionNumber = VersionNumberSuggester.suggestVersion(opt)
+
+    then:
+      versionNumber == expectedVersion
+
+    cleanup:
+      git?.close()
+      dir.deleteDir()
+
+    where:
+      onlyReachable | expectedVersion
+      false         | "1.1.1"
+      true          | "1.0.1"
+  }
+
+  @Unroll
+  def "Suggest version for revision #revision in a bare mirror without a checkout"() {
+    given: "a bare mirror of a repository with a merge commit on master and v0.0.1 on its first commit"
+      def dir = File.createTempDir()
+      def git = Git.cloneRepository()
+        .setURI(new File("$repoFolder/on_master_with_merge_commit").toURI().toString())
+        .setDirectory(dir)
+        .setBare(true)
+        .call()
+      def opt = new SuggesterOptions()
+      opt.gitRepoPath = dir.path
+      opt.fallbackToBranchNameEnv = false
+      opt.branchesToInferReleaseVersionsFor = ["master"]
+      opt.branchesToUseTagsAsVersionsFor = ["master"]
+      opt.versionHint = "0"
+      opt.revision = revision
+      opt.branchName = branchName
+
+    when: "suggesting the version of the revision"
+      def suggested = VersionNumberSuggester.suggest(opt)
+
+    then:
+      suggested.version == expectedVersion
+      suggested.branchName == Optional.of(branchName ?: "master")
+
+    cleanup:
+      git?.close()
+      dir.deleteDir()
+
+    where:
+      revision  | branchName    | expectedVersion
+      "master"  | null          | "0.0.2"
+      "v0.0.1"  | null          | "0.0.1"
+      "cd4f6dd" | null          | "0.0.2"
+      "cd4f6dd" | "feature/foo" | "feature_foo-SNAPSHOT"
+  }
+
+  def "Tag the inferred version in the same session"() {
+    given:
+      def dir = File.createTempDir()
+      def git = GitRepoHelper.createRepo(dir, [["first", "v1.0.0"], ["second"]])
+      def opt = new SuggesterOptions()
+      opt.fallbackToBranchNameEnv = false
+      opt.branchesToInferReleaseVersionsFor = ["master"]
+      opt.versionHint = "1"
+      opt.createTag = true
+      def repository = GitRepo.fromDir(dir)
+
+    when:
+      def suggested = VersionNumberSuggester.suggest(repository, opt)
+
+    then:
+      suggested.version == "1.0.1"
+      suggested.createdTag == Optional.of("v1.0.1")
+      git.repository.exactRef("refs/tags/v1.0.1").objectId == git.repository.resolve("HEAD")
+      repository.getAllVersionsFromTags("v") == ["1.0.0", "1.0.1"]
+
+    cleanup:
+      git?.close()
+      dir.deleteDir()
+  }
+
+  def "Unknown revision is rejected"() {
+    given:
+      def opt = new SuggesterOptions()
+      opt.gitRepoPath = repoOnTag
+      opt.revision = "no-such-revision"
+
+    when:
+      VersionNumberSuggester.suggest(opt)
+
+    then:
+      thrown(IllegalArgumentException)
+  }
+
+  def "Infer build numbers with the build number version scheme"() {
+
+    given:
+      def dir = File.createTempDir()
+      def git = GitRepoHelper.createRepo(dir, [["first", "v9"], ["second", "v57"], ["third", "v1.0.0"], ["fourth"]])
+      def opt = new SuggesterOptions(
+          gitRepoPath: dir.path,
+          fallbackToBranchNameEnv: false,
+          branchesToInferReleaseVersionsFor: ["master"],
+          versionScheme: VersionScheme.BUILD_NUMBER)
+
+    when:
+      def suggested = VersionNumberSuggester.suggest(opt)
+
+    then:
+      suggested.version == "58"
+      suggested.latestVersionInReleaseTrack.get().toString() == "57"
+
+    cleanup:
+      git?.close()
+      dir.deleteDir()
+  }
 }
@@ -0,0 +1,189 @@
+package no.skatteetaten.aurora.version.git
+
+import org.eclipse.jgit.api.MergeCommand
+import org.eclipse.jgit.errors.MissingObjectException
+import org.eclipse.jgit.lib.ObjectId
+import org.eclipse.jgit.lib.PersonIdent
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder
+
+import no.skatteetaten.aurora.version.BenchmarkHelper
+import spock.lang.Requires
+import spock.lang.Shared
+import spock.lang.Specification
+import spock.lang.Unroll
+
+class GitBackendTest extends Specification {
+
+  @Shared
+  File dir
+
+  @Shared
+  ObjectId first
+
+  @Shared
+  ObjectId merge
+
+  @Shared
+  List<ObjectId> history
+
+  @Shared
+  int commits = Integer.getInteger("benchmark.commits", 3000)
+
+  @Shared
+  int rounds = Integer.getInteger("benchmark.rounds", 5)
+
+  def setupSpec() {
+    dir = File.createTempDir()
+    def git = BenchmarkHelper.createPackedRepo(dir, 5)
+    def ident = new PersonIdent("Test", "test@example.com")
+    first = git.repository.resolve("master~4")
+    git.checkout().setCreateBranch(true).setName("feature/login").setStartPoint("master~1").call()
+    new File(dir, "login.txt") << "login\n"
+    git.add().addFilepattern("login.txt").call()
+    git.commit().setMessage("login").setAuthor(ident).setCommitter(ident).call()
+    git.checkout().setName("master").call()
+    merge = git.merge().include(git.repository.findRef("feature/login"))
+        .setFastForward(MergeCommand.FastForwardMode.NO_FF).setMessage("Merge branch 'feature/login'").call().newHead
+    history = git.log().call().collect { it.id }
+    git.close()
+  }
+
+  def cleanupSpec() {
+    dir.deleteDir()
+  }
+
+  def "The native backend reads the same commits as JGit"() {
+
+    given:
+      def jgit = GitRepo.fromDir(dir, GitBackend.JGIT)
+      def git = GitRepo.fromDir(dir, GitBackend.NATIVE)
+
+    when:
+      def expected = history.collect { jgit.getLogEntryForCommit(it).get() }
+      def single = history.collect { git.getLogEntryForCommit(it).get() }
+      def batch = git.getLogEntriesForCommits(history)
+
+    then:
+      [single, batch].each { actual ->
+        assert actual*.id == expected*.id
+        assert actual*.fullMessage == expected*.fullMessage
+        assert actual*.authorIdent == expected*.authorIdent
+        assert actual.collect { it.parents*.id } == expected.collect { it.parents*.id }
+      }
+      git.findOriginatingBranchName(merge) == Optional.of("feature/login")
+      git.findOriginatingBranchName(merge) == jgit.findOriginatingBranchName(merge)
+
+    cleanup:
+      jgit?.close()
+      git?.close()
+  }
+
+  def "The native backend reports missing commits and keeps working"() {
+
+    given:
+      def git = GitRepo.fromDir(dir, GitBackend.NATIVE)
+      def missing = ObjectId.fromString("0123456789012345678901234567890123456789")
+
+    when:
+      git.getLogEntriesForCommits([history[0], missing])
+
+    then:
+      def e = thrown(RuntimeException)
+      e.cause instanceof MissingObjectException
+
+    when:
+      def next = git.getLogEntryForCommit(history[1])
+
+    then:
+      next.get().id == history[1]
+
+    cleanup:
+      git?.close()
+  }
+
+  @Unroll
+  def "Finds the branch of a commit with the #backend backend"() {
+
+    given:
+      def git = GitRepo.fromDir(dir, backend)
+
+    expect:
+      git.findBranchNameFromDetachedHead(first, false, "BRANCH_NAME", BranchSearchBudget.UNLIMITED)
+          .branchName == Optional.of("feature/login")
+      git.findBranchNameOfRevision("master", BranchSearchBudget.UNLIMITED).branchName == Optional.of("master")
+      git.findBranchNameFromDetachedHead(merge, false, "BRANCH_NAME", BranchSearchBudget.UNLIMITED)
+          .branchName == Optional.of("master")
+
+    cleanup:
+      git?.close()
+
+    where:
+      backend << GitBackend.values()
+  }
+
+  @Unroll
+  def "The #backend backend takes the first of the given branches and searches at most the given commits"() {
+
+    given:
+      def repository = new FileRepositoryBuilder().setGitDir(new File(dir, ".git"))
+          .build()
+      def store = CommitStore.create(backend, repository)
+      def branches = [repository.exactRef("refs/heads/master"), repository.exactRef("refs/heads/feature/login")]
+
+    expect: "both branches contain the first commit"
+      store.findBranch(first, branches, BranchSearchBudget.UNLIMITED).branchName == Optional.of("master")
+      store.findBranch(first, branches.reverse(), BranchSearchBudget.UNLIMITED).branchName ==
+          Optional.of("feature/login")
+      store.findBranch(first, branches, new BranchSearchBudget(1, 0)).outcome ==
+          BranchSearchResult.Outcome.BUDGET_EXHAUSTED
+
+    cleanup:
+      store?.close()
+      repository?.close()
+
+    where:
+      backend << GitBackend.values()
+  }
+
+  /**
+   * Run with <code>mvn test -Dbenchmark=true -Dtest=GitBackendTest</code>. The size of the generated history can be
+   * set with <code>-Dbenchmark.commits</code>.
+   */
+  @Requires({ sys['benchmark'] })
+  @Unroll
+  def "Benchmark branch search and commit reads with the #backend backend"() {
+
+    given: "a packed repository where the branch of the first commit is only found by walking the whole history"
+      def benchmarkDir = File.createTempDir()
+      def git = BenchmarkHelper.createPackedRepo(benchmarkDir, commits)
+      def firstCommit = git.repository.resolve("master~${commits - 1}")
+      def commitIds = git.log().call().collect { it.id }
+      git.close()
+
+    when:
+      def gitRepo = GitRepo.fromDir(benchmarkDir, backend)
+      def branchSearchMillis = BenchmarkHelper.time(rounds) {
+        gitRepo.findBranchNameFromDetachedHead(firstCommit, false, "BRANCH_NAME", BranchSearchBudget.UNLIMITED)
+      }
+      def commitReadMillis = BenchmarkHelper.time(rounds) {
+        commitIds.each { gitRepo.getLogEntryForCommit(it) }
+      }
+      def batchReadMillis = BenchmarkHelper.time(rounds) {
+        gitRepo.getLogEntriesForCommits(commitIds)
+      }
+      println String.format("%-6s %6d commits: branch search %8.2f ms, reading commits one by one %8.2f ms, "
+          + "in one batch %8.2f ms", backend, commits, branchSearchMillis, commitReadMillis,
+          batchReadMillis)
+
+    then:
+      gitRepo.findBranchNameFromDetachedHead(firstCommit, false, "BRANCH_NAME", BranchSearchBudget.UNLIMITED)
+          .branchName == Optional.of("master")
+
+    cleanup:
+      gitRepo?.close()
+      benchmarkDir.deleteDir()
+
+    where:
+      backend << GitBackend.values()
+  }
+}
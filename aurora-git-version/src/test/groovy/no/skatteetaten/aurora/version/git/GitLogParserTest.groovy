@@ -46,8 +46,44 @@ class GitLogParserTest extends Specification {
 
   }
 
+  @Unroll
+  def "parsing raw commit with #commitType, shall decode branch name #expectedBranchName"() {
+    given:
+      def rawCommit = buildRawCommitWithMessage(message)
+    when:
+      def actualBranchName = GitLogParser.findOriginatingBranchName(rawCommit)
+    then:
+      actualBranchName.orElse(null) == expectedBranchName
+    where:
+      commitType                  | message                                                  | expectedBranchName
+      "Norwegian letters"         | "Merge branch 'feature/søknader_inntektsår'"             | "feature/søknader_inntektsår"
+      "byte 0x85 in the title"    | "Pull request #1: Å\n\nMerge in P/r from feature/x to m" | "feature/x"
+      "huge body"                 | "Merge branch 'feature/big'\n\n" + ("x" * 1000000)       | "feature/big"
+      "only indented lines"       | ""                                                       | null
+  }
+
+  def "parsing raw commit in #encoding, shall decode branch name #branchName in the encoding of the commit"() {
+    given:
+      def rawCommit = buildRawCommitWithEncoding("Merge branch '$branchName'", encoding)
+    when:
+      def actualBranchName = GitLogParser.findOriginatingBranchName(rawCommit)
+    then:
+      actualBranchName.orElse(null) == branchName
+    where:
+      encoding       | branchName
+      "ISO-8859-1"   | "feature/søknader_inntektsår"
+      "ISO-8859-1"   | "feature/Ã¥r"
+      "windows-1252" | "feature/søknader_inntektsår"
+      "KOI8-R"       | "feature/задача"
+      "UTF-8"        | "feature/søknader_inntektsår"
+  }
+
   def buildCommitRevWithMessage(String message) {
-    return RevCommit.parse("""
+    return RevCommit.parse(buildRawCommitWithMessage(message))
+  }
+
+  def buildRawCommitWithMessage(String message) {
+    return ("""
       |tree 929d072c79049917a3fc5cc37310222bc6be1805
       |parent bd4f6dd2b29f9a50c4fa499e990ed5ff2779be57
       |author FirstName LastName <FirstName.LastName@email.com> 1524144672 +0200
@@ -57,7 +93,19 @@ class GitLogParserTest extends Specification {
       |    
       | Lorem ipsum dolor sit amet, consectetur adipiscing elit. Duis non odio mauris. 
       | Nunc vel vestibulum lectus. Donec pharetra interdum nunc et viverra. Fusce ac mattis.
-      """.stripMargin().trim().bytes)
+      """.stripMargin().trim() as String).getBytes("UTF-8")
+  }
+
+  def buildRawCommitWithEncoding(String message, String encoding) {
+    return ("""
+      |tree 929d072c79049917a3fc5cc37310222bc6be1805
+      |parent bd4f6dd2b29f9a50c4fa499e990ed5ff2779be57
+      |author FirstName LastName <FirstName.LastName@email.com> 1524144672 +0200
+      |committer FirstName LastName <FirstName.LastName@email.com> 1524144672 +0200
+      |encoding ${encoding}
+      |
+      |${message}
+      """.stripMargin().trim() as String).getBytes(encoding)
   }
 
 }
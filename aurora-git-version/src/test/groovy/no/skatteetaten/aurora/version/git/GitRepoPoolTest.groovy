@@ -0,0 +1,45 @@
+package no.skatteetaten.aurora.version.git
+
+import org.eclipse.jgit.api.Git
+import org.eclipse.jgit.lib.RepositoryCache
+
+import no.skatteetaten.aurora.version.GitRepoHelper
+import spock.lang.Specification
+
+class GitRepoPoolTest extends Specification {
+
+  File dir = File.createTempDir()
+
+  def cleanup() {
+    dir.deleteDir()
+  }
+
+  def "Repositories borrowing objects from the same repository share it"() {
+
+    given:
+      def source = GitRepoHelper.createRepo(new File(dir, "source"), [["first", "v1.0.0"], ["second"]])
+      def head = source.repository.resolve("HEAD")
+      def borrowers = ["a", "b"].collect { name -> createBorrower(new File(dir, name), source, head.name) }
+      def pool = new GitRepoPool()
+
+    when:
+      def repos = borrowers.collect { pool.open(it) }
+
+    then:
+      repos.every { it.getLogEntryForCurrentHead().get().fullMessage == "second" }
+      pool.size() == 2
+      RepositoryCache.registeredKeys.count { it.file.canonicalFile == source.repository.directory.canonicalFile } == 1
+
+    cleanup:
+      pool?.close()
+      source?.close()
+  }
+
+  private static File createBorrower(File workTree, Git source, String commit) {
+    Git.init().setDirectory(workTree).call().close()
+    def gitDir = new File(workTree, ".git")
+    new File(gitDir, "objects/info/alternates").text = new File(source.repository.directory, "objects").absolutePath
+    new File(gitDir, "refs/heads/master").text = commit + "\n"
+    workTree
+  }
+}
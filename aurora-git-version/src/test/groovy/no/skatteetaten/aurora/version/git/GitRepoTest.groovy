@@ -3,6 +3,9 @@ package no.skatteetaten.aurora.version.git
 import static org.eclipse.jgit.lib.Constants.OBJ_COMMIT
 
 import org.apache.tools.ant.taskdefs.Expand
+import org.eclipse.jgit.api.Git
+import org.eclipse.jgit.lib.PersonIdent
+import org.eclipse.jgit.lib.Repository
 
 import no.skatteetaten.aurora.version.GitRepoHelper
 import spock.lang.Specification
@@ -37,6 +40,24 @@ class GitRepoTest extends Specification {
       "on_tag"                      | OBJ_COMMIT | "edf6570e29a70ce9d52f40416ff81cf092b4f19e" | "README.md"
   }
 
+  @Unroll("#repo")
+  def "shall find originating branch name from the commit message"() {
+
+    given:
+      def gitRepo = GitRepo.fromDir("$repoFolder/$repo")
+
+    when:
+      def branchName = gitRepo.findOriginatingBranchName(gitRepo.resolve("HEAD"))
+
+    then:
+      branchName.orElse(null) == expectedBranchName
+
+    where:
+      repo                          | expectedBranchName
+      "on_master_with_merge_commit" | "feature/PROJ-123-feature"
+      "on_master_with_ff_merge"     | "PROJ-321"
+  }
+
   @Unroll("#repo")
   def "shall be able to retrieve log entry for current head"() {
 
@@ -58,4 +79,374 @@ class GitRepoTest extends Specification {
       "on_detached_head"            | OBJ_COMMIT | "7aa95ecd3ec7958bfc0e08b497d2c3c391e3df3f" | "A change"
   }
 
+
+  @Unroll("#maxCommits commits")
+  def "shall stop searching for branch of detached head when budget is exhausted"() {
+
+    given:
+      def gitRepo = GitRepo.fromDir("$repoFolder/on_master_without_tag")
+      def taggedCommit = gitRepo.resolve("v1.0.0^{commit}")
+
+    when:
+      def result = gitRepo.findBranchNameFromDetachedHead(taggedCommit, false, "BRANCH_NAME",
+          new BranchSearchBudget(maxCommits, 0))
+
+    then:
+      result.outcome == outcome
+      result.branchName == Optional.ofNullable(branchName)
+
+    where:
+      maxCommits | outcome                                    | branchName
+      0          | BranchSearchResult.Outcome.FOUND            | "develop"
+      2          | BranchSearchResult.Outcome.FOUND            | "develop"
+      1          | BranchSearchResult.Outcome.BUDGET_EXHAUSTED | null
+  }
+
+  def "shall find branch of detached head without walking when a branch points at it"() {
+
+    given:
+      def gitRepo = GitRepo.fromDir("$repoFolder/on_detached_head")
+
+    when:
+      def result = gitRepo.findBranchName(false, "BRANCH_NAME", new BranchSearchBudget(1, 0))
+
+    then:
+      result.outcome == BranchSearchResult.Outcome.FOUND
+      result.branchName == Optional.of("develop")
+      result.commitsWalked == 0
+  }
+
+  @Unroll("#repo")
+  def "shall find nearest version tag and distance"() {
+
+    given:
+      def gitRepo = GitRepo.fromDir("$repoFolder/$repo")
+
+    when:
+      def tagDistance = gitRepo.findNearestVersionTag(gitRepo.resolve("HEAD"), "v")
+
+    then:
+      tagDistance.map { it.tagName }.orElse(null) == tagName
+      tagDistance.map { it.distance }.orElse(null) == distance
+      tagDistance.map { it.abbreviatedCommit }.orElse(null) == abbreviatedCommit
+
+    where:
+      repo                          | tagName  | distance | abbreviatedCommit
+      "on_master_without_tag"       | "v1.0.0" | 1        | "dc31c2d"
+      "on_master_with_merge_commit" | "v0.0.1" | 2        | "533cf3a"
+      "on_tag"                      | "v1.0.0" | 0        | "edf6570"
+      "on_branch"                   | null     | null     | null
+  }
+
+  def "The nearest version tag of a commit is found once until the refs are refreshed"() {
+
+    given:
+      def dir = File.createTempDir()
+      def git = GitRepoHelper.createRepo(dir, [["first", "v1.0.0"], ["second"]])
+      def gitRepo = GitRepo.fromDir(dir)
+      def head = gitRepo.resolve("HEAD")
+
+    when:
+      def first = gitRepo.findNearestVersionTag(head, "v")
+
+    then:
+      gitRepo.findNearestVersionTag(head, "v").is(first)
+      first.get().distance == 1
+
+    when:
+      git.tag().setName("v1.1.0").setAnnotated(false).call()
+      gitRepo.refreshRefs()
+
+    then:
+      gitRepo.findNearestVersionTag(head, "v").get().tagName == "v1.1.0"
+      gitRepo.findNearestVersionTag(head, "v").get().distance == 0
+
+    cleanup:
+      git?.close()
+      dir.deleteDir()
+  }
+
+  def "Refs are read again when they have changed on disk"() {
+
+    given:
+      def dir = File.createTempDir()
+      def git = GitRepoHelper.createRepo(dir, [["first", "v1.0.0"]])
+      def gitRepo = GitRepo.fromDir(dir)
+
+    when:
+      def before = gitRepo.getAllVersionsFromTags("v")
+      git.tag().setName("v1.1.0").setAnnotated(false).call()
+      def created = gitRepo.getAllVersionsFromTags("v")
+      git.tagDelete().setTags("v1.0.0").call()
+      def deleted = gitRepo.getAllVersionsFromTags("v")
+
+    then:
+      before == ["1.0.0"]
+      created == ["1.0.0", "1.1.0"]
+      deleted == ["1.1.0"]
+
+    cleanup:
+      gitRepo?.close()
+      git?.close()
+      dir.deleteDir()
+  }
+
+  def "Only the tags with the version prefix are peeled"() {
+
+    given:
+      def dir = File.createTempDir()
+      def git = GitRepoHelper.createRepo(dir, [["first", "v1.0.0"], ["second"]])
+      new File(dir, ".git/refs/tags/other").text = "1234567890123456789012345678901234567890\n"
+      def gitRepo = GitRepo.fromDir(dir)
+
+    when:
+      gitRepo.getVersionTagsFromCommit(gitRepo.resolve("HEAD~1"), "other")
+
+    then:
+      thrown(RuntimeException)
+
+    and: "a tag pointing at a missing object does not break the other prefixes"
+      gitRepo.getVersionTagsFromCommit(gitRepo.resolve("HEAD~1"), "v") == ["v1.0.0"]
+      gitRepo.getAllVersionsFromTags("other") == [""]
+
+    cleanup:
+      gitRepo?.close()
+      git?.close()
+      dir.deleteDir()
+  }
+
+  def "Closes the repository it opened, and leaves a repository it was given open"() {
+
+    given:
+      def dir = File.createTempDir()
+      def git = GitRepoHelper.createRepo(dir, [["first", "v1.0.0"]])
+      def opened = GitRepo.fromDir(dir)
+      def wrapping = new GitRepo(git.repository)
+      def withKnownTags = opened.withKnownTags(KnownTags.of(["v1.0.0"]))
+
+    when:
+      withKnownTags.close()
+      wrapping.close()
+
+    then:
+      useCount(opened.@gitRepo) == 1
+      useCount(git.repository) == 1
+
+    when:
+      opened.close()
+
+    then:
+      useCount(opened.@gitRepo) == 0
+
+    cleanup:
+      git?.close()
+      dir.deleteDir()
+  }
+
+  private static int useCount(Repository repository) {
+    def useCnt = Repository.getDeclaredField("useCnt")
+    useCnt.accessible = true
+    return useCnt.get(repository).get()
+  }
+
+  def "Creates tags atomically and sees them without refreshing"() {
+
+    given:
+      def dir = File.createTempDir()
+      def git = GitRepoHelper.createRepo(dir, [["first", "v1.0.0"], ["second"]])
+      def gitRepo = GitRepo.fromDir(dir)
+      def head = gitRepo.resolve("HEAD")
+      def first = gitRepo.resolve("HEAD~1")
+
+    when: "tagging HEAD, where v1.0.0 is already on the first commit"
+      def created = gitRepo.createTags(["v1.0.0": first, "v1.1.0": head])
+      def snapshot = gitRepo.@refSnapshot
+
+    then: "only the new tag is created, and it is seen without refreshing"
+      created == ["v1.1.0": head]
+      gitRepo.getAllVersionsFromTags("v") == ["1.0.0", "1.1.0"]
+      git.repository.exactRef("refs/tags/v1.1.0").objectId == head
+
+    and: "the tag is added to the snapshot, which is still current, so the refs are not read again"
+      snapshot != null
+      snapshot.isCurrent()
+      gitRepo.getVersionTagsFromCommit(head, "v") == ["v1.1.0"]
+      gitRepo.@refSnapshot.is(snapshot)
+
+    when: "a tag points at another commit"
+      gitRepo.createTags(["v1.2.0": head, "v1.1.0": first])
+
+    then: "none of them are created"
+      thrown(IllegalStateException)
+      git.repository.exactRef("refs/tags/v1.2.0") == null
+
+    when: "a tag was created on disk since the snapshot was taken"
+      git.tag().setName("v1.3.0").setObjectId(git.repository.parseCommit(first)).setAnnotated(false).call()
+      gitRepo.createTags(["v1.2.0": head, "v1.3.0": head])
+
+    then: "none of them are created"
+      thrown(IllegalStateException)
+      git.repository.exactRef("refs/tags/v1.2.0") == null
+
+    cleanup:
+      git?.close()
+      dir.deleteDir()
+  }
+
+  def "Linked worktrees use their own HEAD and the refs of the shared repository"() {
+
+    given: "a repository with a linked worktree checked out on a branch at the first commit"
+      def dir = File.createTempDir()
+      def main = new File(dir, "main")
+      def git = GitRepoHelper.createRepo(main, [["first", "v1.0.0"], ["second"]])
+      def first = git.repository.resolve("HEAD~1")
+      git.branchCreate().setName("worktree-branch").setStartPoint(first.name).call()
+
+      def worktree = new File(dir, "worktree")
+      def worktreeGitDir = new File(main, ".git/worktrees/worktree")
+      worktreeGitDir.mkdirs()
+      worktree.mkdirs()
+      new File(worktree, ".git").text = "gitdir: ${worktreeGitDir.absolutePath}\n"
+      new File(worktreeGitDir, "HEAD").text = "ref: refs/heads/worktree-branch\n"
+      new File(worktreeGitDir, "commondir").text = "../..\n"
+      new File(worktreeGitDir, "gitdir").text = "${new File(worktree, ".git").absolutePath}\n"
+
+    when:
+      def gitRepo = GitRepo.fromDir(worktree)
+
+    then:
+      gitRepo.getBranchName(false, "BRANCH_NAME").get() == "worktree-branch"
+      gitRepo.resolve("HEAD") == first
+      gitRepo.getVersionTagsFromCommit(gitRepo.resolve("HEAD"), "v") == ["v1.0.0"]
+      gitRepo.workTree == worktree.canonicalFile
+      GitRepo.fromDir(main).getBranchName(false, "BRANCH_NAME").get() == "master"
+
+    cleanup:
+      git?.close()
+      dir.deleteDir()
+  }
+
+  @Unroll
+  def "Branch search in a shallow clone stops at the shallow boundary with the #backend backend"() {
+
+    given: "a clone of depth 2, where old is the only local branch and its history ends before the commit"
+      def dir = File.createTempDir()
+      def origin = new File(dir, "origin")
+      def git = GitRepoHelper.createRepo(origin, [["first"], ["second"], ["third"]])
+      git.checkout().setCreateBranch(true).setName("old").setStartPoint("master~2").call()
+      def ident = new PersonIdent("Test", "test@example.com")
+      (1..3).each {
+        git.commit().setMessage("old $it").setAllowEmpty(true).setAuthor(ident).setCommitter(ident).call()
+      }
+      git.checkout().setName("master").call()
+      def clone = new File(dir, "clone")
+      def process = ["git", "clone", "-q", "--depth", "2", "--no-single-branch", "file://${origin.absolutePath}",
+                     clone.absolutePath].execute()
+      process.waitForProcessOutput(System.out, System.err)
+      assert process.exitValue() == 0
+      def second = GitRepo.fromDir(clone).resolve("origin/master~1")
+      def cloned = Git.open(clone)
+      cloned.branchCreate().setName("old").setStartPoint("origin/old").call()
+
+    when:
+      def gitRepo = GitRepo.fromDir(clone, backend)
+      def withMaster = gitRepo.findBranchNameFromDetachedHead(second, false, "BRANCH_NAME",
+          BranchSearchBudget.UNLIMITED)
+      cloned.checkout().setName("old").call()
+      cloned.branchDelete().setBranchNames("master").setForce(true).call()
+      gitRepo.refreshRefs()
+      def withoutMaster = gitRepo.findBranchNameFromDetachedHead(second, false, "BRANCH_NAME",
+          BranchSearchBudget.UNLIMITED)
+
+    then:
+      withMaster.outcome == BranchSearchResult.Outcome.FOUND
+      withMaster.branchName == Optional.of("master")
+      withoutMaster.outcome == BranchSearchResult.Outcome.UNKNOWN_SHALLOW
+      withoutMaster.inconclusive
+      !withoutMaster.branchName.isPresent()
+      withoutMaster.commitsWalked <= 2
+
+    cleanup:
+      gitRepo?.close()
+      cloned?.close()
+      git?.close()
+      dir.deleteDir()
+
+    where:
+      backend << GitBackend.values()
+  }
+
+  def "Finds only the version tags reachable from a commit"() {
+
+    given: "a maintenance branch from v1.0.0, while master has moved on to v1.1.0"
+      def dir = File.createTempDir()
+      def git = GitRepoHelper.createRepo(dir, [["first", "v1.0.0"], ["second", "v1.1.0"], ["third"]])
+      git.checkout().setCreateBranch(true).setName("support").setStartPoint("v1.0.0").call()
+      git.commit().setMessage("fix").setAllowEmpty(true).call()
+      git.tag().setName("v1.0.1").setAnnotated(false).call()
+      git.tag().setName("other-tag").setAnnotated(false).call()
+      def gitRepo = GitRepo.fromDir(dir)
+
+    expect:
+      gitRepo.getAllVersionsFromTagsReachableFrom(gitRepo.resolve("HEAD"), "v") == ["1.0.0", "1.0.1"]
+      gitRepo.getAllVersionsFromTagsReachableFrom(gitRepo.resolve("master"), "v") == ["1.0.0", "1.1.0"]
+      gitRepo.getAllVersionsFromTagsReachableFrom(gitRepo.resolve("v1.0.0"), "v") == ["1.0.0"]
+
+    cleanup:
+      git?.close()
+      dir.deleteDir()
+  }
+
+  def "Finds a version tag on a parent dated more than a day after its child"() {
+
+    given: "the parent of HEAD is tagged and dated three days ahead of HEAD, by a committer with a wrong clock"
+      def dir = File.createTempDir()
+      def git = Git.init().setDirectory(dir).setInitialBranch("master").call()
+      def now = new Date()
+      def ahead = new PersonIdent("Test", "test@example.com", new Date(now.time + 3 * 24 * 3600 * 1000L),
+          TimeZone.getTimeZone("UTC"))
+      def behind = new PersonIdent("Test", "test@example.com", now, TimeZone.getTimeZone("UTC"))
+      git.commit().setMessage("first").setAllowEmpty(true).setAuthor(behind).setCommitter(behind).call()
+      git.commit().setMessage("ahead").setAllowEmpty(true).setAuthor(ahead).setCommitter(ahead).call()
+      git.tag().setName("v1.0.0").setAnnotated(false).call()
+      git.commit().setMessage("head").setAllowEmpty(true).setAuthor(behind).setCommitter(behind).call()
+      def gitRepo = GitRepo.fromDir(dir)
+
+    expect:
+      gitRepo.getAllVersionsFromTagsReachableFrom(gitRepo.resolve("HEAD"), "v") == ["1.0.0"]
+
+    cleanup:
+      gitRepo?.close()
+      git?.close()
+      dir.deleteDir()
+  }
+
+  def "Reads the tagger times of annotated tags once"() {
+
+    given:
+      def dir = File.createTempDir()
+      def git = GitRepoHelper.createRepo(dir, [["first", "v1.0.0"]])
+      def tagger = { long time -> new PersonIdent("Tagger", "tagger@example.com", new Date(time), TimeZone.default) }
+      git.tag().setName("v2.0.0").setMessage("old").setTagger(tagger(1000000L)).call()
+      git.tag().setName("v1.1.0").setMessage("new").setTagger(tagger(2000000L)).call()
+      def gitRepo = GitRepo.fromDir(dir)
+      def tags = gitRepo.getVersionTagsFromCommit(gitRepo.resolve("HEAD"), "v")
+
+    when:
+      def first = gitRepo.getTaggerTimes(tags)
+      new File(dir, ".git/objects").eachFileRecurse { if (it.isFile()) it.delete() }
+      def cached = gitRepo.getTaggerTimes(tags)
+
+    then: "the lightweight tag has no tagger time, and the tag objects are not read again"
+      first == ["v1.1.0": 2000000L, "v2.0.0": 1000000L]
+      cached == first
+
+    and:
+      GitVersion.getMostRecentTag(tags, first).get() == "v1.1.0"
+
+    cleanup:
+      gitRepo?.close()
+      git?.close()
+      dir.deleteDir()
+  }
 }
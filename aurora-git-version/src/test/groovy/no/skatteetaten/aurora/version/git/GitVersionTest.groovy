@@ -7,6 +7,7 @@ import org.eclipse.jgit.lib.Repository
 import org.eclipse.jgit.storage.file.FileRepositoryBuilder
 
 import no.skatteetaten.aurora.version.GitRepoHelper
+import no.skatteetaten.aurora.version.suggest.VersionScheme
 import spock.lang.Specification
 import spock.lang.Unroll
 
@@ -42,6 +43,93 @@ class GitVersionTest extends Specification {
       "on_tag"           | "1.0.0"            | TAG           | true    | ['master']
   }
 
+  @Unroll("#repo")
+  def "The options compile their branch rules again when the branch lists change"() {
+
+    given:
+      def options = new GitVersion.Options(branchesToUseTagsAsVersionsFor: ["master"])
+
+    expect:
+      options.shouldDetermineVersionFromTag("master")
+      !options.shouldDetermineVersionFromTag("release/1")
+
+    when:
+      options.branchesToUseTagsAsVersionsFor = ["release/*"]
+
+    then:
+      !options.shouldDetermineVersionFromTag("master")
+      options.shouldDetermineVersionFromTag("release/1")
+  }
+
+  def "Reports how the branch name was determined"() {
+
+    given:
+      def options = new GitVersion.Options(fallbackToBranchNameEnv: false, branchSearchMaxCommits: 10)
+
+    when:
+      def version = GitVersion.determineVersion(new File("$repoFolder/$repo"), options)
+
+    then:
+      version.branchSearchResult.get().outcome == outcome
+
+    where:
+      repo               | outcome
+      "on_branch"        | BranchSearchResult.Outcome.CHECKED_OUT
+      "on_detached_head" | BranchSearchResult.Outcome.FOUND
+  }
+
+  @Unroll("#repo")
+  def "Produces distance version on untagged release branch"() {
+
+    given:
+      def options = new GitVersion.Options(
+              fallbackToBranchNameEnv: false,
+              branchesToUseTagsAsVersionsFor: ['master'],
+              branchesToUseDistanceVersionsFor: ['master']
+      )
+
+    when:
+      def version = GitVersion.determineVersion(new File("$repoFolder/$repo"), options)
+
+    then:
+      version.version == expectedVersion
+      version.source == versionSource
+
+    where:
+      repo                    | expectedVersion       | versionSource
+      "on_master_without_tag" | "1.0.1-rc.1+gdc31c2d" | GitVersion.VersionSource.DISTANCE
+      "on_tag"                | "1.0.0"               | TAG
+      "on_branch"             | "develop-SNAPSHOT"    | BRANCH
+  }
+
+  def "Produces distance version from the nearest tag of the version scheme"() {
+
+    given: "the nearest tag is not a semantic version, and an older one is"
+      def dir = File.createTempDir()
+      def git = GitRepoHelper.createRepo(dir, [["first", "v1.0.0"], ["second", "v57"], ["third"], ["fourth"]])
+      def options = new GitVersion.Options(
+              fallbackToBranchNameEnv: false,
+              branchesToUseDistanceVersionsFor: ['master'],
+              versionScheme: scheme
+      )
+
+    when:
+      def version = GitVersion.determineVersion(dir, options)
+
+    then:
+      version.version.replaceAll(/\+g[0-9a-f]+$/, "") == expectedVersion
+      version.source == GitVersion.VersionSource.DISTANCE
+
+    cleanup:
+      git?.close()
+      dir.deleteDir()
+
+    where:
+      scheme                     | expectedVersion
+      VersionScheme.BUILD_NUMBER | "58-rc.2"
+      VersionScheme.SEMANTIC     | "1.0.1-rc.3"
+  }
+
   def "Version from branch name"() {
 
     given:
@@ -156,4 +244,39 @@ class GitVersionTest extends Specification {
     expect:
       GitVersion.getMostRecentTag(tags).orElse("") == "vfeature-SAF-2190-jenkins-bytte-versjon-av-aurora-cd-19-DEV"
   }
-}
\ No newline at end of file
+
+  @Unroll("#tags")
+  def "Most recent tag orders semantic versions by precedence"() {
+
+    expect:
+      GitVersion.getMostRecentTag(tags).get() == mostRecent
+
+    where:
+      tags                                          | mostRecent
+      ["v10.0.0-rc1", "v2.0.0"]                     | "v10.0.0-rc1"
+      ["v2.0.0", "v10.0.0-rc1"]                     | "v10.0.0-rc1"
+      ["v10.0.0", "v10.0.0-rc1"]                    | "v10.0.0"
+      ["v1.0.0-rc.2", "v1.0.0-rc.10", "v1.0.0-rc"]  | "v1.0.0-rc.10"
+      ["v1.0.0-alpha.1", "v1.0.0-alpha.beta"]       | "v1.0.0-alpha.beta"
+      ["v1.0.0", "v1.0.0+build.5"]                  | "v1.0.0+build.5"
+      ["v1.9.9", "vdevelop-SNAPSHOT"]               | "v1.9.9"
+      ["dev-2", "dev-11", "dev-10"]                 | "dev-11"
+  }
+
+  def "Most recent tag does not change the given list"() {
+
+    given:
+      def tags = ["v1.10.0", "v1.2.0", "v1.9.0"]
+
+    expect:
+      GitVersion.getMostRecentTag(tags).get() == "v1.10.0"
+      tags == ["v1.10.0", "v1.2.0", "v1.9.0"]
+  }
+
+  def "Most recent tag is the latest annotated tag when ordering by tagger date"() {
+
+    expect:
+      GitVersion.getMostRecentTag(["v2.0.0", "v1.0.0", "v3.0.0"], ["v1.0.0": 2000L, "v2.0.0": 1000L]).get() == "v1.0.0"
+      GitVersion.getMostRecentTag(["v2.0.0", "v1.0.0"], ["v1.0.0": 1000L, "v2.0.0": 1000L]).get() == "v2.0.0"
+  }
+}
@@ -0,0 +1,82 @@
+package no.skatteetaten.aurora.version.git
+
+import org.eclipse.jgit.lib.ObjectId
+
+import spock.lang.Specification
+
+class KnownTagsTest extends Specification {
+
+  def lsRemoteOutput = """
+      |edf6570e29a70ce9d52f40416ff81cf092b4f19e\trefs/tags/v1.0.0
+      |1ab2be8f2b54f3b4d1c5a6e8d5f5c1b2a3d4e5f6\trefs/tags/v1.1.0
+      |7aa95ecd3ec7958bfc0e08b497d2c3c391e3df3f\trefs/tags/v1.1.0^{}
+      |dc31c2d153be0662c18bc3e653c04a29f291d602\trefs/tags/other
+      |dc31c2d153be0662c18bc3e653c04a29f291d602\trefs/heads/master
+      |""".stripMargin()
+
+  def "shall read versions from ls-remote output"() {
+
+    when:
+      def knownTags = KnownTags.parseLsRemote(new StringReader(lsRemoteOutput))
+
+    then:
+      knownTags.size() == 3
+      knownTags.getVersionsFromTags("v") == ["1.0.0", "1.1.0"]
+  }
+
+  def "shall match annotated tags on their peeled commit"() {
+
+    given:
+      def knownTags = KnownTags.parseLsRemote(new StringReader(lsRemoteOutput))
+
+    expect:
+      knownTags.getVersionTagsFromCommit(ObjectId.fromString(commit), "v") == expectedTags
+
+    where:
+      commit                                     | expectedTags
+      "edf6570e29a70ce9d52f40416ff81cf092b4f19e" | ["v1.0.0"]
+      "7aa95ecd3ec7958bfc0e08b497d2c3c391e3df3f" | ["v1.1.0"]
+      "1ab2be8f2b54f3b4d1c5a6e8d5f5c1b2a3d4e5f6" | []
+  }
+
+  def "shall never match tags known only by name"() {
+
+    given:
+      def knownTags = KnownTags.of(["v1.0.0"])
+
+    expect:
+      knownTags.getVersionsFromTags("v") == ["1.0.0"]
+      knownTags.getVersionTagsFromCommit(ObjectId.fromString("edf6570e29a70ce9d52f40416ff81cf092b4f19e"), "v") == []
+  }
+
+  def "shall read a plain list of tag names"() {
+
+    when:
+      def knownTags = KnownTags.parseLsRemote(["v1.0.0", "", "refs/tags/v1.1.0", "refs/heads/master", "other"])
+
+    then:
+      knownTags.size() == 3
+      knownTags.getVersionsFromTags("v") == ["1.0.0", "1.1.0"]
+      knownTags.getVersionTagsByCommit("v").isEmpty()
+  }
+
+  def "shall resolve tags known only by name from the local tags"() {
+
+    given:
+      def commit = ObjectId.fromString("edf6570e29a70ce9d52f40416ff81cf092b4f19e")
+      def knownTags = KnownTags.parseLsRemote(["v1.0.0", "v1.1.0"]).resolve(["v1.0.0": commit].&get)
+
+    expect:
+      knownTags.getVersionTagsFromCommit(commit, "v") == ["v1.0.0"]
+      knownTags.getVersionsFromTags("v") == ["1.0.0", "1.1.0"]
+  }
+
+  def "shall reject malformed lines"() {
+
+    when:
+      KnownTags.parseLsRemote(["not a sha\trefs/tags/v1.0.0"])
+
+    then:
+      thrown(IllegalArgumentException)
+  }
+}
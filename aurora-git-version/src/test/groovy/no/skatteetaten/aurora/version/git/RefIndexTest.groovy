@@ -0,0 +1,161 @@
+package no.skatteetaten.aurora.version.git
+
+import org.eclipse.jgit.lib.ObjectId
+
+import no.skatteetaten.aurora.version.GitRepoHelper
+import spock.lang.Specification
+
+class RefIndexTest extends Specification {
+
+  static final String ZERO = ObjectId.zeroId().name()
+
+  File dir = File.createTempDir()
+
+  def cleanup() {
+    dir.deleteDir()
+  }
+
+  def "A committed transaction builds the index, which is read while the refs are unchanged"() {
+
+    given:
+      def git = GitRepoHelper.createRepo(dir, [["first", "v1.0.0"], ["second"]])
+      git.tag().setName("v1.1.0").setMessage("release").setAnnotated(true).call()
+      def repository = GitRepo.fromDir(dir)
+      def gitDir = GitDir.resolve(dir)
+
+    expect:
+      !RefIndex.read(gitDir).present
+
+    when:
+      repository.updateRefIndex("committed", [])
+      def indexed = RefIndex.read(gitDir).get()
+      def scanned = RefSnapshot.of(git.repository)
+
+    then:
+      indexed.taggedCommits == scanned.taggedCommits
+      indexed.tagObjects == scanned.tagObjects
+      indexed.branches*.name == scanned.branches*.name
+      indexed.branches*.objectId == scanned.branches*.objectId
+
+    when: "a tag is created without the hook"
+      git.tag().setName("v1.2.0").setAnnotated(false).call()
+
+    then: "the index is stale"
+      !RefIndex.read(gitDir).present
+      new File(gitDir.commonDir, RefIndex.FILE_NAME).exists()
+
+    when: "the next transaction is prepared and committed"
+      repository.updateRefIndex("prepared", [])
+      def deleted = !new File(gitDir.commonDir, RefIndex.FILE_NAME).exists()
+      repository.updateRefIndex("committed", [])
+
+    then: "the stale index is deleted and built again"
+      deleted
+      RefIndex.read(gitDir).get().taggedCommits.keySet() == ["v1.0.0", "v1.1.0", "v1.2.0"] as Set
+
+    cleanup:
+      git?.close()
+  }
+
+  def "The updates of a transaction are applied to an index that is up to date"() {
+
+    given:
+      def git = GitRepoHelper.createRepo(dir, [["first", "v1.0.0"], ["second"]])
+      git.branchCreate().setName("develop").call()
+      def repository = GitRepo.fromDir(dir)
+      def gitDir = GitDir.resolve(dir)
+      repository.updateRefIndex("committed", [])
+      def develop = git.repository.resolve("develop")
+
+    when: "an annotated tag is created and a branch deleted in one transaction"
+      repository.updateRefIndex("prepared", [])
+      def tag = git.tag().setName("v2.0.0").setMessage("release").setAnnotated(true).call()
+      git.branchDelete().setBranchNames("develop").call()
+      repository.updateRefIndex("committed", [
+          "$ZERO ${tag.objectId.name} refs/tags/v2.0.0",
+          "${develop.name} $ZERO refs/heads/develop",
+          "ref:refs/heads/master ref:refs/heads/master HEAD"
+      ]*.toString())
+      def indexed = RefIndex.read(gitDir).get()
+
+    then: "the tag is peeled and the branch is gone"
+      indexed.taggedCommits["v2.0.0"] == git.repository.resolve("HEAD")
+      indexed.tagObjects["v2.0.0"] == tag.objectId
+      indexed.branches*.name == ["refs/heads/master"]
+
+    and: "the repository reads the refs from the index"
+      GitRepo.fromDir(dir).getVersionTagsFromCommit(git.repository.resolve("HEAD"), "v") == ["v2.0.0"]
+      GitRepo.fromDir(dir).branchHeads.keySet() == ["master"] as Set
+
+    cleanup:
+      git?.close()
+  }
+
+  def "Tags created by the repository are added to an index that is up to date"() {
+
+    given:
+      def git = GitRepoHelper.createRepo(dir, [["first", "v1.0.0"], ["second"]])
+      def repository = GitRepo.fromDir(dir)
+      def gitDir = GitDir.resolve(dir)
+      repository.updateRefIndex("committed", [])
+      def head = git.repository.resolve("HEAD")
+
+    when: "a tag is created without the hook"
+      repository.createTags(["v1.1.0": head])
+
+    then: "the index is still up to date, and has the tag"
+      RefIndex.isCurrent(gitDir)
+      RefIndex.read(gitDir).get().taggedCommits == ["v1.0.0": git.repository.resolve("HEAD~1"), "v1.1.0": head]
+
+    and: "another repository reads the tag from the index"
+      GitRepo.fromDir(dir).withCloseable { it.getVersionTagsFromCommit(head, "v") } == ["v1.1.0"]
+
+    cleanup:
+      repository?.close()
+      git?.close()
+  }
+
+  def "An index with another format is not used"() {
+
+    given:
+      def git = GitRepoHelper.createRepo(dir, [["first", "v1.0.0"]])
+      def gitDir = GitDir.resolve(dir)
+      new File(gitDir.commonDir, RefIndex.FILE_NAME).bytes = "not an index".bytes
+
+    expect:
+      !RefIndex.read(gitDir).present
+      GitRepo.fromDir(dir).getAllVersionsFromTags("v") == ["1.0.0"]
+
+    cleanup:
+      git?.close()
+  }
+
+  def "A truncated index is discarded and built again by the next transaction"() {
+
+    given:
+      def git = GitRepoHelper.createRepo(dir, [["first", "v1.0.0"], ["second", "v1.1.0"]])
+      def repository = GitRepo.fromDir(dir)
+      def gitDir = GitDir.resolve(dir)
+      def index = new File(gitDir.commonDir, RefIndex.FILE_NAME)
+      repository.updateRefIndex("committed", [])
+      index.bytes = index.bytes[0..<(index.length() - 10)] as byte[]
+
+    when:
+      def truncated = RefIndex.read(gitDir)
+
+    then:
+      !truncated.present
+      !index.exists()
+      repository.getAllVersionsFromTags("v") as Set == ["1.0.0", "1.1.0"] as Set
+
+    when:
+      repository.updateRefIndex("committed", [])
+
+    then:
+      RefIndex.read(gitDir).get().taggedCommits.keySet() == ["v1.0.0", "v1.1.0"] as Set
+
+    cleanup:
+      repository?.close()
+      git?.close()
+  }
+}
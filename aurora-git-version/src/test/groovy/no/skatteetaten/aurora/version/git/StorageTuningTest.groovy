@@ -0,0 +1,121 @@
+package no.skatteetaten.aurora.version.git
+
+import org.eclipse.jgit.api.Git
+
+import no.skatteetaten.aurora.version.BenchmarkHelper
+import spock.lang.Requires
+import spock.lang.Shared
+import spock.lang.Specification
+import spock.lang.Unroll
+
+class StorageTuningTest extends Specification {
+
+  @Shared
+  int commits = Integer.getInteger("benchmark.commits", 3000)
+
+  @Shared
+  int rounds = Integer.getInteger("benchmark.rounds", 5)
+
+  @Shared
+  String benchmarkRepo = System.getProperty("benchmark.repo")
+
+  @Unroll
+  def "Parses size #size"() {
+
+    expect:
+      StorageTuning.parseSize(size) == expected
+
+    where:
+      size    | expected
+      "8192"  | 8192
+      "64k"   | 64 * 1024
+      "512M"  | 512 * 1024 * 1024
+      "2g"    | 2L * 1024 * 1024 * 1024
+  }
+
+  @Unroll
+  def "Parses mmap flag #value"() {
+
+    expect:
+      StorageTuning.parseBoolean(value) == expected
+
+    where:
+      value    | expected
+      "true"   | true
+      "FALSE"  | false
+      " True " | true
+  }
+
+  def "Rejects a misspelt mmap flag"() {
+
+    when:
+      StorageTuning.parseBoolean("ture")
+
+    then:
+      thrown(IllegalArgumentException)
+  }
+
+  def "Presets for small and huge repositories"() {
+
+    when:
+      def small = StorageTuning.preset("small")
+      def huge = StorageTuning.preset("HUGE")
+
+    then:
+      small.packedGitLimit == new StorageTuning().packedGitLimit
+      !small.packedGitMMAP
+      huge.packedGitLimit > small.packedGitLimit
+      huge.packedGitWindowSize > small.packedGitWindowSize
+      huge.packedGitMMAP
+
+    when:
+      StorageTuning.preset("medium")
+
+    then:
+      thrown(IllegalArgumentException)
+  }
+
+  /**
+   * Run with <code>mvn test -Dbenchmark=true -Dtest=StorageTuningTest</code>. The size of the generated history can
+   * be set with <code>-Dbenchmark.commits</code>. A generated history has packs of a few megabytes, which fit in the
+   * window cache of both presets, so it only shows the overhead of the presets; the effect of the huge preset shows
+   * on packs of several gigabytes, like those of an existing repository given with <code>-Dbenchmark.repo=PATH</code>.
+   */
+  @Requires({ sys['benchmark'] })
+  @Unroll
+  def "Benchmark branch search and commit reads with the #preset preset"() {
+
+    given: "a packed repository where the branch of the first commit is only found by walking the whole history"
+      def dir = benchmarkRepo ? new File(benchmarkRepo) : File.createTempDir()
+      def git = benchmarkRepo ? Git.open(dir) : BenchmarkHelper.createPackedRepo(dir, commits)
+      def history = git.log().call().collect { it.id }
+      def first = history.last()
+      git.close()
+      StorageTuning.preset(preset).install()
+
+    when:
+      def gitRepo = GitRepo.fromDir(dir)
+      def branchSearchMillis = BenchmarkHelper.time(rounds) {
+        gitRepo.findBranchNameFromDetachedHead(first, false, "BRANCH_NAME", BranchSearchBudget.UNLIMITED)
+      }
+      def commitReadMillis = BenchmarkHelper.time(rounds) {
+        history.each { gitRepo.getLogEntryForCommit(it) }
+      }
+      println String.format("%-5s %6d commits: branch search %8.2f ms, reading all commits %8.2f ms",
+          preset, history.size(), branchSearchMillis, commitReadMillis)
+
+    then:
+      gitRepo.findBranchNameFromDetachedHead(first, false, "BRANCH_NAME", BranchSearchBudget.UNLIMITED)
+          .branchName.isPresent()
+
+    cleanup:
+      gitRepo?.close()
+      new StorageTuning().install()
+      if (!benchmarkRepo) {
+        dir.deleteDir()
+      }
+
+    where:
+      preset << ["small", "huge"]
+  }
+}
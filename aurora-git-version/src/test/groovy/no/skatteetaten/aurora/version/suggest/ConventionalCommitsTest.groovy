@@ -0,0 +1,29 @@
+package no.skatteetaten.aurora.version.suggest
+
+import spock.lang.Specification
+import spock.lang.Unroll
+
+class ConventionalCommitsTest extends Specification {
+
+  @Unroll
+  def "commit message '#message' shall be classified as #expectedSegment"() {
+    expect:
+      ConventionalCommits.classify(message) == Optional.ofNullable(expectedSegment)
+
+    where:
+      message                                            | expectedSegment
+      "fix: handle empty tag list"                       | VersionSegment.PATCH
+      "fix(git): handle empty tag list"                  | VersionSegment.PATCH
+      "feat: add json output"                            | VersionSegment.MINOR
+      "Feat(cli): add json output"                       | VersionSegment.MINOR
+      "feat!: drop java 8"                               | VersionSegment.MAJOR
+      "refactor(api)!: rename options"                   | VersionSegment.MAJOR
+      "fix: options\n\nBREAKING CHANGE: renamed options" | VersionSegment.MAJOR
+      "fix: options\n\nBREAKING-CHANGE: renamed options" | VersionSegment.MAJOR
+      "chore: update dependencies"                       | null
+      "docs: fix typo"                                   | null
+      "Merge branch 'feature/PROJ-123-feature'"          | null
+      "feat:missing space"                               | null
+      "PROJ-321 fixed the fix me"                        | null
+  }
+}
@@ -0,0 +1,73 @@
+package no.skatteetaten.aurora.version.suggest
+
+import spock.lang.Specification
+import spock.lang.Unroll
+
+class ReleaseTracksTest extends Specification {
+
+  @Unroll
+  def "latest version for segment #versionSegment and hint '#versionHint' is #expectedVersion"() {
+    given:
+      def releaseTracks = new ReleaseTracks()
+      ["1.0.0", "1.0.1", "1.1.0", "2.0.0", "2.0.3", "2.1.0", "Manual", "1.0", "2.5.0-SNAPSHOT"].each {
+        releaseTracks.add(it)
+      }
+
+    when:
+      def latest = releaseTracks.findLatest(versionSegment, versionHint)
+
+    then:
+      latest.map { it.toString() }.orElse(null) == expectedVersion
+
+    where:
+      versionSegment       | versionHint | expectedVersion
+      VersionSegment.PATCH | "1.0"       | "1.0.1"
+      VersionSegment.PATCH | "2.0"       | "2.0.3"
+      VersionSegment.PATCH | "2"         | "2.1.0"
+      VersionSegment.MINOR | "1.0"       | "1.1.0"
+      VersionSegment.PATCH | "3.0"       | null
+      VersionSegment.MAJOR | "1"         | "2.1.0"
+      VersionSegment.PATCH | ""          | "2.1.0"
+  }
+
+  def "release tracks of versions added out of order and with large numbers are kept apart"() {
+    given:
+      def versions = (20..1).collect { "${it}.0.1".toString() } + ["1.4294967296.0", "1.0.5", "1.4294967296.2", "1.0.3"]
+      def releaseTracks = ReleaseTracks.of(versions)
+
+    expect:
+      releaseTracks.findLatestVersion(VersionSegment.PATCH, "1.0") == Optional.of("1.0.5")
+      releaseTracks.findLatestVersion(VersionSegment.PATCH, "1.4294967296") == Optional.of("1.4294967296.2")
+      releaseTracks.findLatestVersion(VersionSegment.MINOR, "1") == Optional.of("1.4294967296.2")
+      (2..20).every { releaseTracks.findLatestVersion(VersionSegment.MINOR, "$it") == Optional.of("${it}.0.1".toString()) }
+      releaseTracks.findLatestVersion(VersionSegment.PATCH, "21.0") == Optional.empty()
+  }
+
+  def "versions added later move the release track forward"() {
+    given:
+      def releaseTracks = ReleaseTracks.of(["1.0.0"])
+
+    when:
+      def before = releaseTracks.suggestNext(VersionSegment.PATCH, "1.0").toString()
+      releaseTracks.add("1.0.1")
+      def after = releaseTracks.suggestNext(VersionSegment.PATCH, "1.0").toString()
+
+    then:
+      before == "1.0.1"
+      after == "1.0.2"
+  }
+
+  def "release tracks built separately are merged"() {
+    given:
+      def releaseTracks = ReleaseTracks.of(["1.0.0", "1.1.0", "2.0.0"])
+
+    when:
+      releaseTracks.addAll(ReleaseTracks.of(["1.0.3", "1.2.0"]))
+      releaseTracks.addAll(new ReleaseTracks())
+
+    then:
+      releaseTracks.suggestNext(VersionSegment.PATCH, "1.0").toString() == "1.0.4"
+      releaseTracks.suggestNext(VersionSegment.MINOR, "1").toString() == "1.3.0"
+      releaseTracks.suggestNext(VersionSegment.MAJOR, "1").toString() == "3.0.0"
+  }
+}
@@ -1,5 +1,6 @@
 package no.skatteetaten.aurora.version.suggest
 
+import no.skatteetaten.aurora.version.utils.PrefixTrie
 import spock.lang.Specification
 import spock.lang.Unroll
 
@@ -29,4 +30,30 @@ class ReleaseVersionEvaluatorTest extends Specification {
 
   }
 
+  @Unroll
+  def "shall suggest segment #expectedVersionSegment for version #versionHint when conventional commits give #conventionalSegment"() {
+    when:
+      def versionSegmentToIncrement = ReleaseVersionEvaluator.findVersionSegmentToIncrement(
+          versionHint,
+          Optional.of(originatingBranchName),
+          PrefixTrie.compile(forceMinorIncrementFor),
+          Optional.ofNullable(conventionalSegment))
+    then:
+      versionSegmentToIncrement == expectedVersionSegment
+    where:
+      expectedVersionSegment | versionHint | originatingBranchName | forceMinorIncrementFor | conventionalSegment
+      VersionSegment.PATCH   | "1"         | "feature/some"        | []                     | null
+      VersionSegment.MINOR   | "1"         | "feature/some"        | ["feature"]            | null
+      VersionSegment.MINOR   | "1"         | "feature/some"        | ["feature"]            | VersionSegment.PATCH
+      VersionSegment.MINOR   | "1"         | "feature/some"        | []                     | VersionSegment.MINOR
+      VersionSegment.MINOR   | "1"         | "feature/some"        | []                     | VersionSegment.MAJOR
+      VersionSegment.PATCH   | "1.0"       | "feature/some"        | []                     | VersionSegment.MINOR
+      VersionSegment.PATCH   | "1.0"       | "feature/some"        | []                     | VersionSegment.MAJOR
+      VersionSegment.PATCH   | ""          | "feature/some"        | []                     | null
+      VersionSegment.PATCH   | null        | "feature/some"        | []                     | VersionSegment.PATCH
+      VersionSegment.MINOR   | ""          | "feature/some"        | ["feature"]            | VersionSegment.PATCH
+      VersionSegment.MINOR   | ""          | "feature/some"        | []                     | VersionSegment.MINOR
+      VersionSegment.MAJOR   | ""          | "feature/some"        | []                     | VersionSegment.MAJOR
+  }
+
 }
@@ -106,4 +106,32 @@ class ReleaseVersionIncrementerTest extends Specification {
 
   }
 
+  @Unroll
+  def "shall suggest version #expectedVersion for segment #versionSegmentToIncrement when version hint is #versionHint"() {
+    given:
+      def existingVersions = ["2.1.2", "2.3.3", "1.0.0", "1.2.2", "3.0.0-SNAPSHOT"]
+
+    when:
+      def inferredVersion = ReleaseVersionIncrementer.suggestNextReleaseVersion(
+          versionSegmentToIncrement,
+          versionHint,
+          existingVersions)
+
+    then:
+      inferredVersion.toString() == expectedVersion
+
+    where:
+      expectedVersion | versionSegmentToIncrement | versionHint
+      "3.0.0"         | VersionSegment.MAJOR      | ""
+      "2.4.0"         | VersionSegment.MINOR      | ""
+      "2.3.4"         | VersionSegment.PATCH      | null
+      "3.0.0"         | VersionSegment.MAJOR      | "1"
+      "4.0.0"         | VersionSegment.MAJOR      | "4"
+  }
+
+  def "shall suggest first version when version hint is empty and there are no existing versions"() {
+    expect:
+      ReleaseVersionIncrementer.suggestNextReleaseVersion(VersionSegment.MINOR, "", []).toString() == "0.0.0"
+  }
+
 }
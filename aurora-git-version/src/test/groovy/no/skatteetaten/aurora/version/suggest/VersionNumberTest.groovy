@@ -199,5 +199,10 @@ class VersionNumberTest extends Specification {
       versionNumbers.findAll { it.semanticVersion }.size() == 0
   }
 
-}
+  def "Increment major segment resets the less significant segments"() {
+    expect:
+      VersionNumber.parse("1.2.3").incrementMajorSegment().toString() == "2.0.0"
+      VersionNumber.parse("1.2.3").incrementMajorSegment().isSemanticVersion()
+  }
 
+}
@@ -0,0 +1,147 @@
+package no.skatteetaten.aurora.version.suggest
+
+import java.time.Clock
+import java.time.Instant
+import java.time.ZoneOffset
+
+import groovy.transform.CompileStatic
+import no.skatteetaten.aurora.version.BenchmarkHelper
+import spock.lang.Requires
+import spock.lang.Specification
+import spock.lang.Unroll
+
+class VersionSchemeTest extends Specification {
+
+  static VersionScheme calendar = new CalendarVersionScheme(
+      Clock.fixed(Instant.parse("2026-10-19T12:00:00Z"), ZoneOffset.UTC))
+
+  @Unroll
+  def "#scheme parses '#version' as #key"() {
+
+    expect:
+      scheme.parse(version) == (key as long[])
+      key == null || scheme.parse(scheme.format(key as long[])) == (key as long[])
+
+    where:
+      scheme                     | version          | key
+      VersionScheme.SEMANTIC     | "1.4.2"          | [1, 4, 2]
+      VersionScheme.SEMANTIC     | "1.4.2+b7"       | [1, 4, 2]
+      VersionScheme.SEMANTIC     | "1.4.2-SNAPSHOT" | null
+      VersionScheme.SEMANTIC     | "1.4"            | null
+      VersionScheme.SEMANTIC     | "Manual"         | null
+      calendar                   | "2026.10.3"      | [2026, 10, 3]
+      calendar                   | "2026.09.0"      | [2026, 9, 0]
+      calendar                   | "2026.13.0"      | null
+      calendar                   | "2026.10"        | null
+      VersionScheme.BUILD_NUMBER | "57"             | [57]
+      VersionScheme.BUILD_NUMBER | "1.0.0"          | null
+      VersionScheme.BUILD_NUMBER | "12345678901234567890" | null
+  }
+
+  def "Keys are compared number by number"() {
+
+    expect:
+      VersionScheme.SEMANTIC.compare([2, 0, 0] as long[], [10, 0, 0] as long[]) < 0
+      VersionScheme.SEMANTIC.compare([1, 10, 0] as long[], [1, 9, 9] as long[]) > 0
+      VersionScheme.BUILD_NUMBER.compare([100] as long[], [99] as long[]) > 0
+      calendar.compare([2026, 10, 3] as long[], [2026, 10, 3] as long[]) == 0
+  }
+
+  @Unroll
+  def "Next #scheme version after #versions with hint '#versionHint' is #expected"() {
+
+    expect:
+      ReleaseTracks.of(scheme, versions).suggestNextVersion(segment, versionHint) == expected
+
+    where:
+      scheme                     | versions                                 | segment              | versionHint | expected
+      VersionScheme.SEMANTIC     | ["1.0.0", "1.0.1", "1.1.0"]              | VersionSegment.PATCH | "1.0"       | "1.0.2"
+      VersionScheme.SEMANTIC     | ["1.0.0", "1.1.0"]                       | VersionSegment.MINOR | "1"         | "1.2.0"
+      calendar                   | ["2026.9.4", "2026.10.1", "2026.10.2"]   | VersionSegment.PATCH | ""          | "2026.10.3"
+      calendar                   | ["2026.9.4", "2025.12.7"]                | VersionSegment.PATCH | ""          | "2026.10.0"
+      calendar                   | []                                       | VersionSegment.MINOR | ""          | "2026.10.0"
+      calendar                   | ["2026.11.0"]                            | VersionSegment.PATCH | ""          | "2026.11.1"
+      calendar                   | ["2026.10.5", "2025.12.7"]               | VersionSegment.PATCH | "2025.12"   | "2026.10.0"
+      VersionScheme.BUILD_NUMBER | ["9", "57", "100", "1.0.0"]              | VersionSegment.PATCH | ""          | "101"
+      VersionScheme.BUILD_NUMBER | []                                       | VersionSegment.PATCH | ""          | "1"
+      VersionScheme.BUILD_NUMBER | []                                       | VersionSegment.PATCH | "500"       | "500"
+  }
+
+  def "Release tracks of different schemes cannot be merged"() {
+
+    when:
+      ReleaseTracks.of(VersionScheme.SEMANTIC, ["1.0.0"]).addAll(ReleaseTracks.of(VersionScheme.BUILD_NUMBER, ["5"]))
+
+    then:
+      thrown(IllegalArgumentException)
+  }
+
+  def "Built in schemes are found by name"() {
+
+    expect:
+      VersionScheme.forName("SemVer") == VersionScheme.SEMANTIC
+      VersionScheme.forName("calver") == VersionScheme.CALENDAR
+      VersionScheme.forName("build-number") == VersionScheme.BUILD_NUMBER
+
+    when:
+      VersionScheme.forName("romver")
+
+    then:
+      thrown(IllegalArgumentException)
+  }
+
+  /**
+   * Run with <code>mvn test -Dbenchmark=true -Dtest=VersionSchemeTest</code>. Compares building the release tracks
+   * and finding the latest version with the scheme keys against comparing {@link VersionNumber}s, which parse the
+   * segments on every comparison.
+   */
+  @Unroll
+  @Requires({ sys['benchmark'] })
+  def "Benchmark the #scheme scheme"() {
+
+    given:
+      def versions = (1..20000).collect { versionOf(it).toString() }
+      def versionNumbers = versions.collect { VersionNumber.parse(it) }
+
+    when:
+      double tracksMillis = BenchmarkHelper.time(20) {
+        ReleaseTracks.of(scheme, versions).suggestNextVersion(VersionSegment.PATCH, "")
+      }
+      def keys = versions.collect { scheme.parse(it) }
+      double keyMillis = BenchmarkHelper.time(20) { maxKey(scheme, keys) }
+      double versionNumberMillis = BenchmarkHelper.time(20) { maxVersionNumber(versionNumbers) }
+      println String.format("%s: release tracks of 20000 versions %.3f ms, max by key %.3f ms, "
+          + "max by VersionNumber %.3f ms", scheme, tracksMillis, keyMillis, versionNumberMillis)
+
+    then: "both find the same latest version, however long each took"
+      scheme.format(maxKey(scheme, keys)) == maxVersionNumber(versionNumbers).toString()
+
+    where:
+      scheme                     | versionOf
+      VersionScheme.SEMANTIC     | { int i -> "${i % 7}.${i % 13}.${i}" }
+      calendar                   | { int i -> "${2000 + i % 27}.${1 + i % 12}.${i}" }
+      VersionScheme.BUILD_NUMBER | { int i -> "${i}" }
+  }
+
+  @CompileStatic
+  static long[] maxKey(VersionScheme scheme, List<long[]> keys) {
+    long[] max = null
+    for (long[] key : keys) {
+      if (max == null || scheme.compare(key, max) > 0) {
+        max = key
+      }
+    }
+    max
+  }
+
+  @CompileStatic
+  static VersionNumber maxVersionNumber(List<VersionNumber> versionNumbers) {
+    VersionNumber max = null
+    for (VersionNumber versionNumber : versionNumbers) {
+      if (max == null || versionNumber > max) {
+        max = versionNumber
+      }
+    }
+    max
+  }
+}
@@ -0,0 +1,56 @@
+package no.skatteetaten.aurora.version.utils
+
+import spock.lang.Specification
+import spock.lang.Unroll
+
+class BranchMatcherTest extends Specification {
+
+  @Unroll
+  def "#rules shall match #branch: #expected"() {
+
+    expect:
+      BranchMatcher.compile(rules).matches(branch) == expected
+
+    where:
+      rules                            | branch                 | expected
+      []                               | "master"               | false
+      ["master"]                       | "master"               | true
+      ["master"]                       | "master2"              | false
+      ["master", "release/*"]          | "release/1.2"          | true
+      ["release/*"]                    | "release/"             | true
+      ["release/*"]                    | "release"              | false
+      ["release/*"]                    | "release/1.2/hotfix"   | false
+      ["release/**"]                   | "release/1.2/hotfix"   | true
+      ["release/?"]                    | "release/1"            | true
+      ["release/?"]                    | "release/12"           | false
+      ["*/main"]                       | "team-a/main"          | true
+      ["*/main"]                       | "a/b/main"             | false
+      ["feature/*-ui", "feature/abc*"] | "feature/abc-ui"       | true
+      ["feature/*-ui", "feature/abc*"] | "feature/xyz-ui"       | true
+      ["feature/*-ui", "feature/abc*"] | "feature/xyz"          | false
+      ["rel*se/*"]                     | "release/1"            | true
+      ["rel*se/*"]                     | "relæse/1"             | true
+      ["**"]                           | "any/thing/at/all"     | true
+      ["Release/*"]                    | "release/1"            | false
+      ["release/*"]                    | null                   | false
+  }
+
+  @Unroll
+  def "#prefixes shall be a prefix of #name ignoring case: #expected"() {
+
+    expect:
+      PrefixTrie.compile(prefixes).matchesPrefixOf(name) == expected
+
+    where:
+      prefixes                 | name                 | expected
+      []                       | "feature/foo"        | false
+      ["feature"]              | "feature/foo"        | true
+      ["FEATURE"]              | "Feature/foo"        | true
+      ["feature/", "feat"]     | "feat"               | true
+      ["feature/"]             | "feature"            | false
+      ["feature/", "bugfix/"]  | "bugfix/abc"         | true
+      ["feature/", "bugfix/"]  | "hotfix/abc"         | false
+      ["Æble"]                 | "æblekake"           | true
+      [""]                     | "anything"           | true
+  }
+}